@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
+import com.blackducksoftware.integration.hub.api.generated.component.VulnerabilityWithRemediationView;
+import com.blackducksoftware.integration.hub.api.generated.enumeration.VulnerabilityWithRemediationRemediationStatusType;
+import com.blackducksoftware.integration.hub.api.generated.enumeration.VulnerabilityWithRemediationSeverityType;
+import com.blackducksoftware.integration.hub.api.generated.enumeration.VulnerabilityWithRemediationSourceType;
+import com.blackducksoftware.integration.hub.api.generated.view.VulnerableComponentView;
+
+/**
+ * This class will be used by the benchmarks to generate synthetic Hub vulnerable component views.
+ *
+ * The rows of a group are spread across the Hub project versions of the group. The first part of every version is
+ * drawn from a component pool that is shared by all versions (the same components are used by every release of a
+ * product), and the rest is unique to the version. The shared part is what {@link VulnerabilityUtil#removeDuplicates}
+ * has to collapse.
+ *
+ * @author smanikantan
+ *
+ */
+public final class VulnerabilityDataFactory {
+
+    public static final String HUB_SERVER_URL = "https://hub.example.com";
+
+    private static final String DESCRIPTION = "Buffer overflow in the parser allows remote attackers to execute arbitrary code via a crafted "
+            + "payload.\r\nThis issue affects all the versions prior to the fixed release and is exploitable without authentication.";
+
+    private static final long SEED = 20171021L;
+
+    private VulnerabilityDataFactory() {
+    }
+
+    /**
+     * Create the vulnerable component views of one Hub project version
+     *
+     * @param rowCount
+     *            number of rows for this version
+     * @param versionIndex
+     *            index of the version in the group
+     * @param sharedRatio
+     *            fraction of the rows that are shared with the other versions of the group
+     * @return
+     */
+    public static List<VulnerableComponentView> createVulnerableComponentViews(int rowCount, int versionIndex, double sharedRatio) {
+        final Random random = new Random(SEED + versionIndex);
+        final int sharedRows = (int) (rowCount * sharedRatio);
+        final List<VulnerableComponentView> views = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            // Shared rows use the same identity in every version, unique rows are offset by the version index
+            final int identity = row < sharedRows ? row : (versionIndex + 1) * rowCount + row;
+            views.add(createVulnerableComponentView(identity, random));
+        }
+        return views;
+    }
+
+    /**
+     * Create the transformed vulnerabilities of a group with the given number of Hub project versions
+     *
+     * @param rowCount
+     *            total number of rows of the group
+     * @param versionCount
+     *            number of Hub project versions in the group
+     * @param sharedRatio
+     *            fraction of the rows of each version that are shared with the other versions
+     * @return
+     */
+    public static List<Vulnerability> createMergedVulnerabilities(int rowCount, int versionCount, double sharedRatio) {
+        final PropertyConstants propertyConstants = createPropertyConstants();
+        final int rowsPerVersion = rowCount / versionCount;
+        final Date scanDate = new Date();
+        final List<Vulnerability> vulnerabilities = new ArrayList<>(rowCount);
+        final VulnerabilityStringPool stringPool = new VulnerabilityStringPool();
+        for (int versionIndex = 0; versionIndex < versionCount; versionIndex++) {
+            vulnerabilities.addAll(VulnerabilityUtil.transformMapping(createVulnerableComponentViews(rowsPerVersion, versionIndex, sharedRatio),
+                    "Benchmark Project", "Release " + versionIndex, scanDate, propertyConstants, stringPool));
+        }
+        return vulnerabilities;
+    }
+
+    /**
+     * Create the property constants used by the transformation
+     *
+     * @return
+     */
+    public static PropertyConstants createPropertyConstants() {
+        final PropertyConstants propertyConstants = new PropertyConstants();
+        propertyConstants.setHubServerUrl(HUB_SERVER_URL);
+        return propertyConstants;
+    }
+
+    private static VulnerableComponentView createVulnerableComponentView(int identity, Random random) {
+        final String componentId = "c0ffee00-0000-4000-8000-" + String.format("%012d", identity / 4);
+        final String componentVersionId = "5eed0000-0000-4000-8000-" + String.format("%012d", identity);
+
+        final VulnerabilityWithRemediationView vulnerability = new VulnerabilityWithRemediationView();
+        vulnerability.vulnerabilityName = (identity % 3 == 0 ? "BDSA-2017-" : "CVE-2017-") + (1000 + identity % 9000);
+        vulnerability.description = DESCRIPTION;
+        vulnerability.vulnerabilityPublishedDate = new Date(1483228800000L + identity * 60000L);
+        vulnerability.vulnerabilityUpdatedDate = new Date(1493596800000L + identity * 60000L);
+        vulnerability.baseScore = BigDecimal.valueOf(random.nextInt(100), 1);
+        vulnerability.exploitabilitySubscore = BigDecimal.valueOf(random.nextInt(100), 1);
+        vulnerability.impactSubscore = BigDecimal.valueOf(random.nextInt(100), 1);
+        vulnerability.source = identity % 3 == 0 ? VulnerabilityWithRemediationSourceType.VULNDB : VulnerabilityWithRemediationSourceType.NVD;
+        vulnerability.remediationStatus = pick(VulnerabilityWithRemediationRemediationStatusType.values(), random);
+        vulnerability.severity = pick(VulnerabilityWithRemediationSeverityType.values(), random);
+
+        final VulnerableComponentView view = new VulnerableComponentView();
+        view.componentName = "component-" + (identity / 4);
+        view.componentVersionName = (identity % 10) + "." + (identity % 7) + "." + (identity % 5);
+        view.componentVersion = HUB_SERVER_URL + "/api/components/" + componentId + "/versions/" + componentVersionId;
+        view.componentVersionOriginName = identity % 2 == 0 ? "maven" : "npmjs";
+        view.componentVersionOriginId = "org.example:component-" + (identity / 4) + ":" + view.componentVersionName;
+        view.vulnerabilityWithRemediation = vulnerability;
+        return view;
+    }
+
+    private static <T> T pick(T[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+}
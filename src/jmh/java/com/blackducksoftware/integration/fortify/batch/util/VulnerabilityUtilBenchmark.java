@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
+import com.blackducksoftware.integration.hub.api.generated.view.VulnerableComponentView;
+
+/**
+ * Benchmarks of the transformation and the duplicate removal of the vulnerabilities. Run it with
+ * <code>./gradlew jmh</code>; the gc profiler reports the allocation rate (gc.alloc.rate.norm is the number of bytes
+ * allocated per operation).
+ *
+ * @author smanikantan
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class VulnerabilityUtilBenchmark {
+
+    /**
+     * Vulnerable component views of a single Hub project version
+     */
+    @State(Scope.Benchmark)
+    public static class TransformState {
+        @Param({ "1000", "10000", "100000", "1000000" })
+        public int rowCount;
+
+        public List<VulnerableComponentView> vulnerableComponentViews;
+
+        public PropertyConstants propertyConstants;
+
+        public Date scanDate;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            vulnerableComponentViews = VulnerabilityDataFactory.createVulnerableComponentViews(rowCount, 0, 0);
+            propertyConstants = VulnerabilityDataFactory.createPropertyConstants();
+            scanDate = new Date();
+        }
+    }
+
+    /**
+     * Merged vulnerabilities of a group of Hub project versions
+     */
+    @State(Scope.Benchmark)
+    public static class DuplicateState {
+        @Param({ "1000", "10000", "100000", "1000000" })
+        public int rowCount;
+
+        @Param({ "2", "5", "20" })
+        public int versionCount;
+
+        @Param({ "0.8" })
+        public double sharedRatio;
+
+        public List<Vulnerability> mergedVulnerabilities;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            mergedVulnerabilities = VulnerabilityDataFactory.createMergedVulnerabilities(rowCount, versionCount, sharedRatio);
+        }
+    }
+
+    @Benchmark
+    public List<Vulnerability> transformMapping(TransformState state) {
+        return VulnerabilityUtil.transformMapping(state.vulnerableComponentViews, "Benchmark Project", "Release 1", state.scanDate,
+                state.propertyConstants);
+    }
+
+    @Benchmark
+    public List<Vulnerability> removeDuplicates(DuplicateState state) {
+        return VulnerabilityUtil.removeDuplicates(state.mergedVulnerabilities);
+    }
+}
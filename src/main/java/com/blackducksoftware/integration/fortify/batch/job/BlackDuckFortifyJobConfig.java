@@ -22,8 +22,12 @@
  */
 package com.blackducksoftware.integration.fortify.batch.job;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.JobExecution;
@@ -42,7 +46,9 @@ import org.springframework.scheduling.annotation.Scheduled;
 import com.blackducksoftware.integration.fortify.batch.BatchSchedulerConfig;
 import com.blackducksoftware.integration.fortify.batch.step.Initializer;
 import com.blackducksoftware.integration.fortify.batch.util.AttributeConstants;
+import com.blackducksoftware.integration.fortify.batch.util.GroupLeaseManager;
 import com.blackducksoftware.integration.fortify.batch.util.HubServices;
+import com.blackducksoftware.integration.fortify.batch.util.MappingFileWatcher;
 import com.blackducksoftware.integration.fortify.batch.util.MappingParser;
 import com.blackducksoftware.integration.fortify.batch.util.PropertyConstants;
 import com.blackducksoftware.integration.fortify.service.FortifyApplicationVersionApi;
@@ -60,6 +66,9 @@ import com.blackducksoftware.integration.fortify.service.FortifyUploadApi;
 public class BlackDuckFortifyJobConfig implements JobExecutionListener {
     private final static Logger logger = Logger.getLogger(BlackDuckFortifyJobConfig.class);
 
+    // An edit of the mapping file is reloaded once the file is not changed for this period
+    private final static long MAPPING_FILE_QUIET_PERIOD_MILLIS = 2000;
+
     @Autowired
     private BatchSchedulerConfig batchScheduler;
 
@@ -125,7 +134,8 @@ public class BlackDuckFortifyJobConfig implements JobExecutionListener {
      */
     @Bean
     public MappingParser getMappingParser() {
-        return new MappingParser(getFortifyApplicationVersionApi(), getFortifyAttributeDefinitionApi(), propertyConstants, attributeConstants);
+        return new MappingParser(getFortifyApplicationVersionApi(), getFortifyAttributeDefinitionApi(), propertyConstants, attributeConstants,
+                hubServices);
     }
 
     /**
@@ -135,7 +145,36 @@ public class BlackDuckFortifyJobConfig implements JobExecutionListener {
      */
     @Bean
     public Initializer getMappingParserTask() {
-        return new Initializer(getMappingParser(), getFortifyFileTokenApi(), getFortifyUploadApi(), hubServices, propertyConstants);
+        return new Initializer(getMappingParser(), getFortifyFileTokenApi(), getFortifyUploadApi(), hubServices, propertyConstants,
+                StringUtils.isEmpty(propertyConstants.getGroupLeaseDir()) ? null : getGroupLeaseManager());
+    }
+
+    /**
+     * Create the leases of the groups, they are used when the lease directory is set
+     *
+     * @return
+     */
+    @Bean(destroyMethod = "close")
+    public GroupLeaseManager getGroupLeaseManager() {
+        return new GroupLeaseManager(new File(propertyConstants.getGroupLeaseDir()),
+                TimeUnit.SECONDS.toMillis(propertyConstants.getGroupLeaseTtlSeconds()));
+    }
+
+    /**
+     * Create the watcher of the mapping file, it is started when the reload of the mapping file is enabled
+     *
+     * @return
+     * @throws IOException
+     */
+    @Bean(destroyMethod = "close")
+    public MappingFileWatcher getMappingFileWatcher() throws IOException {
+        final Initializer initializer = getMappingParserTask();
+        final MappingFileWatcher mappingFileWatcher = new MappingFileWatcher(new File(propertyConstants.getMappingJsonPath()),
+                MAPPING_FILE_QUIET_PERIOD_MILLIS, initializer::reloadMapping);
+        if (propertyConstants.isMappingWatch()) {
+            mappingFileWatcher.start();
+        }
+        return mappingFileWatcher;
     }
 
     /**
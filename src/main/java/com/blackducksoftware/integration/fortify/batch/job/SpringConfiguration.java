@@ -40,7 +40,7 @@ public class SpringConfiguration {
      */
     @Bean
     public HubServices getHubServices(PropertyConstants propertyConstants) {
-        return new HubServices(RestConnectionHelper.createHubServicesFactory(propertyConstants));
+        return new HubServices(RestConnectionHelper.createHubServicesFactory(propertyConstants), propertyConstants);
     }
 
     /**
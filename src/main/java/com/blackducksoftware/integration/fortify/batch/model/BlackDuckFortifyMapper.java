@@ -23,6 +23,7 @@
 package com.blackducksoftware.integration.fortify.batch.model;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * This class is to store the mapping details after parsing the mapping.json file
@@ -44,11 +45,26 @@ public final class BlackDuckFortifyMapper implements Serializable {
 
     private final String fortifyApplicationVersion;
 
+    // Optional pin of the Hub project version, either by URL or by the project and version IDs
+    private final String hubProjectVersionUrl;
+
+    private final String hubProjectId;
+
+    private final String hubProjectVersionId;
+
     public BlackDuckFortifyMapper(final String hubProject, final String hubProjectVersion, final String fortifyApplication, final String fortifyApplicationVersion) {
+        this(hubProject, hubProjectVersion, fortifyApplication, fortifyApplicationVersion, null, null, null);
+    }
+
+    public BlackDuckFortifyMapper(final String hubProject, final String hubProjectVersion, final String fortifyApplication, final String fortifyApplicationVersion,
+            final String hubProjectVersionUrl, final String hubProjectId, final String hubProjectVersionId) {
         this.hubProject = hubProject;
         this.hubProjectVersion = hubProjectVersion;
         this.fortifyApplication = fortifyApplication;
         this.fortifyApplicationVersion = fortifyApplicationVersion;
+        this.hubProjectVersionUrl = hubProjectVersionUrl;
+        this.hubProjectId = hubProjectId;
+        this.hubProjectVersionId = hubProjectVersionId;
     }
 
     public String getHubProject() {
@@ -67,9 +83,43 @@ public final class BlackDuckFortifyMapper implements Serializable {
         return fortifyApplicationVersion;
     }
 
+    public String getHubProjectVersionUrl() {
+        return hubProjectVersionUrl;
+    }
+
+    public String getHubProjectId() {
+        return hubProjectId;
+    }
+
+    public String getHubProjectVersionId() {
+        return hubProjectVersionId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hubProject, hubProjectVersion, fortifyApplication, fortifyApplicationVersion, hubProjectVersionUrl, hubProjectId,
+                hubProjectVersionId);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof BlackDuckFortifyMapper)) {
+            return false;
+        }
+        final BlackDuckFortifyMapper other = (BlackDuckFortifyMapper) obj;
+        return Objects.equals(hubProject, other.hubProject) && Objects.equals(hubProjectVersion, other.hubProjectVersion)
+                && Objects.equals(fortifyApplication, other.fortifyApplication) && Objects.equals(fortifyApplicationVersion, other.fortifyApplicationVersion)
+                && Objects.equals(hubProjectVersionUrl, other.hubProjectVersionUrl) && Objects.equals(hubProjectId, other.hubProjectId)
+                && Objects.equals(hubProjectVersionId, other.hubProjectVersionId);
+    }
+
     @Override
     public String toString() {
         return "BlackDuckFortifyMapper [hubProject=" + hubProject + ", hubProjectVersion=" + hubProjectVersion + ", fortifyApplication=" + fortifyApplication
-                + ", fortifyApplicationVersion=" + fortifyApplicationVersion + "]";
+                + ", fortifyApplicationVersion=" + fortifyApplicationVersion + ", hubProjectVersionUrl=" + hubProjectVersionUrl + ", hubProjectId=" + hubProjectId
+                + ", hubProjectVersionId=" + hubProjectVersionId + "]";
     }
 }
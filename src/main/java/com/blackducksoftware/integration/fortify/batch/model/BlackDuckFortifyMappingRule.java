@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.model;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * This class is to store a mapping rule of the mapping.json file. The versions of the Hub project whose name matches
+ * the version pattern and whose phase matches the phase are mapped to the Fortify application and version. The Fortify
+ * names may contain the {hubProject}, {hubProjectVersion} and {phase} placeholders.
+ *
+ * @author smanikantan
+ *
+ */
+public final class BlackDuckFortifyMappingRule implements Serializable {
+    /**
+     *
+     */
+    private static final long serialVersionUID = 1L;
+
+    private final String hubProject;
+
+    // Regular expression matched against the whole version name, null matches every version
+    private final String hubProjectVersionPattern;
+
+    // Phase of the version, null matches every phase
+    private final String hubProjectVersionPhase;
+
+    private final String fortifyApplication;
+
+    private final String fortifyApplicationVersion;
+
+    public BlackDuckFortifyMappingRule(final String hubProject, final String hubProjectVersionPattern, final String hubProjectVersionPhase,
+            final String fortifyApplication, final String fortifyApplicationVersion) {
+        this.hubProject = hubProject;
+        this.hubProjectVersionPattern = hubProjectVersionPattern;
+        this.hubProjectVersionPhase = hubProjectVersionPhase;
+        this.fortifyApplication = fortifyApplication;
+        this.fortifyApplicationVersion = fortifyApplicationVersion;
+    }
+
+    public String getHubProject() {
+        return hubProject;
+    }
+
+    public String getHubProjectVersionPattern() {
+        return hubProjectVersionPattern;
+    }
+
+    public String getHubProjectVersionPhase() {
+        return hubProjectVersionPhase;
+    }
+
+    public String getFortifyApplication() {
+        return fortifyApplication;
+    }
+
+    public String getFortifyApplicationVersion() {
+        return fortifyApplicationVersion;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hubProject, hubProjectVersionPattern, hubProjectVersionPhase, fortifyApplication, fortifyApplicationVersion);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof BlackDuckFortifyMappingRule)) {
+            return false;
+        }
+        final BlackDuckFortifyMappingRule other = (BlackDuckFortifyMappingRule) obj;
+        return Objects.equals(hubProject, other.hubProject) && Objects.equals(hubProjectVersionPattern, other.hubProjectVersionPattern)
+                && Objects.equals(hubProjectVersionPhase, other.hubProjectVersionPhase) && Objects.equals(fortifyApplication, other.fortifyApplication)
+                && Objects.equals(fortifyApplicationVersion, other.fortifyApplicationVersion);
+    }
+
+    @Override
+    public String toString() {
+        return "BlackDuckFortifyMappingRule [hubProject=" + hubProject + ", hubProjectVersionPattern=" + hubProjectVersionPattern + ", hubProjectVersionPhase="
+                + hubProjectVersionPhase + ", fortifyApplication=" + fortifyApplication + ", fortifyApplicationVersion=" + fortifyApplicationVersion + "]";
+    }
+}
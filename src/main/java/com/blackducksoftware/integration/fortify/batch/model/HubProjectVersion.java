@@ -22,6 +22,8 @@
  */
 package com.blackducksoftware.integration.fortify.batch.model;
 
+import java.util.Objects;
+
 /**
  * This class is used to store the Hub Project Versions for grouped mappings.
  *
@@ -33,13 +35,26 @@ public final class HubProjectVersion {
 
     private final String hubProjectVersion;
 
+    // URL of the Hub project version pinned in the mapping, or null if it is found by name
+    private final String hubProjectVersionUrl;
+
     /**
      * @param hubProject
      * @param hubProjectVersion
      */
     public HubProjectVersion(String hubProject, String hubProjectVersion) {
+        this(hubProject, hubProjectVersion, null);
+    }
+
+    /**
+     * @param hubProject
+     * @param hubProjectVersion
+     * @param hubProjectVersionUrl
+     */
+    public HubProjectVersion(String hubProject, String hubProjectVersion, String hubProjectVersionUrl) {
         this.hubProject = hubProject;
         this.hubProjectVersion = hubProjectVersion;
+        this.hubProjectVersionUrl = hubProjectVersionUrl;
     }
 
     public String getHubProject() {
@@ -50,9 +65,36 @@ public final class HubProjectVersion {
         return hubProjectVersion;
     }
 
+    public String getHubProjectVersionUrl() {
+        return hubProjectVersionUrl;
+    }
+
+    // The pinned URL is not part of the identity, the Hub project versions are compared by name
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((hubProject == null) ? 0 : hubProject.hashCode());
+        result = prime * result + ((hubProjectVersion == null) ? 0 : hubProjectVersion.hashCode());
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof HubProjectVersion)) {
+            return false;
+        }
+        final HubProjectVersion other = (HubProjectVersion) obj;
+        return Objects.equals(hubProject, other.hubProject) && Objects.equals(hubProjectVersion, other.hubProjectVersion);
+    }
+
     @Override
     public String toString() {
-        return "HubProjectVersion [hubProject=" + hubProject + ", hubProjectVersion=" + hubProjectVersion + "]";
+        return "HubProjectVersion [hubProject=" + hubProject + ", hubProjectVersion=" + hubProjectVersion + ", hubProjectVersionUrl=" + hubProjectVersionUrl
+                + "]";
     }
 
 }
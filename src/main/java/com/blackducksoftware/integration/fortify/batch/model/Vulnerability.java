@@ -26,6 +26,7 @@ import java.io.Serializable;
 import java.util.Date;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
@@ -34,6 +35,9 @@ import com.fasterxml.jackson.annotation.JsonPropertyOrder;
  *
  * JsonPropertyOrder - Will be the header order for the CSV
  *
+ * The Hub Vulnerability URL and the URL are not stored, they are derived from the vulnerability id when they are
+ * rendered. The repeating String values are shared between the rows by VulnerabilityStringPool.
+ *
  * @author smanikantan
  *
  */
@@ -48,6 +52,10 @@ public final class Vulnerability implements Serializable {
      */
     private static final long serialVersionUID = 1L;
 
+    private static final String NVD = "NVD";
+
+    private static final String NVD_URL_PREFIX = "http://web.nvd.nist.gov/view/vuln/detail?vulnId=";
+
     @JsonProperty("Project name")
     private final String projectName;
 
@@ -104,8 +112,8 @@ public final class Vulnerability implements Serializable {
     @JsonProperty("Vulnerability source")
     private final String vulnerabilitySource;
 
-    @JsonProperty("Hub Vulnerability URL")
-    private final String hubVulnerabilityUrl;
+    // Hub server URL followed by /api/vulnerabilities/, shared by all the rows
+    private final String hubVulnerabilityUrlPrefix;
 
     @JsonProperty("Remediation status")
     private final String remediationStatus;
@@ -121,9 +129,6 @@ public final class Vulnerability implements Serializable {
     @JsonProperty("Remediation comment")
     private final String remediationComment;
 
-    @JsonProperty("URL")
-    private final String url;
-
     @JsonProperty("Severity")
     private final String severity;
 
@@ -135,7 +140,7 @@ public final class Vulnerability implements Serializable {
             final String version, final String channelVersionOrigin, final String channelVersionOriginId, final String channelVersionOriginName, final String vulnerabilityId,
             final String description, final Date publishedOn, final Date updatedOn, final java.math.BigDecimal baseScore, final java.math.BigDecimal exploitability,
             final java.math.BigDecimal impact, final String vulnerabilitySource,
-            final String hubVulnerabilityUrl, final String remediationStatus, final Date remediationTargetDate, final Date remediationActualDate, final String remediationComment, final String url,
+            final String hubVulnerabilityUrlPrefix, final String remediationStatus, final Date remediationTargetDate, final Date remediationActualDate, final String remediationComment,
             final String severity, final Date scanDate) {
         this.projectName = projectName;
         this.projectVersion = projectVersion;
@@ -155,12 +160,11 @@ public final class Vulnerability implements Serializable {
         this.exploitability = exploitability;
         this.impact = impact;
         this.vulnerabilitySource = vulnerabilitySource;
-        this.hubVulnerabilityUrl = hubVulnerabilityUrl;
+        this.hubVulnerabilityUrlPrefix = hubVulnerabilityUrlPrefix;
         this.remediationStatus = remediationStatus;
         this.remediationTargetDate = remediationTargetDate;
         this.remediationActualDate = remediationActualDate;
         this.remediationComment = remediationComment;
-        this.url = url;
         this.severity = severity;
         this.scanDate = scanDate;
     }
@@ -237,8 +241,14 @@ public final class Vulnerability implements Serializable {
         return vulnerabilitySource;
     }
 
+    @JsonProperty("Hub Vulnerability URL")
     public String getHubVulnerabilityUrl() {
-        return hubVulnerabilityUrl;
+        return hubVulnerabilityUrlPrefix + vulnerabilityId;
+    }
+
+    @JsonIgnore
+    public String getHubVulnerabilityUrlPrefix() {
+        return hubVulnerabilityUrlPrefix;
     }
 
     public String getRemediationStatus() {
@@ -257,8 +267,9 @@ public final class Vulnerability implements Serializable {
         return remediationComment;
     }
 
+    @JsonProperty("URL")
     public String getUrl() {
-        return url;
+        return NVD.equals(vulnerabilitySource) ? NVD_URL_PREFIX + vulnerabilityId : "";
     }
 
     public String getSeverity() {
@@ -269,6 +280,32 @@ public final class Vulnerability implements Serializable {
         return scanDate;
     }
 
+    /**
+     * Copy the vulnerability with another project name and version name
+     *
+     * @param projectName
+     * @param projectVersion
+     * @return
+     */
+    public Vulnerability withProject(final String projectName, final String projectVersion) {
+        return withProject(projectName, projectVersion, scanDate);
+    }
+
+    /**
+     * Copy the vulnerability with another project name, version name and scan date
+     *
+     * @param projectName
+     * @param projectVersion
+     * @param scanDate
+     * @return
+     */
+    public Vulnerability withProject(final String projectName, final String projectVersion, final Date scanDate) {
+        return new Vulnerability(projectName, projectVersion, projectId, versionId, channelVersionId, componentName, version, channelVersionOrigin,
+                channelVersionOriginId, channelVersionOriginName, vulnerabilityId, description, publishedOn, updatedOn, baseScore, exploitability, impact,
+                vulnerabilitySource, hubVulnerabilityUrlPrefix, remediationStatus, remediationTargetDate, remediationActualDate, remediationComment,
+                severity, scanDate);
+    }
+
     @Override
     public String toString() {
         return "Vulnerability [projectName=" + projectName + ", projectVersion=" + projectVersion + ", projectId=" + projectId + ", versionId=" + versionId
@@ -276,8 +313,8 @@ public final class Vulnerability implements Serializable {
                 + channelVersionOrigin + ", channelVersionOriginId=" + channelVersionOriginId + ", channelVersionOriginName=" + channelVersionOriginName
                 + ", vulnerabilityId=" + vulnerabilityId + ", description=" + description + ", publishedOn=" + publishedOn + ", updatedOn=" + updatedOn
                 + ", baseScore=" + baseScore + ", exploitability=" + exploitability + ", impact=" + impact + ", vulnerabilitySource=" + vulnerabilitySource
-                + ", hubVulnerabilityUrl=" + hubVulnerabilityUrl + ", remediationStatus=" + remediationStatus + ", remediationTargetDate="
-                + remediationTargetDate + ", remediationActualDate=" + remediationActualDate + ", remediationComment=" + remediationComment + ", url=" + url
+                + ", hubVulnerabilityUrl=" + getHubVulnerabilityUrl() + ", remediationStatus=" + remediationStatus + ", remediationTargetDate="
+                + remediationTargetDate + ", remediationActualDate=" + remediationActualDate + ", remediationComment=" + remediationComment + ", url=" + getUrl()
                 + ", severity=" + severity + ", scanDate=" + scanDate + "]";
     }
 
@@ -22,20 +22,22 @@
  */
 package com.blackducksoftware.integration.fortify.batch.step;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 
@@ -43,9 +45,15 @@ import com.blackducksoftware.integration.exception.IntegrationException;
 import com.blackducksoftware.integration.fortify.batch.model.BlackDuckFortifyMapperGroup;
 import com.blackducksoftware.integration.fortify.batch.model.HubProjectVersion;
 import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
+import com.blackducksoftware.integration.fortify.batch.util.BatchJobStatusUtil;
 import com.blackducksoftware.integration.fortify.batch.util.CSVUtils;
+import com.blackducksoftware.integration.fortify.batch.util.CsvFragmentCache;
+import com.blackducksoftware.integration.fortify.batch.util.ExternalVulnerabilityDeduplicator;
+import com.blackducksoftware.integration.fortify.batch.util.GroupLeaseManager;
 import com.blackducksoftware.integration.fortify.batch.util.HubServices;
 import com.blackducksoftware.integration.fortify.batch.util.PropertyConstants;
+import com.blackducksoftware.integration.fortify.batch.util.VulnerabilitySnapshotStore;
+import com.blackducksoftware.integration.fortify.batch.util.VulnerabilityStringPool;
 import com.blackducksoftware.integration.fortify.batch.util.VulnerabilityUtil;
 import com.blackducksoftware.integration.fortify.model.FileToken;
 import com.blackducksoftware.integration.fortify.service.FortifyFileTokenApi;
@@ -72,6 +80,9 @@ public class BlackDuckFortifyPushThread implements Callable<Boolean> {
 
     private final BlackDuckFortifyMapperGroup blackDuckFortifyMapperGroup;
 
+    // Groups fed by the same Hub project versions, the CSV is uploaded to the Fortify application version of each
+    private final List<BlackDuckFortifyMapperGroup> blackDuckFortifyMapperGroups;
+
     private Date maxBomUpdatedDate;
 
     private final String UNDERSCORE = "_";
@@ -86,13 +97,65 @@ public class BlackDuckFortifyPushThread implements Callable<Boolean> {
 
     private final PropertyConstants propertyConstants;
 
+    // The Hub notifications reported a change of the group, the vulnerabilities are uploaded whatever the BOM updated date
+    private final boolean changeNotified;
+
+    // Leases of the groups in the same order, null when the groups are not leased
+    private final List<GroupLeaseManager.Lease> leases;
+
     public BlackDuckFortifyPushThread(final BlackDuckFortifyMapperGroup blackDuckFortifyMapperGroup, final HubServices hubServices,
             final FortifyFileTokenApi fortifyFileTokenApi, final FortifyUploadApi fortifyUploadApi, PropertyConstants propertyConstants) {
-        this.blackDuckFortifyMapperGroup = blackDuckFortifyMapperGroup;
+        this(blackDuckFortifyMapperGroup, hubServices, fortifyFileTokenApi, fortifyUploadApi, propertyConstants, false);
+    }
+
+    public BlackDuckFortifyPushThread(final BlackDuckFortifyMapperGroup blackDuckFortifyMapperGroup, final HubServices hubServices,
+            final FortifyFileTokenApi fortifyFileTokenApi, final FortifyUploadApi fortifyUploadApi, PropertyConstants propertyConstants,
+            final boolean changeNotified) {
+        this(Collections.singletonList(blackDuckFortifyMapperGroup), hubServices, fortifyFileTokenApi, fortifyUploadApi, propertyConstants,
+                changeNotified);
+    }
+
+    /**
+     * Create the thread of groups that have the same Hub project versions, the CSV is built once from the Hub project
+     * versions of the first group and uploaded to the Fortify application version of each group
+     *
+     * @param blackDuckFortifyMapperGroups
+     * @param hubServices
+     * @param fortifyFileTokenApi
+     * @param fortifyUploadApi
+     * @param propertyConstants
+     * @param changeNotified
+     */
+    public BlackDuckFortifyPushThread(final List<BlackDuckFortifyMapperGroup> blackDuckFortifyMapperGroups, final HubServices hubServices,
+            final FortifyFileTokenApi fortifyFileTokenApi, final FortifyUploadApi fortifyUploadApi, PropertyConstants propertyConstants,
+            final boolean changeNotified) {
+        this(blackDuckFortifyMapperGroups, hubServices, fortifyFileTokenApi, fortifyUploadApi, propertyConstants, changeNotified, null);
+    }
+
+    /**
+     * Create the thread of leased groups that have the same Hub project versions, the CSV is not uploaded to the Fortify
+     * application version of a group whose lease is lost
+     *
+     * @param blackDuckFortifyMapperGroups
+     * @param hubServices
+     * @param fortifyFileTokenApi
+     * @param fortifyUploadApi
+     * @param propertyConstants
+     * @param changeNotified
+     * @param leases
+     *            leases of the groups in the same order, null when the groups are not leased
+     */
+    public BlackDuckFortifyPushThread(final List<BlackDuckFortifyMapperGroup> blackDuckFortifyMapperGroups, final HubServices hubServices,
+            final FortifyFileTokenApi fortifyFileTokenApi, final FortifyUploadApi fortifyUploadApi, PropertyConstants propertyConstants,
+            final boolean changeNotified, final List<GroupLeaseManager.Lease> leases) {
+        this.blackDuckFortifyMapperGroup = blackDuckFortifyMapperGroups.get(0);
+        this.blackDuckFortifyMapperGroups = blackDuckFortifyMapperGroups;
         this.hubServices = hubServices;
         this.fortifyFileTokenApi = fortifyFileTokenApi;
         this.fortifyUploadApi = fortifyUploadApi;
         this.propertyConstants = propertyConstants;
+        this.changeNotified = changeNotified;
+        this.leases = leases;
     }
 
     @Override
@@ -102,44 +165,161 @@ public class BlackDuckFortifyPushThread implements Callable<Boolean> {
         final List<HubProjectVersion> hubProjectVersions = blackDuckFortifyMapperGroup.getHubProjectVersion();
 
         // Get the last successful runtime of the job
-        final Date getLastSuccessfulJobRunTime = getLastSuccessfulJobRunTime(propertyConstants.getBatchJobStatusFilePath());
+        final Date getLastSuccessfulJobRunTime = BatchJobStatusUtil.getLastSuccessfulJobRunTime(propertyConstants.getBatchJobStatusFilePath());
         logger.debug("Last successful job excecution:" + getLastSuccessfulJobRunTime);
 
         // Get the project version view from Hub and calculate the max BOM updated date
         final List<ProjectVersionView> projectVersionItems = getProjectVersionItemsAndMaxBomUpdatedDate(hubProjectVersions);
         logger.info("Compare Dates: "
                 + ((getLastSuccessfulJobRunTime != null && maxBomUpdatedDate.after(getLastSuccessfulJobRunTime)) || (getLastSuccessfulJobRunTime == null)
-                        || (!propertyConstants.isBatchJobStatusCheck())));
+                        || (!propertyConstants.isBatchJobStatusCheck()) || changeNotified));
         logger.debug("maxBomUpdatedDate:: " + maxBomUpdatedDate);
         logger.debug("isBatchJobStatusCheck::" + propertyConstants.isBatchJobStatusCheck());
 
         if ((getLastSuccessfulJobRunTime != null && maxBomUpdatedDate.after(getLastSuccessfulJobRunTime)) || (getLastSuccessfulJobRunTime == null)
-                || (!propertyConstants.isBatchJobStatusCheck())) {
-            // Get the vulnerabilities for all Hub project versions and merge it
-            List<Vulnerability> mergedVulnerabilities = mergeVulnerabilities(hubProjectVersions, projectVersionItems);
-            if (mergedVulnerabilities.size() > 0) {
-                if (hubProjectVersions.size() > 1) {
-                    // Removing Duplicates within multiple Hub Project Versions.
-                    mergedVulnerabilities = VulnerabilityUtil.removeDuplicates(mergedVulnerabilities);
+                || (!propertyConstants.isBatchJobStatusCheck()) || changeNotified) {
+            final String fileDir = propertyConstants.getReportDir();
+            final String fileName = hubProjectVersions.get(0).getHubProject() + UNDERSCORE + hubProjectVersions.get(0).getHubProjectVersion()
+                    + UNDERSCORE + DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS").format(LocalDateTime.now()) + ".csv";
+            final CsvFragmentCache csvFragmentCache = hubServices.getCsvFragmentCache();
+            if (csvFragmentCache != null) {
+                // Assemble the CSV from the rows of each Hub project version, rendered only for the updated versions
+                if (writeFragments(csvFragmentCache, hubProjectVersions, projectVersionItems, fileDir + fileName) > 0) {
+                    uploadVulnerabilities(fileDir + fileName);
+                }
+            } else if (hubProjectVersions.size() > 1
+                    && (propertyConstants.getDedupSpillThresholdRows() > 0 || propertyConstants.getDedupSpillThresholdBytes() > 0)) {
+                // Merge and remove the duplicates through sorted runs on disk when the group is too large for the heap
+                try (ExternalVulnerabilityDeduplicator deduplicator = new ExternalVulnerabilityDeduplicator(
+                        new File(propertyConstants.getDedupSpillDir()), propertyConstants.getDedupSpillThresholdRows(),
+                        propertyConstants.getDedupSpillThresholdBytes())) {
+                    mergeVulnerabilities(hubProjectVersions, projectVersionItems, deduplicator);
+                    if (deduplicator.getRowCount() > 0) {
+                        // Write the unique vulnerabilities to CSV
+                        CSVUtils.writeToCSV(deduplicator, fileDir + fileName, ',');
+                        uploadVulnerabilities(fileDir + fileName);
+                    }
                 }
-                final String fileDir = propertyConstants.getReportDir();
-                final String fileName = hubProjectVersions.get(0).getHubProject() + UNDERSCORE + hubProjectVersions.get(0).getHubProjectVersion()
-                        + UNDERSCORE + DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS").format(LocalDateTime.now()) + ".csv";
+            } else {
+                // Get the vulnerabilities for all Hub project versions and merge it
+                List<Vulnerability> mergedVulnerabilities = mergeVulnerabilities(hubProjectVersions, projectVersionItems);
+                if (mergedVulnerabilities.size() > 0) {
+                    if (hubProjectVersions.size() > 1) {
+                        // Removing Duplicates within multiple Hub Project Versions.
+                        mergedVulnerabilities = VulnerabilityUtil.removeDuplicates(mergedVulnerabilities);
+                    }
+
+                    // Write the vulnerabilities to CSV
+                    CSVUtils.writeToCSV(mergedVulnerabilities, fileDir + fileName, ',');
+                    uploadVulnerabilities(fileDir + fileName);
+                }
+            }
+        }
+        return true;
+    }
 
-                // Write the vulnerabilities to CSV
-                CSVUtils.writeToCSV(mergedVulnerabilities, fileDir + fileName, ',');
+    /**
+     * Upload the vulnerabilities CSV to the Fortify application version of each group, in parallel when there is more
+     * than one. The CSV is deleted once it is uploaded to all of them, the groups whose lease is lost are skipped
+     *
+     * @param fileName
+     * @throws IOException
+     * @throws IntegrationException
+     */
+    void uploadVulnerabilities(final String fileName) throws IOException, IntegrationException {
+        final File file = new File(fileName);
+        final List<Integer> failedApplicationIds = new ArrayList<>();
+        final List<Integer> skippedApplicationIds = Collections.synchronizedList(new ArrayList<>());
+        if (blackDuckFortifyMapperGroups.size() == 1) {
+            if (isLeaseLost(0)) {
+                skippedApplicationIds.add(blackDuckFortifyMapperGroup.getFortifyApplicationId());
+            } else if (!uploadCSV(file, blackDuckFortifyMapperGroup.getFortifyApplicationId())) {
+                failedApplicationIds.add(blackDuckFortifyMapperGroup.getFortifyApplicationId());
+            }
+        } else {
+            uploadCSV(file, failedApplicationIds, skippedApplicationIds);
+        }
 
-                // Get the file token for upload
-                String token = getFileToken();
+        // Delete the file tokens that are created for upload, once no upload is using them
+        fortifyFileTokenApi.deleteFileToken();
 
-                // Upload the vulnerabilities CSV to Fortify
-                uploadCSV(token, fileDir + fileName, blackDuckFortifyMapperGroup.getFortifyApplicationId());
+        // Check if the upload is submitted successfully, if not don't delete the CSV files. It can be used for
+        // debugging
+        if (!skippedApplicationIds.isEmpty()) {
+            logger.warn(file.getName() + " File upload skipped, lease lost, for the Fortify application versions::" + skippedApplicationIds);
+        }
+        if (failedApplicationIds.isEmpty()) {
+            if (file.exists()) {
+                file.delete();
+            }
+            if (skippedApplicationIds.size() < blackDuckFortifyMapperGroups.size()) {
+                logger.info(file.getName() + " File uploaded successfully");
+            }
+        } else {
+            logger.warn(file.getName() + " File is not uploaded to the Fortify application versions::" + failedApplicationIds);
+        }
+    }
 
-                // Delete the file token that is created for upload
-                fortifyFileTokenApi.deleteFileToken();
+    /**
+     * Upload the CSV to the Fortify application version of each group in parallel
+     *
+     * @param file
+     * @param failedApplicationIds
+     *            receives the Fortify application version ids where the upload is not submitted
+     * @param skippedApplicationIds
+     *            receives the Fortify application version ids where the upload is skipped because the lease is lost
+     * @throws IOException
+     * @throws IntegrationException
+     */
+    private void uploadCSV(final File file, final List<Integer> failedApplicationIds, final List<Integer> skippedApplicationIds)
+            throws IOException, IntegrationException {
+        final ExecutorService uploadExecutor = Executors
+                .newFixedThreadPool(Math.max(1, Math.min(blackDuckFortifyMapperGroups.size(), propertyConstants.getFortifyUploadParallelism())));
+        Exception failure = null;
+        try {
+            final List<Future<Boolean>> uploads = new ArrayList<>(blackDuckFortifyMapperGroups.size());
+            for (int i = 0; i < blackDuckFortifyMapperGroups.size(); i++) {
+                final int groupIndex = i;
+                final int fortifyApplicationId = blackDuckFortifyMapperGroups.get(groupIndex).getFortifyApplicationId();
+                // The lease is checked when the upload starts, the uploads may wait for a thread
+                uploads.add(uploadExecutor.submit(() -> {
+                    if (isLeaseLost(groupIndex)) {
+                        skippedApplicationIds.add(fortifyApplicationId);
+                        return true;
+                    }
+                    return uploadCSV(file, fortifyApplicationId);
+                }));
             }
+            for (int i = 0; i < uploads.size(); i++) {
+                final int fortifyApplicationId = blackDuckFortifyMapperGroups.get(i).getFortifyApplicationId();
+                try {
+                    if (!uploads.get(i).get()) {
+                        failedApplicationIds.add(fortifyApplicationId);
+                    }
+                } catch (ExecutionException e) {
+                    logger.error("Error while uploading " + file.getName() + " to the Fortify application version::" + fortifyApplicationId, e.getCause());
+                    failedApplicationIds.add(fortifyApplicationId);
+                    if (failure == null && e.getCause() instanceof Exception) {
+                        failure = (Exception) e.getCause();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while uploading " + file.getName(), e);
+        } finally {
+            uploadExecutor.shutdown();
+        }
+        if (failure != null) {
+            // The other uploads are done, the first error fails the group as an error of a single upload does
+            logger.warn(file.getName() + " File is not uploaded to the Fortify application versions::" + failedApplicationIds);
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof IntegrationException) {
+                throw (IntegrationException) failure;
+            }
+            throw new IntegrationException(failure);
         }
-        return true;
     }
 
     /**
@@ -155,11 +335,8 @@ public class BlackDuckFortifyPushThread implements Callable<Boolean> {
             throws IllegalArgumentException, IntegrationException {
         List<ProjectVersionView> projectVersionItems = new ArrayList<>();
         for (HubProjectVersion hubProjectVersion : hubProjectVersions) {
-            String projectName = hubProjectVersion.getHubProject();
-            String projectVersion = hubProjectVersion.getHubProjectVersion();
-
-            // Get the project version
-            final ProjectVersionView projectVersionItem = hubServices.getProjectVersion(projectName, projectVersion);
+            // Get the project version, by its pinned URL or by name
+            final ProjectVersionView projectVersionItem = hubServices.getProjectVersion(hubProjectVersion);
             projectVersionItems.add(projectVersionItem);
             Date bomUpdatedValueAt = hubServices.getBomLastUpdatedAt(projectVersionItem);
 
@@ -185,17 +362,15 @@ public class BlackDuckFortifyPushThread implements Callable<Boolean> {
             throws IllegalArgumentException, IntegrationException {
         int index = 0;
         List<Vulnerability> mergedVulnerabilities = new ArrayList<>();
+        // The rows of the project versions of the group repeat the same values, share them in a single pool
+        final VulnerabilityStringPool stringPool = new VulnerabilityStringPool();
 
         for (HubProjectVersion hubProjectVersion : hubProjectVersions) {
 
-            // Get the Vulnerability information
-            final List<VulnerableComponentView> vulnerableComponentViews = hubServices.getVulnerabilityComponentViews(projectVersionItems.get(index));
+            // Get the Vulnerability information as CSV Vulnerability objects
+            List<Vulnerability> vulnerabilities = getVulnerabilities(hubProjectVersion, projectVersionItems.get(index), stringPool);
             index++;
 
-            // Convert the Hub Vulnerability component view to CSV Vulnerability object
-            List<Vulnerability> vulnerabilities = VulnerabilityUtil.transformMapping(vulnerableComponentViews, hubProjectVersion.getHubProject(),
-                    hubProjectVersion.getHubProjectVersion(), maxBomUpdatedDate, propertyConstants);
-
             // Add the vulnerabilities to the main list
             mergedVulnerabilities.addAll(vulnerabilities);
         }
@@ -203,41 +378,119 @@ public class BlackDuckFortifyPushThread implements Callable<Boolean> {
     }
 
     /**
-     * Get the last successful job run time of the job by reading the batch_job_status.txt file
+     * Iterate the hub project versions and add the transformed vulnerabilities of each Hub project version to the
+     * external deduplicator, so that only one Hub project version is held in memory at a time
+     *
+     * @param hubProjectVersions
+     * @param projectVersionItems
+     * @param deduplicator
+     * @throws IntegrationException
+     * @throws IOException
+     */
+    private void mergeVulnerabilities(final List<HubProjectVersion> hubProjectVersions, final List<ProjectVersionView> projectVersionItems,
+            final ExternalVulnerabilityDeduplicator deduplicator) throws IntegrationException, IOException {
+        int index = 0;
+        for (HubProjectVersion hubProjectVersion : hubProjectVersions) {
+            // The String pool is not shared between the versions, it would hold the values of the whole group
+            deduplicator.addAll(getVulnerabilities(hubProjectVersion, projectVersionItems.get(index), new VulnerabilityStringPool()));
+            index++;
+        }
+    }
+
+    /**
+     * Get the CSV fragment of each Hub project version, rendering the vulnerabilities of the versions that have no
+     * valid fragment, and assemble them in the CSV file. The duplicates are removed when there is more than one Hub
+     * project version
      *
+     * @param csvFragmentCache
+     * @param hubProjectVersions
+     * @param projectVersionItems
      * @param fileName
-     * @return
+     * @return the number of rows of the CSV, the file is not written when there is no row
+     * @throws IntegrationException
      * @throws IOException
-     * @throws DateTimeParseException
      */
-    private Date getLastSuccessfulJobRunTime(String fileName) throws IOException, DateTimeParseException {
-        BufferedReader br = null;
-        FileReader fr = null;
+    private long writeFragments(final CsvFragmentCache csvFragmentCache, final List<HubProjectVersion> hubProjectVersions,
+            final List<ProjectVersionView> projectVersionItems, final String fileName) throws IntegrationException, IOException {
+        final List<CsvFragmentCache.Fragment> fragments = new ArrayList<>();
         try {
-            fr = new FileReader(fileName);
-            br = new BufferedReader(fr);
-            String sCurrentLine;
-            br = new BufferedReader(new FileReader(fileName));
-            while ((sCurrentLine = br.readLine()) != null) {
-                final LocalDateTime localDateTime = LocalDateTime.parse(sCurrentLine, DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss.SSS"));
-                return Date.from(localDateTime.atZone(ZoneId.systemDefault()).toInstant());
+            int index = 0;
+            for (HubProjectVersion hubProjectVersion : hubProjectVersions) {
+                final ProjectVersionView projectVersionItem = projectVersionItems.get(index);
+                index++;
+                final String projectVersionUrl = hubServices.getProjectVersionUrl(projectVersionItem);
+                final Date bomLastUpdatedAt = hubServices.getBomLastUpdatedAt(projectVersionItem);
+                CsvFragmentCache.Fragment fragment = csvFragmentCache.get(projectVersionUrl, bomLastUpdatedAt, hubProjectVersion.getHubProject(),
+                        hubProjectVersion.getHubProjectVersion());
+                if (fragment == null) {
+                    // The String pool is not shared between the versions, the rows are rendered one version at a time
+                    fragment = csvFragmentCache.put(projectVersionUrl, bomLastUpdatedAt, hubProjectVersion.getHubProject(),
+                            hubProjectVersion.getHubProjectVersion(), getVulnerabilities(hubProjectVersion, projectVersionItem, new VulnerabilityStringPool()));
+                } else {
+                    logger.info("Read " + fragment.getRowCount() + " CSV rows of " + hubProjectVersion + " from the fragment");
+                }
+                fragments.add(fragment);
             }
-        } catch (IOException e) {
-            logger.error(e.getMessage(), e);
-            throw new IOException("Unable to find the batch_job_status.txt file", e);
-        } catch (DateTimeParseException e) {
-            logger.error(e.getMessage(), e);
-            throw new DateTimeParseException("Error while parsing the date. Please make sure date time format is yyyy/MM/dd HH:mm:ss.SSS", e.getParsedString(),
-                    e.getErrorIndex(), e);
+            return csvFragmentCache.assemble(fragments, maxBomUpdatedDate, hubProjectVersions.size() > 1, new File(fileName));
         } finally {
-            if (br != null) {
-                br.close();
-            }
-            if (fr != null) {
-                fr.close();
+            for (CsvFragmentCache.Fragment fragment : fragments) {
+                fragment.close();
             }
         }
-        return null;
+    }
+
+    /**
+     * Get the vulnerabilities of the Hub project version as CSV Vulnerability view. They are read from the snapshot of
+     * the version when its BOM is not updated since the snapshot, else they are downloaded from the Hub and stored in a
+     * new snapshot
+     *
+     * @param hubProjectVersion
+     * @param projectVersionItem
+     * @param stringPool
+     * @return
+     * @throws IntegrationException
+     */
+    private List<Vulnerability> getVulnerabilities(final HubProjectVersion hubProjectVersion, final ProjectVersionView projectVersionItem,
+            final VulnerabilityStringPool stringPool) throws IntegrationException {
+        final VulnerabilitySnapshotStore snapshotStore = hubServices.getVulnerabilitySnapshotStore();
+        if (snapshotStore == null) {
+            return downloadVulnerabilities(hubProjectVersion, projectVersionItem, stringPool);
+        }
+        final String projectVersionUrl = hubServices.getProjectVersionUrl(projectVersionItem);
+        // The last BOM updated date is read once per run, it is already known here
+        final Date bomLastUpdatedAt = hubServices.getBomLastUpdatedAt(projectVersionItem);
+        final List<Vulnerability> snapshot = snapshotStore.get(projectVersionUrl, bomLastUpdatedAt, stringPool);
+        if (snapshot != null) {
+            logger.info("Read " + snapshot.size() + " vulnerabilities of " + hubProjectVersion + " from the snapshot");
+            // The snapshot may be stored by another group, with other names and another scan date
+            snapshot.replaceAll(vulnerability -> vulnerability.withProject(stringPool.get(hubProjectVersion.getHubProject()),
+                    stringPool.get(hubProjectVersion.getHubProjectVersion()), maxBomUpdatedDate));
+            return snapshot;
+        }
+        final List<Vulnerability> vulnerabilities = downloadVulnerabilities(hubProjectVersion, projectVersionItem, stringPool);
+        snapshotStore.put(projectVersionUrl, bomLastUpdatedAt, vulnerabilities);
+        return vulnerabilities;
+    }
+
+    /**
+     * Download the vulnerabilities of the Hub project version as CSV Vulnerability view. By default the Hub response is
+     * decoded straight into the CSV Vulnerability view, else the Hub Component views are transformed
+     *
+     * @param hubProjectVersion
+     * @param projectVersionItem
+     * @param stringPool
+     * @return
+     * @throws IntegrationException
+     */
+    private List<Vulnerability> downloadVulnerabilities(final HubProjectVersion hubProjectVersion, final ProjectVersionView projectVersionItem,
+            final VulnerabilityStringPool stringPool) throws IntegrationException {
+        if (propertyConstants.isHubVulnerabilityStreamingDecoder()) {
+            return hubServices.getVulnerabilities(projectVersionItem, hubProjectVersion.getHubProject(), hubProjectVersion.getHubProjectVersion(),
+                    maxBomUpdatedDate, stringPool);
+        }
+        final List<VulnerableComponentView> vulnerableComponentViews = hubServices.getVulnerabilityComponentViews(projectVersionItem);
+        return VulnerabilityUtil.transformMapping(vulnerableComponentViews, hubProjectVersion.getHubProject(),
+                hubProjectVersion.getHubProjectVersion(), maxBomUpdatedDate, propertyConstants, stringPool);
     }
 
     /**
@@ -253,28 +506,30 @@ public class BlackDuckFortifyPushThread implements Callable<Boolean> {
     }
 
     /**
-     * Upload the CSV to Fortify
+     * Check if the lease of the group is lost before its upload, another instance processes the group then
      *
-     * @param token
-     * @param fileName
+     * @param groupIndex
+     * @return true if the CSV must not be uploaded to the Fortify application version of the group
+     */
+    private boolean isLeaseLost(final int groupIndex) {
+        return leases != null && leases.get(groupIndex).isLost();
+    }
+
+    /**
+     * Upload the CSV to Fortify with a new file token
+     *
+     * @param file
      * @param fortifyApplicationId
+     * @return true if the upload is submitted successfully
      * @throws IOException
      * @throws IntegrationException
      */
-    private void uploadCSV(String token, String fileName, int fortifyApplicationId) throws IOException, IntegrationException {
-        File file = new File(fileName);
-        logger.debug("Uploading " + file.getName() + " to fortify");
+    private boolean uploadCSV(File file, int fortifyApplicationId) throws IOException, IntegrationException {
+        // Get the file token for upload
+        final String token = getFileToken();
+        logger.debug("Uploading " + file.getName() + " to fortify application version::" + fortifyApplicationId);
         // Call Fortify upload
-        final boolean response = fortifyUploadApi.uploadVulnerabilityByProjectVersion(token, fortifyApplicationId, file);
-
-        // Check if the upload is submitted successfully, if not don't delete the CSV files. It can be used for
-        // debugging
-        if (response) {
-            if (file.exists()) {
-                file.delete();
-            }
-            logger.info(file.getName() + " File uploaded successfully");
-        }
+        return fortifyUploadApi.uploadVulnerabilityByProjectVersion(token, fortifyApplicationId, file);
     }
 
 }
@@ -30,15 +30,29 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
+import java.time.format.DateTimeParseException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.apache.http.pool.PoolStats;
 import org.apache.log4j.Logger;
 import org.springframework.batch.core.ExitStatus;
 import org.springframework.batch.core.StepContribution;
@@ -48,10 +62,19 @@ import org.springframework.batch.core.scope.context.ChunkContext;
 import org.springframework.batch.core.step.tasklet.Tasklet;
 import org.springframework.batch.repeat.RepeatStatus;
 
+import com.blackducksoftware.integration.exception.IntegrationException;
 import com.blackducksoftware.integration.fortify.batch.model.BlackDuckFortifyMapperGroup;
+import com.blackducksoftware.integration.fortify.batch.model.HubProjectVersion;
+import com.blackducksoftware.integration.fortify.batch.util.BatchJobStatusUtil;
+import com.blackducksoftware.integration.fortify.batch.util.CsvFragmentCache;
+import com.blackducksoftware.integration.fortify.batch.util.HubApiTokenAuthenticator;
+import com.blackducksoftware.integration.fortify.batch.util.HubResponseCache;
+import com.blackducksoftware.integration.fortify.batch.util.GroupLeaseManager;
 import com.blackducksoftware.integration.fortify.batch.util.HubServices;
 import com.blackducksoftware.integration.fortify.batch.util.MappingParser;
 import com.blackducksoftware.integration.fortify.batch.util.PropertyConstants;
+import com.blackducksoftware.integration.fortify.batch.util.RestConnectionHelper;
+import com.blackducksoftware.integration.fortify.batch.util.VulnerabilitySnapshotStore;
 import com.blackducksoftware.integration.fortify.service.FortifyFileTokenApi;
 import com.blackducksoftware.integration.fortify.service.FortifyUploadApi;
 
@@ -80,35 +103,92 @@ public class Initializer implements Tasklet, StepExecutionListener {
 
     private final PropertyConstants propertyConstants;
 
+    // Maximum number of requests waiting for a Hub connection seen in the run
+    private volatile int maxPendingConnections;
+
+    // Held by a run, the groups of a reloaded mapping are not processed while a run is in progress
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+
+    // Leases of the groups shared with the other instances, null when the groups are not leased
+    private final GroupLeaseManager groupLeaseManager;
+
+    // Processing time of each group in the last run, in milliseconds
+    private final List<Long> groupDurations = Collections.synchronizedList(new ArrayList<>());
+
     public Initializer(final MappingParser mappingParser, final FortifyFileTokenApi fortifyFileTokenApi,
             final FortifyUploadApi fortifyUploadApi, final HubServices hubServices, final PropertyConstants propertyConstants) {
+        this(mappingParser, fortifyFileTokenApi, fortifyUploadApi, hubServices, propertyConstants, null);
+    }
+
+    public Initializer(final MappingParser mappingParser, final FortifyFileTokenApi fortifyFileTokenApi,
+            final FortifyUploadApi fortifyUploadApi, final HubServices hubServices, final PropertyConstants propertyConstants,
+            final GroupLeaseManager groupLeaseManager) {
         this.mappingParser = mappingParser;
         this.fortifyFileTokenApi = fortifyFileTokenApi;
         this.fortifyUploadApi = fortifyUploadApi;
         this.hubServices = hubServices;
         this.propertyConstants = propertyConstants;
+        this.groupLeaseManager = groupLeaseManager;
     }
 
     @Override
     public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        dispatchLock.lock();
+        try {
+            return executeRun();
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    private RepeatStatus executeRun() throws Exception {
         logger.info("Started MappingParserTask");
         // Delete the files that are error out in previous run
         Arrays.stream(new File(propertyConstants.getReportDir()).listFiles()).forEach(File::delete);
         logger.debug("Found Mapping file:: " + propertyConstants.getMappingJsonPath());
 
+        // The Hub project versions and their last BOM updated dates are read again in each run, the versions listed by
+        // the discovery of the mapping rules are reused by the run
+        hubServices.clearRunCaches();
+
         // Create the mapping between Hub and Fortify
         final List<BlackDuckFortifyMapperGroup> groupMap = mappingParser.createMapping(propertyConstants.getMappingJsonPath());
         logger.info("blackDuckFortifyMappers :" + groupMap.toString());
 
+        // Get the groups that are changed since the last successful run, null when every group has to be checked
+        final Set<BlackDuckFortifyMapperGroup> changedGroups = getChangedGroups(groupMap);
+
         // Create the threads for parallel processing
+        groupDurations.clear();
+        final long startTime = System.nanoTime();
         ExecutorService exec = Executors.newFixedThreadPool(propertyConstants.getMaximumThreadSize());
-        List<Future<?>> futures = new ArrayList<>(groupMap.size());
-        for (BlackDuckFortifyMapperGroup blackDuckFortifyMapperGroup : groupMap) {
-            futures.add(exec.submit(new BlackDuckFortifyPushThread(blackDuckFortifyMapperGroup,
-                    hubServices, fortifyFileTokenApi, fortifyUploadApi, propertyConstants)));
-        }
-        for (Future<?> f : futures) {
-            f.get(); // wait for a processor to complete
+        final ScheduledExecutorService poolStatsSampler = startConnectionPoolStatsSampler();
+        try {
+            dispatch(exec, getSharedGroups(groupMap, changedGroups), changedGroups != null);
+        } finally {
+            exec.shutdown();
+            if (poolStatsSampler != null) {
+                poolStatsSampler.shutdownNow();
+            }
+            logRunSummary(System.nanoTime() - startTime);
+            logConnectionPoolStats("at the end of the run");
+            hubServices.saveProjectVersionIndex();
+            final HubResponseCache hubResponseCache = RestConnectionHelper.getHubResponseCache();
+            if (hubResponseCache != null) {
+                hubResponseCache.logStatistics();
+            }
+            final VulnerabilitySnapshotStore vulnerabilitySnapshotStore = hubServices.getVulnerabilitySnapshotStore();
+            if (vulnerabilitySnapshotStore != null) {
+                vulnerabilitySnapshotStore.logStatistics();
+            }
+            final CsvFragmentCache csvFragmentCache = hubServices.getCsvFragmentCache();
+            if (csvFragmentCache != null) {
+                csvFragmentCache.logStatistics();
+            }
+            final HubApiTokenAuthenticator hubApiTokenAuthenticator = RestConnectionHelper.getHubApiTokenAuthenticator();
+            if (hubApiTokenAuthenticator != null) {
+                hubApiTokenAuthenticator.logStatistics();
+            }
         }
 
         jobStatus = true;
@@ -116,6 +196,272 @@ public class Initializer implements Tasklet, StepExecutionListener {
         return RepeatStatus.FINISHED;
     }
 
+    /**
+     * Process the groups in the executor and wait for them. The groups of a failed thread are found again in the
+     * mapping by the next run, their Fortify application version may not exist anymore
+     *
+     * @param exec
+     * @param sharedGroups
+     *            groups gathered by Hub project versions
+     * @param changeNotified
+     *            true if the groups are known to be changed, whatever the BOM updated date
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    private void dispatch(final ExecutorService exec, final Collection<List<BlackDuckFortifyMapperGroup>> sharedGroups, final boolean changeNotified)
+            throws InterruptedException, ExecutionException {
+        final List<List<BlackDuckFortifyMapperGroup>> dispatchedGroups = new ArrayList<>(sharedGroups);
+        List<Future<?>> futures = new ArrayList<>(dispatchedGroups.size());
+        for (List<BlackDuckFortifyMapperGroup> blackDuckFortifyMapperGroups : dispatchedGroups) {
+            futures.add(exec.submit(() -> {
+                final List<GroupLeaseManager.Lease> leases = new ArrayList<>();
+                try {
+                    // The thread starts once it holds the leases, the groups leased by another instance are skipped
+                    final List<BlackDuckFortifyMapperGroup> leasedGroups = acquireLeases(blackDuckFortifyMapperGroups, leases);
+                    if (leasedGroups.isEmpty()) {
+                        return true;
+                    }
+                    final BlackDuckFortifyPushThread pushThread = new BlackDuckFortifyPushThread(leasedGroups,
+                            hubServices, fortifyFileTokenApi, fortifyUploadApi, propertyConstants, changeNotified,
+                            groupLeaseManager == null ? null : leases);
+                    final long groupStartTime = System.nanoTime();
+                    final Boolean processed;
+                    try {
+                        processed = pushThread.call();
+                    } finally {
+                        groupDurations.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - groupStartTime));
+                    }
+                    // The processed groups stay leased until the leases expire, the other instances don't process them again
+                    leases.forEach(GroupLeaseManager.Lease::complete);
+                    return processed;
+                } finally {
+                    // Released only when the group failed, a completed or lost lease is not released
+                    leases.forEach(GroupLeaseManager.Lease::close);
+                }
+            }));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get(); // wait for a processor to complete
+            } catch (ExecutionException e) {
+                dispatchedGroups.get(i).forEach(mappingParser::forgetMapping);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Acquire the leases of the groups of a thread
+     *
+     * @param blackDuckFortifyMapperGroups
+     * @param leases
+     *            receives the acquired leases
+     * @return the groups whose lease is acquired, all the groups when they are not leased
+     * @throws IOException
+     */
+    private List<BlackDuckFortifyMapperGroup> acquireLeases(final List<BlackDuckFortifyMapperGroup> blackDuckFortifyMapperGroups,
+            final List<GroupLeaseManager.Lease> leases) throws IOException {
+        if (groupLeaseManager == null) {
+            return blackDuckFortifyMapperGroups;
+        }
+        final List<BlackDuckFortifyMapperGroup> leasedGroups = new ArrayList<>(blackDuckFortifyMapperGroups.size());
+        for (BlackDuckFortifyMapperGroup blackDuckFortifyMapperGroup : blackDuckFortifyMapperGroups) {
+            final GroupLeaseManager.Lease lease = groupLeaseManager.tryAcquire(blackDuckFortifyMapperGroup.getFortifyApplication(),
+                    blackDuckFortifyMapperGroup.getFortifyApplicationVersion());
+            if (lease == null) {
+                logger.info("Skipping the group processed by another instance::" + blackDuckFortifyMapperGroup.getFortifyApplication() + "/"
+                        + blackDuckFortifyMapperGroup.getFortifyApplicationVersion());
+                continue;
+            }
+            leases.add(lease);
+            leasedGroups.add(blackDuckFortifyMapperGroup);
+        }
+        return leasedGroups;
+    }
+
+    /**
+     * Read the mapping file again after it is changed, only the added or changed groups are resolved in Fortify. They
+     * are processed at once when it is enabled and no run is in progress, else by the next run
+     */
+    public void reloadMapping() {
+        final List<BlackDuckFortifyMapperGroup> changedGroups;
+        try {
+            changedGroups = mappingParser.reloadMapping(propertyConstants.getMappingJsonPath());
+        } catch (IOException | IntegrationException | RuntimeException e) {
+            // The file may be saved again, it is read once more then
+            logger.error("Unable to reload the mapping file " + propertyConstants.getMappingJsonPath(), e);
+            return;
+        }
+        logger.info("Reloaded the mapping file, added or changed groups::" + changedGroups.size());
+        if (changedGroups.isEmpty() || !propertyConstants.isMappingWatchDispatch()) {
+            return;
+        }
+        if (!dispatchLock.tryLock()) {
+            logger.info("A run is in progress, the added or changed groups are processed by the next run");
+            return;
+        }
+        ExecutorService exec = Executors.newFixedThreadPool(propertyConstants.getMaximumThreadSize());
+        try {
+            // The Hub project versions and their last BOM updated dates are read again
+            hubServices.clearRunCaches();
+            dispatch(exec, getSharedGroups(changedGroups, null), true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Error while processing the added or changed groups", e.getCause());
+        } finally {
+            exec.shutdown();
+            dispatchLock.unlock();
+        }
+    }
+
+    /**
+     * Get the groups with at least one Hub project version that is referenced by the Hub notifications since the last
+     * successful run. Every group has to be checked when the change detection is disabled, when there is no successful
+     * run yet, when the mapping file is changed since the last successful run or when the notifications can't be read.
+     *
+     * @param groupMap
+     * @return the changed groups, or null if every group has to be checked
+     * @throws DateTimeParseException
+     * @throws IOException
+     */
+    private Set<BlackDuckFortifyMapperGroup> getChangedGroups(final List<BlackDuckFortifyMapperGroup> groupMap) throws DateTimeParseException, IOException {
+        if (!propertyConstants.isHubNotificationChangeDetection() || !propertyConstants.isBatchJobStatusCheck()) {
+            return null;
+        }
+        final Date lastSuccessfulJobRunTime = BatchJobStatusUtil.getLastSuccessfulJobRunTime(propertyConstants.getBatchJobStatusFilePath());
+        if (lastSuccessfulJobRunTime == null) {
+            return null;
+        }
+        if (new File(propertyConstants.getMappingJsonPath()).lastModified() > lastSuccessfulJobRunTime.getTime()) {
+            logger.info("Mapping file is changed since the last successful run, checking all the groups");
+            return null;
+        }
+        final Set<HubProjectVersion> notifiedProjectVersions;
+        try {
+            notifiedProjectVersions = hubServices.getNotifiedProjectVersions(lastSuccessfulJobRunTime, new Date(),
+                    propertyConstants.getHubNotificationTypes());
+        } catch (IntegrationException e) {
+            logger.warn("Unable to read the Hub notifications, checking all the groups", e);
+            return null;
+        }
+        final Set<BlackDuckFortifyMapperGroup> changedGroups = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (BlackDuckFortifyMapperGroup blackDuckFortifyMapperGroup : groupMap) {
+            for (HubProjectVersion hubProjectVersion : blackDuckFortifyMapperGroup.getHubProjectVersion()) {
+                if (notifiedProjectVersions.contains(hubProjectVersion)) {
+                    changedGroups.add(blackDuckFortifyMapperGroup);
+                    break;
+                }
+            }
+        }
+        logger.info("Dispatching " + changedGroups.size() + " of " + groupMap.size() + " groups changed since " + lastSuccessfulJobRunTime);
+        return changedGroups;
+    }
+
+    /**
+     * Gather the groups to dispatch that are fed by the same Hub project versions, whatever their order in the mapping,
+     * so that their CSV is built once and uploaded to each of their Fortify application versions
+     *
+     * @param groupMap
+     * @param changedGroups
+     *            groups to dispatch, or null for all the groups
+     * @return the groups to dispatch, gathered by Hub project versions
+     */
+    static Collection<List<BlackDuckFortifyMapperGroup>> getSharedGroups(final List<BlackDuckFortifyMapperGroup> groupMap,
+            final Set<BlackDuckFortifyMapperGroup> changedGroups) {
+        // HubProjectVersion equality ignores the URL, the groups share a CSV only if their versions have the same URLs
+        final Comparator<String> nullsFirst = Comparator.nullsFirst(Comparator.naturalOrder());
+        final Comparator<List<String>> order = Comparator.comparing((List<String> key) -> key.get(0), nullsFirst)
+                .thenComparing(key -> key.get(1), nullsFirst).thenComparing(key -> key.get(2), nullsFirst);
+        final Map<List<List<String>>, List<BlackDuckFortifyMapperGroup>> sharedGroups = new LinkedHashMap<>();
+        for (BlackDuckFortifyMapperGroup blackDuckFortifyMapperGroup : groupMap) {
+            if (changedGroups != null && !changedGroups.contains(blackDuckFortifyMapperGroup)) {
+                continue;
+            }
+            final List<List<String>> hubProjectVersions = new ArrayList<>();
+            for (HubProjectVersion hubProjectVersion : blackDuckFortifyMapperGroup.getHubProjectVersion()) {
+                hubProjectVersions.add(Arrays.asList(hubProjectVersion.getHubProject(), hubProjectVersion.getHubProjectVersion(),
+                        hubProjectVersion.getHubProjectVersionUrl()));
+            }
+            hubProjectVersions.sort(order);
+            sharedGroups.computeIfAbsent(hubProjectVersions, key -> new ArrayList<>()).add(blackDuckFortifyMapperGroup);
+        }
+        for (List<BlackDuckFortifyMapperGroup> blackDuckFortifyMapperGroups : sharedGroups.values()) {
+            if (blackDuckFortifyMapperGroups.size() > 1) {
+                logger.info("Sharing the CSV of " + blackDuckFortifyMapperGroups.get(0).getHubProjectVersion() + " between "
+                        + blackDuckFortifyMapperGroups.size() + " Fortify application versions");
+            }
+        }
+        return sharedGroups.values();
+    }
+
+    /**
+     * Log the Hub connection pool statistics at a fixed interval while the groups are processed
+     *
+     * @return the sampler, or null if it is disabled
+     */
+    private ScheduledExecutorService startConnectionPoolStatsSampler() {
+        maxPendingConnections = 0;
+        final long interval = propertyConstants.getHubConnectionPoolStatsIntervalSeconds();
+        if (interval <= 0) {
+            return null;
+        }
+        final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "hub-connection-pool-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(() -> logConnectionPoolStats("during the run"), interval, interval, TimeUnit.SECONDS);
+        return sampler;
+    }
+
+    /**
+     * Log the leased, pending and available connections of the Hub connection pool. Pending connections are requests
+     * waiting for a connection of the pool.
+     *
+     * @param moment
+     */
+    private void logConnectionPoolStats(final String moment) {
+        final PoolStats poolStats = RestConnectionHelper.getConnectionPoolStats();
+        if (poolStats == null) {
+            return;
+        }
+        maxPendingConnections = Math.max(maxPendingConnections, poolStats.getPending());
+        logger.info("Hub connection pool " + moment + " leased::" + poolStats.getLeased() + ", pending::" + poolStats.getPending() + ", available::"
+                + poolStats.getAvailable() + ", max::" + poolStats.getMax() + ", max pending in the run::" + maxPendingConnections);
+    }
+
+    /**
+     * Log the number of processed groups, the groups per minute and the 99th percentile of the group processing time
+     *
+     * @param elapsedNanos
+     */
+    private void logRunSummary(long elapsedNanos) {
+        final List<Long> durations;
+        synchronized (groupDurations) {
+            durations = new ArrayList<>(groupDurations);
+        }
+        if (durations.isEmpty()) {
+            return;
+        }
+        Collections.sort(durations);
+        final long p99 = durations.get((int) Math.ceil(durations.size() * 0.99) - 1);
+        final double groupsPerMinute = durations.size() * 60000d / Math.max(1, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        logger.info("Processed " + durations.size() + " groups in " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms, groups per minute::"
+                + String.format("%.1f", groupsPerMinute) + ", p99 group latency::" + p99 + " ms");
+    }
+
+    /**
+     * Get the processing time of each group of the last run in milliseconds
+     *
+     * @return
+     */
+    public List<Long> getGroupDurations() {
+        synchronized (groupDurations) {
+            return new ArrayList<>(groupDurations);
+        }
+    }
+
     /**
      * This method will be executed before this step is started and it will store the start job run time
      */
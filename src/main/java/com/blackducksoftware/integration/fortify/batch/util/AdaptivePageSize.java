@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+/**
+ * This class will be used to adapt the page size of the Hub list requests to the observed responses. The page size
+ * that would reach the target latency and the target response size is estimated from each page, and the page size
+ * moves half way to it, so that a single slow page does not collapse the page size.
+ *
+ * @author smanikantan
+ *
+ */
+public final class AdaptivePageSize {
+
+    private final int minimumPageSize;
+
+    private final int maximumPageSize;
+
+    private final long targetLatencyMillis;
+
+    private final long targetBytes;
+
+    private int pageSize;
+
+    /**
+     * @param initialPageSize
+     * @param minimumPageSize
+     * @param maximumPageSize
+     * @param targetLatencyMillis
+     * @param targetBytes
+     */
+    public AdaptivePageSize(int initialPageSize, int minimumPageSize, int maximumPageSize, long targetLatencyMillis, long targetBytes) {
+        this.minimumPageSize = minimumPageSize;
+        this.maximumPageSize = Math.max(minimumPageSize, maximumPageSize);
+        this.targetLatencyMillis = targetLatencyMillis;
+        this.targetBytes = targetBytes;
+        this.pageSize = clamp(initialPageSize);
+    }
+
+    /**
+     * Get the page size of the next request
+     *
+     * @return
+     */
+    public synchronized int get() {
+        return pageSize;
+    }
+
+    /**
+     * Record the latency and the size of a page
+     *
+     * @param itemCount
+     * @param latencyMillis
+     * @param bytes
+     */
+    public synchronized void record(int itemCount, long latencyMillis, long bytes) {
+        if (itemCount <= 0) {
+            return;
+        }
+        final double pageSizeForLatency = latencyMillis <= 0 ? maximumPageSize : itemCount * (double) targetLatencyMillis / latencyMillis;
+        final double pageSizeForBytes = bytes <= 0 ? maximumPageSize : itemCount * (double) targetBytes / bytes;
+        final int targetPageSize = clamp((long) Math.min(pageSizeForLatency, pageSizeForBytes));
+        // Round towards the target, so that the page size reaches it
+        final double nextPageSize = (pageSize + targetPageSize) / 2d;
+        pageSize = clamp((long) (targetPageSize < pageSize ? Math.floor(nextPageSize) : Math.ceil(nextPageSize)));
+    }
+
+    private int clamp(long value) {
+        return (int) Math.max(minimumPageSize, Math.min(maximumPageSize, value));
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This class will be used to read the batch_job_status.txt file, that has the start time of the last successful run of
+ * the job
+ *
+ * @author smanikantan
+ *
+ */
+public final class BatchJobStatusUtil {
+
+    private final static Logger logger = Logger.getLogger(BatchJobStatusUtil.class);
+
+    /**
+     * Get the last successful job run time of the job by reading the batch_job_status.txt file
+     *
+     * @param fileName
+     * @return
+     * @throws IOException
+     * @throws DateTimeParseException
+     */
+    public static Date getLastSuccessfulJobRunTime(String fileName) throws IOException, DateTimeParseException {
+        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
+            String sCurrentLine;
+            while ((sCurrentLine = br.readLine()) != null) {
+                final LocalDateTime localDateTime = LocalDateTime.parse(sCurrentLine, DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss.SSS"));
+                return Date.from(localDateTime.atZone(ZoneId.systemDefault()).toInstant());
+            }
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+            throw new IOException("Unable to find the batch_job_status.txt file", e);
+        } catch (DateTimeParseException e) {
+            logger.error(e.getMessage(), e);
+            throw new DateTimeParseException("Error while parsing the date. Please make sure date time format is yyyy/MM/dd HH:mm:ss.SSS", e.getParsedString(),
+                    e.getErrorIndex(), e);
+        }
+        return null;
+    }
+}
@@ -36,6 +36,7 @@ import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 
@@ -59,17 +60,64 @@ public final class CSVUtils {
      * @throws UnsupportedEncodingException
      * @throws IOException
      */
-    @SuppressWarnings("resource")
     public static void writeToCSV(List<Vulnerability> vulnerabilities, String fileName, char delimiter)
             throws JsonGenerationException, JsonMappingException, FileNotFoundException, UnsupportedEncodingException, IOException {
+        OutputStreamWriter writerOutputStream = createWriter(fileName);
+        // write to CSV file
+        try {
+            createObjectWriter(delimiter).writeValue(writerOutputStream, vulnerabilities);
+        } catch (IOException e) {
+            throw new IOException("Error while rendering the vulnerabilities in CSV file::" + fileName, e);
+        }
+    }
+
+    /**
+     * It will be used to render the unique vulnerabilities of the external deduplicator in CSV, the rows are streamed
+     * to the file one by one
+     *
+     * @param deduplicator
+     * @param fileName
+     * @param delimiter
+     * @throws FileNotFoundException
+     * @throws UnsupportedEncodingException
+     * @throws IOException
+     */
+    public static void writeToCSV(ExternalVulnerabilityDeduplicator deduplicator, String fileName, char delimiter)
+            throws FileNotFoundException, UnsupportedEncodingException, IOException {
+        OutputStreamWriter writerOutputStream = createWriter(fileName);
+        // write to CSV file
+        try (SequenceWriter sequenceWriter = createObjectWriter(delimiter).writeValues(writerOutputStream)) {
+            deduplicator.writeTo(sequenceWriter);
+        } catch (IOException e) {
+            throw new IOException("Error while rendering the vulnerabilities in CSV file::" + fileName, e);
+        }
+    }
+
+    private static ObjectWriter createObjectWriter(char delimiter) {
+        return createObjectWriter(delimiter, true);
+    }
+
+    /**
+     * Create the writer of the vulnerabilities in CSV
+     *
+     * @param delimiter
+     * @param header
+     *            true to write the header before the first vulnerability
+     * @return
+     */
+    static ObjectWriter createObjectWriter(char delimiter, boolean header) {
         // create mapper and schema
         CsvMapper mapper = new CsvMapper();
-        // Create the schema with the header
-        CsvSchema schema = mapper.schemaFor(Vulnerability.class).withHeader();
+        // Create the schema with or without the header
+        CsvSchema schema = header ? mapper.schemaFor(Vulnerability.class).withHeader() : mapper.schemaFor(Vulnerability.class).withoutHeader();
         schema = schema.withColumnSeparator(delimiter);
 
         // output writer
-        ObjectWriter objectWriter = mapper.writer(schema);
+        return mapper.writer(schema);
+    }
+
+    @SuppressWarnings("resource")
+    private static OutputStreamWriter createWriter(String fileName) throws UnsupportedEncodingException {
         File file = new File(fileName);
         FileOutputStream fileOutputStream;
         try {
@@ -78,18 +126,11 @@ public final class CSVUtils {
             throw new FileSystemNotFoundException(fileName + " CSV file is not created successfully");
         }
         BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(fileOutputStream, 1024);
-        OutputStreamWriter writerOutputStream;
         try {
-            writerOutputStream = new OutputStreamWriter(bufferedOutputStream, "UTF-8");
+            return new OutputStreamWriter(bufferedOutputStream, "UTF-8");
         } catch (UnsupportedEncodingException e) {
             throw new UnsupportedEncodingException(e.getMessage());
         }
-        // write to CSV file
-        try {
-            objectWriter.writeValue(writerOutputStream, vulnerabilities);
-        } catch (IOException e) {
-            throw new IOException("Error while rendering the vulnerabilities in CSV file::" + fileName, e);
-        }
     }
 
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * This class will be used to revalidate the Hub GET requests with the cached responses. The request interceptor reads
+ * the cached response and adds its If-None-Match and If-Modified-Since headers, and the response interceptor replaces
+ * a 304 Not Modified by the cached response, so that the Hub services read the body as if it was downloaded. The
+ * validators are only sent when the body is read, a 304 always has a body. The responses with an ETag or a
+ * Last-Modified header are stored in the cache when they are not larger than the maximum entry size, the larger ones
+ * are streamed.
+ *
+ * @author smanikantan
+ *
+ */
+public final class ConditionalGetInterceptor implements HttpRequestInterceptor, HttpResponseInterceptor {
+
+    private static final String CACHE_KEY_ATTRIBUTE = ConditionalGetInterceptor.class.getName() + ".key";
+
+    private static final String CACHED_RESPONSE_ATTRIBUTE = ConditionalGetInterceptor.class.getName() + ".response";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final HubResponseCache responseCache;
+
+    public ConditionalGetInterceptor(final HubResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public void process(final HttpRequest request, final HttpContext context) throws HttpException, IOException {
+        if (!"GET".equalsIgnoreCase(request.getRequestLine().getMethod())) {
+            return;
+        }
+        final String key = getKey(request);
+        context.setAttribute(CACHE_KEY_ATTRIBUTE, key);
+        // The body is held until the response, the cached entry may be evicted or replaced meanwhile
+        final HubResponseCache.CachedResponse cachedResponse = responseCache.read(key);
+        context.setAttribute(CACHED_RESPONSE_ATTRIBUTE, cachedResponse);
+        if (cachedResponse != null) {
+            if (cachedResponse.getETag() != null) {
+                request.setHeader(HttpHeaders.IF_NONE_MATCH, cachedResponse.getETag());
+            }
+            if (cachedResponse.getLastModified() != null) {
+                request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, cachedResponse.getLastModified());
+            }
+        }
+    }
+
+    @Override
+    public void process(final HttpResponse response, final HttpContext context) throws HttpException, IOException {
+        final String key = (String) context.getAttribute(CACHE_KEY_ATTRIBUTE);
+        if (key == null) {
+            return;
+        }
+        context.removeAttribute(CACHE_KEY_ATTRIBUTE);
+        final HubResponseCache.CachedResponse cachedResponse = (HubResponseCache.CachedResponse) context.getAttribute(CACHED_RESPONSE_ATTRIBUTE);
+        context.removeAttribute(CACHED_RESPONSE_ATTRIBUTE);
+        final int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode == HttpStatus.SC_NOT_MODIFIED && cachedResponse != null) {
+            final byte[] body = cachedResponse.getBody();
+            response.setStatusCode(HttpStatus.SC_OK);
+            response.setReasonPhrase("OK");
+            response.setEntity(new ByteArrayEntity(body, getContentType(cachedResponse.getContentType())));
+            responseCache.recordHit(body.length);
+            return;
+        }
+        if (statusCode != HttpStatus.SC_OK) {
+            return;
+        }
+        responseCache.recordMiss();
+        final String eTag = getHeaderValue(response, HttpHeaders.ETAG);
+        final String lastModified = getHeaderValue(response, HttpHeaders.LAST_MODIFIED);
+        final HttpEntity entity = response.getEntity();
+        if ((eTag == null && lastModified == null) || entity == null) {
+            return;
+        }
+        final long maximumEntryBytes = responseCache.getMaximumEntryBytes();
+        if (entity.getContentLength() > maximumEntryBytes) {
+            return;
+        }
+        // Read the body up to the maximum entry size, a body that fits is stored and given to the Hub services in
+        // memory, a larger one is streamed from the bytes already read
+        final String contentType = entity.getContentType() == null ? null : entity.getContentType().getValue();
+        final InputStream content = entity.getContent();
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final byte[] chunk = new byte[BUFFER_SIZE];
+        boolean complete = false;
+        while (buffer.size() <= maximumEntryBytes) {
+            final int read = content.read(chunk);
+            if (read < 0) {
+                complete = true;
+                break;
+            }
+            buffer.write(chunk, 0, read);
+        }
+        if (!complete) {
+            response.setEntity(new InputStreamEntity(new SequenceInputStream(new ByteArrayInputStream(buffer.toByteArray()), content),
+                    entity.getContentLength(), getContentType(contentType)));
+            return;
+        }
+        content.close();
+        final byte[] body = buffer.toByteArray();
+        response.setEntity(new ByteArrayEntity(body, getContentType(contentType)));
+        responseCache.put(key, eTag, lastModified, contentType, body);
+    }
+
+    private static ContentType getContentType(final String contentType) {
+        return contentType == null ? null : ContentType.parse(contentType);
+    }
+
+    /**
+     * The cache key is the URI and the Accept header, as the representation of the Hub resources depends on the
+     * requested media type
+     *
+     * @param request
+     * @return
+     */
+    private static String getKey(final HttpRequest request) {
+        final HttpRequest originalRequest = request instanceof HttpRequestWrapper ? ((HttpRequestWrapper) request).getOriginal() : request;
+        final Header accept = request.getFirstHeader(HttpHeaders.ACCEPT);
+        return originalRequest.getRequestLine().getUri() + " " + (accept == null ? "" : accept.getValue());
+    }
+
+    private static String getHeaderValue(final HttpResponse response, final String name) {
+        final Header header = response.getFirstHeader(name);
+        return header == null ? null : header.getValue();
+    }
+}
@@ -0,0 +1,732 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
+import com.fasterxml.jackson.databind.SequenceWriter;
+
+/**
+ * This class will be used to store on disk the CSV rows of each Hub project version, so that the CSV of a group is
+ * assembled from the rows of the versions that are not updated without transforming and rendering them again. The
+ * fragments are evicted in the least recently used order when their total size is above the maximum size, and ignored
+ * when they are older than the maximum age.
+ *
+ * A fragment is two files: the CSV rows without header and a key file with the format version, the URL of the Hub
+ * project version, the last BOM updated date, the creation time, the project name and version name of the rows, the
+ * scan date of the rows, the length of the CSV and, for each row, the fingerprint of its unique key, its end offset and
+ * the length of its project name and version name cells.
+ *
+ * @author smanikantan
+ *
+ */
+public final class CsvFragmentCache {
+
+    private final static Logger logger = Logger.getLogger(CsvFragmentCache.class);
+
+    private static final String CSV_SUFFIX = ".csv";
+
+    private static final String KEYS_SUFFIX = ".keys";
+
+    // Changed when the encoding of the key files or the CSV rendering of the vulnerabilities changes
+    private static final int FORMAT_VERSION = 1;
+
+    private static final char DELIMITER = ',';
+
+    private static final byte LINE_SEPARATOR = '\n';
+
+    private static final byte QUOTE = '"';
+
+    private static final int PROJECT_CELLS = 2;
+
+    private static final long TRANSFER_CHUNK = 64L * 1024 * 1024;
+
+    // Header of the CSV and the project name and version name cells of the vulnerabilities present more than once
+    private static byte[] headerBytes;
+
+    private static byte[] multipleProjectsBytes;
+
+    private final File directory;
+
+    private final long maximumBytes;
+
+    private final long maximumAgeMillis;
+
+    // Fragments in the least recently used order, by hash of the Hub project version URL
+    private final FileLruIndex<Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong encodedRows = new AtomicLong();
+
+    private final AtomicLong copiedRows = new AtomicLong();
+
+    private final AtomicLong rewrittenRows = new AtomicLong();
+
+    /**
+     * Create the cache and load the fragments that are stored in the directory by the previous runs
+     *
+     * @param directory
+     * @param maximumBytes
+     * @param maximumAgeMillis
+     *            fragments older than this are ignored, 0 or less for no limit
+     * @throws IOException
+     */
+    public CsvFragmentCache(final File directory, final long maximumBytes, final long maximumAgeMillis) throws IOException {
+        this.directory = directory;
+        this.maximumBytes = maximumBytes;
+        this.maximumAgeMillis = maximumAgeMillis;
+        this.entries = new FileLruIndex<>(maximumBytes);
+        Files.createDirectories(directory.toPath());
+        load();
+    }
+
+    private static final class Entry extends FileLruIndex.Entry {
+        private final File csvFile;
+
+        private final File keysFile;
+
+        private Entry(String key, long length, File csvFile, File keysFile) {
+            super(key, length);
+            this.csvFile = csvFile;
+            this.keysFile = keysFile;
+        }
+
+        @Override
+        void delete() {
+            keysFile.delete();
+            csvFile.delete();
+        }
+    }
+
+    /**
+     * CSV rows of a Hub project version. The CSV file is kept open until the fragment is closed, so that it can be read
+     * even if it is replaced or evicted in the meantime
+     */
+    public static final class Fragment implements Closeable {
+        private final FileChannel channel;
+
+        // Set when the fragment is not kept in the cache
+        private File temporaryFile;
+
+        private final String scanDate;
+
+        private final int rowCount;
+
+        private final long[] highs;
+
+        private final long[] lows;
+
+        private final long[] ends;
+
+        private final int[] prefixLengths;
+
+        private Fragment(FileChannel channel, File temporaryFile, String scanDate, int rowCount, long[] highs, long[] lows, long[] ends,
+                int[] prefixLengths) {
+            this.channel = channel;
+            this.temporaryFile = temporaryFile;
+            this.scanDate = scanDate;
+            this.rowCount = rowCount;
+            this.highs = highs;
+            this.lows = lows;
+            this.ends = ends;
+            this.prefixLengths = prefixLengths;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        private long start(int row) {
+            return row == 0 ? 0 : ends[row - 1];
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+            // The fragments that are not kept in the cache are deleted once they are assembled
+            if (temporaryFile != null) {
+                temporaryFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Get the CSV rows of the Hub project version if they are stored for the same last BOM updated date and the same
+     * project name and version name
+     *
+     * @param projectVersionUrl
+     * @param bomLastUpdatedAt
+     * @param projectName
+     * @param projectVersion
+     * @return the fragment to close after use, or null if there is no valid fragment
+     */
+    public Fragment get(final String projectVersionUrl, final Date bomLastUpdatedAt, final String projectName, final String projectVersion) {
+        final Entry entry;
+        final FileChannel channel;
+        final FileInputStream keysInput;
+        synchronized (entries) {
+            entry = entries.get(FileLruIndex.hash(projectVersionUrl));
+            if (entry == null || bomLastUpdatedAt == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            // Both files are opened before they can be replaced, so that they always belong together
+            try {
+                channel = FileChannel.open(entry.csvFile.toPath(), StandardOpenOption.READ);
+            } catch (IOException e) {
+                logger.warn("Unable to read the CSV fragment " + entry.csvFile, e);
+                entries.remove(entry);
+                misses.incrementAndGet();
+                return null;
+            }
+            try {
+                keysInput = new FileInputStream(entry.keysFile);
+            } catch (IOException e) {
+                logger.warn("Unable to read the CSV fragment keys " + entry.keysFile, e);
+                closeQuietly(channel);
+                entries.remove(entry);
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+        boolean valid = false;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(keysInput))) {
+            if (input.readInt() != FORMAT_VERSION || !projectVersionUrl.equals(input.readUTF()) || input.readLong() != bomLastUpdatedAt.getTime()) {
+                misses.incrementAndGet();
+                return null;
+            }
+            final long createdAt = input.readLong();
+            if ((maximumAgeMillis > 0 && System.currentTimeMillis() - createdAt > maximumAgeMillis) || !projectName.equals(input.readUTF())
+                    || !projectVersion.equals(input.readUTF())) {
+                misses.incrementAndGet();
+                return null;
+            }
+            final String scanDate = input.readUTF();
+            if (input.readLong() != channel.size()) {
+                throw new IOException("The length of the CSV fragment does not match its keys");
+            }
+            final int rowCount = input.readInt();
+            final long[] highs = new long[rowCount];
+            final long[] lows = new long[rowCount];
+            final long[] ends = new long[rowCount];
+            final int[] prefixLengths = new int[rowCount];
+            for (int row = 0; row < rowCount; row++) {
+                highs[row] = input.readLong();
+                lows[row] = input.readLong();
+                ends[row] = input.readLong();
+                prefixLengths[row] = input.readInt();
+            }
+            hits.incrementAndGet();
+            valid = true;
+            return new Fragment(channel, null, scanDate, rowCount, highs, lows, ends, prefixLengths);
+        } catch (IOException e) {
+            logger.warn("Unable to read the CSV fragment keys " + entry.keysFile, e);
+            entries.remove(entry);
+            misses.incrementAndGet();
+            return null;
+        } finally {
+            if (!valid) {
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    /**
+     * Render the vulnerabilities of the Hub project version in CSV and store them, replacing the previous fragment of
+     * the version. All the vulnerabilities must have the same scan date
+     *
+     * @param projectVersionUrl
+     * @param bomLastUpdatedAt
+     * @param projectName
+     * @param projectVersion
+     * @param vulnerabilities
+     * @return the fragment to close after use
+     * @throws IOException
+     */
+    public Fragment put(final String projectVersionUrl, final Date bomLastUpdatedAt, final String projectName, final String projectVersion,
+            final List<Vulnerability> vulnerabilities) throws IOException {
+        final int rowCount = vulnerabilities.size();
+        final long[] highs = new long[rowCount];
+        final long[] lows = new long[rowCount];
+        final long[] ends = new long[rowCount];
+        final int[] prefixLengths = new int[rowCount];
+        final String scanDate = rowCount == 0 ? "" : renderScanDate(vulnerabilities.get(0).getScanDate());
+        final byte[] scanDateBytes = scanDate.getBytes(StandardCharsets.US_ASCII);
+
+        final File csvFile = File.createTempFile("fragment", ".tmp", directory);
+        try {
+            long length = 0;
+            try (OutputStream output = new BufferedOutputStream(new FileOutputStream(csvFile));
+                    RowBuffer rowBuffer = new RowBuffer();
+                    SequenceWriter sequenceWriter = CSVUtils.createObjectWriter(DELIMITER, false).writeValues(rowBuffer)) {
+                final long[] fingerprint = new long[2];
+                for (int row = 0; row < rowCount; row++) {
+                    final Vulnerability vulnerability = vulnerabilities.get(row);
+                    // Flush each row to the buffer to find its boundaries, the buffer does not flush the file
+                    sequenceWriter.write(vulnerability);
+                    sequenceWriter.flush();
+                    final byte[] bytes = rowBuffer.buffer();
+                    final int size = rowBuffer.size();
+                    if (!endsWithScanDate(bytes, size, scanDateBytes)) {
+                        throw new IOException("The vulnerabilities of " + projectVersionUrl + " do not have the same scan date");
+                    }
+                    VulnerabilityUtil.fingerprint(vulnerability, fingerprint);
+                    highs[row] = fingerprint[0];
+                    lows[row] = fingerprint[1];
+                    prefixLengths[row] = prefixLength(bytes, size);
+                    length += size;
+                    ends[row] = length;
+                    output.write(bytes, 0, size);
+                    rowBuffer.reset();
+                }
+            }
+            encodedRows.addAndGet(rowCount);
+            final FileChannel channel = FileChannel.open(csvFile.toPath(), StandardOpenOption.READ);
+            final Fragment fragment = new Fragment(channel, csvFile, scanDate, rowCount, highs, lows, ends, prefixLengths);
+            if (bomLastUpdatedAt != null && store(projectVersionUrl, bomLastUpdatedAt, projectName, projectVersion, fragment)) {
+                fragment.temporaryFile = null;
+            }
+            return fragment;
+        } catch (IOException | RuntimeException e) {
+            csvFile.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Write the key file of the fragment and move both files in the cache
+     *
+     * @return false if the fragment is not stored
+     */
+    private boolean store(final String projectVersionUrl, final Date bomLastUpdatedAt, final String projectName, final String projectVersion,
+            final Fragment fragment) {
+        final File csvFile = fragment.temporaryFile;
+        final String key = FileLruIndex.hash(projectVersionUrl);
+        try {
+            final File keysFile = File.createTempFile("fragment", ".tmp", directory);
+            try {
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(keysFile)))) {
+                    output.writeInt(FORMAT_VERSION);
+                    output.writeUTF(projectVersionUrl);
+                    output.writeLong(bomLastUpdatedAt.getTime());
+                    output.writeLong(System.currentTimeMillis());
+                    output.writeUTF(projectName);
+                    output.writeUTF(projectVersion);
+                    output.writeUTF(fragment.scanDate);
+                    output.writeLong(fragment.channel.size());
+                    output.writeInt(fragment.rowCount);
+                    for (int row = 0; row < fragment.rowCount; row++) {
+                        output.writeLong(fragment.highs[row]);
+                        output.writeLong(fragment.lows[row]);
+                        output.writeLong(fragment.ends[row]);
+                        output.writeInt(fragment.prefixLengths[row]);
+                    }
+                }
+                final long length = csvFile.length() + keysFile.length();
+                if (length > maximumBytes) {
+                    return false;
+                }
+                final Entry entry = new Entry(key, length, new File(directory, key + CSV_SUFFIX), new File(directory, key + KEYS_SUFFIX));
+                synchronized (entries) {
+                    // The open channel of the fragment still reads the moved CSV file
+                    Files.move(csvFile.toPath(), entry.csvFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    try {
+                        Files.move(keysFile.toPath(), entry.keysFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (IOException e) {
+                        // The moved CSV file no longer matches the keys of the previous fragment
+                        entries.remove(key);
+                        entry.delete();
+                        throw e;
+                    }
+                    entries.put(entry);
+                }
+            } finally {
+                keysFile.delete();
+            }
+            return true;
+        } catch (IOException e) {
+            logger.warn("Unable to store the CSV fragment of " + projectVersionUrl, e);
+            return false;
+        }
+    }
+
+    /**
+     * Write the CSV of a group from the fragments of its Hub project versions. The rows are copied from the fragment
+     * files by the file system, only their scan date is updated in place, and the vulnerabilities present more than
+     * once are rewritten as in VulnerabilityUtil.removeDuplicates
+     *
+     * @param fragments
+     *            fragments of the Hub project versions, in the order of the group
+     * @param scanDate
+     * @param removeDuplicates
+     * @param file
+     * @return the number of rows, the file is not written when there is no row
+     * @throws IOException
+     */
+    public long assemble(final List<Fragment> fragments, final Date scanDate, final boolean removeDuplicates, final File file) throws IOException {
+        int totalRows = 0;
+        for (Fragment fragment : fragments) {
+            totalRows += fragment.rowCount;
+        }
+        if (totalRows == 0) {
+            return 0;
+        }
+        final byte[] scanDateBytes = renderScanDate(scanDate).getBytes(StandardCharsets.US_ASCII);
+        try (FileChannel output = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            final Assembly assembly = new Assembly(output, scanDateBytes, totalRows);
+            assembly.write(ByteBuffer.wrap(getHeaderBytes()));
+            if (!removeDuplicates) {
+                for (Fragment fragment : fragments) {
+                    assembly.copy(fragment, 0, fragment.rowCount);
+                }
+                assembly.patchScanDates();
+                return totalRows;
+            }
+
+            // Same unique vulnerabilities and order as VulnerabilityUtil.removeDuplicates, over the fragment keys
+            final int[] fragmentStarts = new int[fragments.size()];
+            final FingerprintIndex uniqueKeys = new FingerprintIndex(totalRows);
+            int[] lastOccurrences = new int[Math.max(16, totalRows / 2)];
+            final BitSet duplicates = new BitSet();
+            int rowIndex = 0;
+            for (int fragmentIndex = 0; fragmentIndex < fragments.size(); fragmentIndex++) {
+                final Fragment fragment = fragments.get(fragmentIndex);
+                fragmentStarts[fragmentIndex] = rowIndex;
+                for (int row = 0; row < fragment.rowCount; row++) {
+                    final int uniqueIndex = uniqueKeys.size();
+                    final int existingIndex = uniqueKeys.putIfAbsent(fragment.highs[row], fragment.lows[row], uniqueIndex);
+                    if (existingIndex < 0) {
+                        if (uniqueIndex == lastOccurrences.length) {
+                            lastOccurrences = Arrays.copyOf(lastOccurrences, uniqueIndex << 1);
+                        }
+                        lastOccurrences[uniqueIndex] = rowIndex;
+                    } else {
+                        lastOccurrences[existingIndex] = rowIndex;
+                        duplicates.set(existingIndex);
+                    }
+                    rowIndex++;
+                }
+            }
+
+            // The unique rows that follow each other in a fragment are copied at once
+            Fragment runFragment = null;
+            int runStart = 0;
+            int runEnd = 0;
+            final int uniqueCount = uniqueKeys.size();
+            for (int uniqueIndex = 0; uniqueIndex < uniqueCount; uniqueIndex++) {
+                final int occurrence = lastOccurrences[uniqueIndex];
+                int fragmentIndex = Arrays.binarySearch(fragmentStarts, occurrence);
+                if (fragmentIndex < 0) {
+                    fragmentIndex = -fragmentIndex - 2;
+                }
+                // Skip the empty fragments that start at the same row
+                while (fragmentIndex + 1 < fragmentStarts.length && fragmentStarts[fragmentIndex + 1] == occurrence) {
+                    fragmentIndex++;
+                }
+                final Fragment fragment = fragments.get(fragmentIndex);
+                final int row = occurrence - fragmentStarts[fragmentIndex];
+                if (duplicates.get(uniqueIndex)) {
+                    assembly.copy(runFragment, runStart, runEnd);
+                    runFragment = null;
+                    assembly.writeMultipleProjects(fragment, row);
+                } else if (fragment == runFragment && row == runEnd) {
+                    runEnd++;
+                } else {
+                    assembly.copy(runFragment, runStart, runEnd);
+                    runFragment = fragment;
+                    runStart = row;
+                    runEnd = row + 1;
+                }
+            }
+            assembly.copy(runFragment, runStart, runEnd);
+            assembly.patchScanDates();
+            return uniqueCount;
+        }
+    }
+
+    /**
+     * State of the CSV being assembled
+     */
+    private final class Assembly {
+        private final FileChannel output;
+
+        private final byte[] scanDateBytes;
+
+        // Offsets of the scan dates to update in the output, in increasing order
+        private long[] patches;
+
+        private int patchCount;
+
+        private Assembly(FileChannel output, byte[] scanDateBytes, int totalRows) {
+            this.output = output;
+            this.scanDateBytes = scanDateBytes;
+            this.patches = new long[Math.min(totalRows, 1024)];
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                output.write(buffer);
+            }
+        }
+
+        /**
+         * Copy the rows from start to end (exclusive) of the fragment
+         */
+        private void copy(Fragment fragment, int start, int end) throws IOException {
+            if (fragment == null || start >= end) {
+                return;
+            }
+            final long outputStart = output.position();
+            final long from = fragment.start(start);
+            final long count = fragment.ends[end - 1] - from;
+            long transferred = 0;
+            while (transferred < count) {
+                final long chunk = fragment.channel.transferTo(from + transferred, Math.min(TRANSFER_CHUNK, count - transferred), output);
+                if (chunk <= 0) {
+                    throw new IOException("Unable to copy the CSV fragment");
+                }
+                transferred += chunk;
+            }
+            output.position(outputStart + count);
+            copiedRows.addAndGet(end - start);
+            if (!Arrays.equals(fragment.scanDate.getBytes(StandardCharsets.US_ASCII), scanDateBytes)) {
+                checkScanDateLength(fragment);
+                for (int row = start; row < end; row++) {
+                    addPatch(outputStart + fragment.ends[row] - from - scanDateBytes.length - 1);
+                }
+            }
+        }
+
+        /**
+         * Write the row of the fragment with the project name and version name replaced by Multiple projects and
+         * Multiple versions
+         */
+        private void writeMultipleProjects(Fragment fragment, int row) throws IOException {
+            checkScanDateLength(fragment);
+            final long start = fragment.start(row) + fragment.prefixLengths[row];
+            final byte[] multipleProjects = getMultipleProjectsBytes();
+            final ByteBuffer buffer = ByteBuffer.allocate(multipleProjects.length + (int) (fragment.ends[row] - start));
+            buffer.put(multipleProjects);
+            while (buffer.hasRemaining()) {
+                if (fragment.channel.read(buffer, start + buffer.position() - multipleProjects.length) < 0) {
+                    throw new IOException("Unable to read the CSV fragment");
+                }
+            }
+            System.arraycopy(scanDateBytes, 0, buffer.array(), buffer.capacity() - scanDateBytes.length - 1, scanDateBytes.length);
+            buffer.flip();
+            write(buffer);
+            rewrittenRows.incrementAndGet();
+        }
+
+        // The scan dates are rendered with a fixed width pattern, they are updated in place
+        private void checkScanDateLength(Fragment fragment) throws IOException {
+            if (fragment.scanDate.length() != scanDateBytes.length) {
+                throw new IOException("The scan date of the CSV fragment can't be updated in place");
+            }
+        }
+
+        private void addPatch(long position) {
+            if (patchCount == patches.length) {
+                patches = Arrays.copyOf(patches, Math.max(16, patchCount << 1));
+            }
+            patches[patchCount++] = position;
+        }
+
+        /**
+         * Update the scan date of the rows that are copied from fragments with another scan date
+         */
+        private void patchScanDates() throws IOException {
+            final ByteBuffer buffer = ByteBuffer.wrap(scanDateBytes);
+            for (int i = 0; i < patchCount; i++) {
+                buffer.rewind();
+                while (buffer.hasRemaining()) {
+                    output.write(buffer, patches[i] + buffer.position());
+                }
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getTotalBytes() {
+        return entries.getTotalBytes();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Log the hit and miss counts, the rows rendered and copied and the size of the cache
+     */
+    public void logStatistics() {
+        logger.info("CSV fragment hits::" + hits.get() + ", misses::" + misses.get() + ", rows rendered::" + encodedRows.get() + ", rows copied::"
+                + copiedRows.get() + ", duplicate rows rewritten::" + rewrittenRows.get() + ", fragments::" + size() + ", bytes::" + getTotalBytes());
+    }
+
+    /**
+     * Load the fragments of the previous runs, the least recently written first
+     */
+    private void load() {
+        for (File keysFile : FileLruIndex.listFiles(directory, KEYS_SUFFIX)) {
+            final String key = keysFile.getName().substring(0, keysFile.getName().length() - KEYS_SUFFIX.length());
+            final File csvFile = new File(directory, key + CSV_SUFFIX);
+            final long length = csvFile.length() + keysFile.length();
+            entries.put(new Entry(key, length, csvFile, keysFile));
+        }
+        logger.info("Loaded " + entries.size() + " CSV fragments, bytes::" + entries.getTotalBytes());
+    }
+
+    /**
+     * Render the scan date cell as the CSV rendering of the vulnerabilities does, the scan date is the last cell of the
+     * rows
+     *
+     * @param scanDate
+     * @return
+     * @throws IOException
+     */
+    static String renderScanDate(Date scanDate) throws IOException {
+        final String row = CSVUtils.createObjectWriter(DELIMITER, false).writeValueAsString(sampleVulnerability(scanDate));
+        return row.substring(row.lastIndexOf(DELIMITER) + 1, row.length() - 1);
+    }
+
+    private static boolean endsWithScanDate(byte[] bytes, int size, byte[] scanDateBytes) {
+        final int start = size - scanDateBytes.length - 1;
+        if (start < 0 || bytes[size - 1] != LINE_SEPARATOR) {
+            return false;
+        }
+        for (int i = 0; i < scanDateBytes.length; i++) {
+            if (bytes[start + i] != scanDateBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the length of the project name and version name cells of the row, with their delimiters. The quoted cells
+     * escape a quote by doubling it
+     */
+    private static int prefixLength(byte[] bytes, int size) throws IOException {
+        int position = 0;
+        for (int cell = 0; cell < PROJECT_CELLS; cell++) {
+            if (position < size && bytes[position] == QUOTE) {
+                position++;
+                while (position < size && (bytes[position] != QUOTE || (position + 1 < size && bytes[position + 1] == QUOTE))) {
+                    position += bytes[position] == QUOTE ? 2 : 1;
+                }
+                position++;
+            } else {
+                while (position < size && bytes[position] != DELIMITER) {
+                    position++;
+                }
+            }
+            if (position >= size || bytes[position] != DELIMITER) {
+                throw new IOException("Unexpected project cells in the CSV row");
+            }
+            position++;
+        }
+        return position;
+    }
+
+    private static synchronized byte[] getHeaderBytes() throws IOException {
+        if (headerBytes == null) {
+            // The header is the first line of a CSV with a single row
+            final byte[] bytes = CSVUtils.createObjectWriter(DELIMITER, true).writeValueAsBytes(Arrays.asList(sampleVulnerability(new Date(0))));
+            int end = 0;
+            while (bytes[end] != LINE_SEPARATOR) {
+                end++;
+            }
+            headerBytes = Arrays.copyOf(bytes, end + 1);
+        }
+        return headerBytes;
+    }
+
+    private static synchronized byte[] getMultipleProjectsBytes() throws IOException {
+        if (multipleProjectsBytes == null) {
+            final byte[] bytes = CSVUtils.createObjectWriter(DELIMITER, false)
+                    .writeValueAsBytes(VulnerabilityUtil.toMultipleProjects(sampleVulnerability(new Date(0))));
+            multipleProjectsBytes = Arrays.copyOf(bytes, prefixLength(bytes, bytes.length));
+        }
+        return multipleProjectsBytes;
+    }
+
+    private static Vulnerability sampleVulnerability(Date scanDate) {
+        return new Vulnerability("", "", "", "", "", "", "", "", "", "", "", "", null, null, null, null, null, "", "", "", null, null, "", "", scanDate);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            logger.debug("Unable to close " + closeable, e);
+        }
+    }
+
+    /**
+     * Buffer of the rendered row, the flush of each row by the CSV writer does not flush the file
+     */
+    private static final class RowBuffer extends ByteArrayOutputStream {
+        private RowBuffer() {
+            super(4096);
+        }
+
+        private byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,407 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.log4j.Logger;
+
+import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
+import com.fasterxml.jackson.databind.SequenceWriter;
+
+/**
+ * This class will be used to remove the duplicate vulnerabilities of the groups that are too large to be deduplicated
+ * in memory. The rows are buffered in memory until the row or the byte threshold is reached, then the buffer is sorted
+ * on the dedup key and written to a run file. When the rows are rendered, the runs are merged k-way to find the unique
+ * vulnerabilities, which are sorted again on their first occurrence through a second set of runs, and streamed to the
+ * CSV. The result is the same as VulnerabilityUtil.removeDuplicates. At most MAX_FAN_IN runs are opened at once, more
+ * runs are merged in intermediate passes first.
+ *
+ * If the thresholds are never reached, the buffered rows are deduplicated in memory by
+ * VulnerabilityUtil.removeDuplicates.
+ *
+ * @author smanikantan
+ *
+ */
+public final class ExternalVulnerabilityDeduplicator implements Closeable {
+
+    private final static Logger logger = Logger.getLogger(ExternalVulnerabilityDeduplicator.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte DUPLICATE = 1;
+
+    // Maximum number of run files read at once by a merge
+    private static final int MAX_FAN_IN = 64;
+
+    // Order of the first phase: dedup key, then the order of the rows
+    private static final Comparator<Record> KEY_ORDER = (first, second) -> {
+        int result = Long.compare(first.high, second.high);
+        if (result == 0) {
+            result = Long.compare(first.low, second.low);
+        }
+        return result != 0 ? result : Long.compare(first.sequence, second.sequence);
+    };
+
+    // Order of the second phase: first occurrence of the unique vulnerabilities
+    private static final Comparator<Record> SEQUENCE_ORDER = (first, second) -> Long.compare(first.sequence, second.sequence);
+
+    private final File spillDirectory;
+
+    private final int rowThreshold;
+
+    private final long byteThreshold;
+
+    private final List<Vulnerability> bufferedVulnerabilities = new ArrayList<>();
+
+    private final List<File> runs = new ArrayList<>();
+
+    private final long[] fingerprint = new long[2];
+
+    private File workDirectory;
+
+    private long bufferedBytes;
+
+    private long rowCount;
+
+    /**
+     * @param spillDirectory
+     *            directory under which the run files are created
+     * @param rowThreshold
+     *            maximum number of rows buffered in memory, 0 for no limit
+     * @param byteThreshold
+     *            maximum estimated encoded size of the rows buffered in memory, 0 for no limit
+     */
+    public ExternalVulnerabilityDeduplicator(File spillDirectory, int rowThreshold, long byteThreshold) {
+        this.spillDirectory = spillDirectory;
+        this.rowThreshold = rowThreshold;
+        this.byteThreshold = byteThreshold;
+    }
+
+    /**
+     * Add the vulnerabilities, the runs are spilled to disk when the thresholds are reached
+     *
+     * @param vulnerabilities
+     * @throws IOException
+     */
+    public void addAll(List<Vulnerability> vulnerabilities) throws IOException {
+        for (Vulnerability vulnerability : vulnerabilities) {
+            add(vulnerability);
+        }
+    }
+
+    /**
+     * Add the vulnerability, the runs are spilled to disk when the thresholds are reached
+     *
+     * @param vulnerability
+     * @throws IOException
+     */
+    public void add(Vulnerability vulnerability) throws IOException {
+        bufferedVulnerabilities.add(vulnerability);
+        bufferedBytes += VulnerabilityCodec.estimateSize(vulnerability);
+        rowCount++;
+        if ((rowThreshold > 0 && bufferedVulnerabilities.size() >= rowThreshold) || (byteThreshold > 0 && bufferedBytes >= byteThreshold)) {
+            spill();
+        }
+    }
+
+    /**
+     * Get the number of rows added
+     *
+     * @return
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Write the unique vulnerabilities to the writer, in the order of their first occurrence
+     *
+     * @param writer
+     * @throws IOException
+     */
+    public void writeTo(SequenceWriter writer) throws IOException {
+        if (runs.isEmpty()) {
+            writer.writeAll(VulnerabilityUtil.removeDuplicates(bufferedVulnerabilities));
+            return;
+        }
+        spill();
+        logger.info("Merging " + runs.size() + " runs of " + rowCount + " vulnerabilities");
+        final List<File> uniqueRuns = new ArrayList<>();
+        final List<Record> uniqueRecords = new ArrayList<>();
+        long uniqueBytes = 0;
+        try (RunMerger merger = new RunMerger(reduceRuns(runs, KEY_ORDER), KEY_ORDER)) {
+            Record first = merger.next();
+            while (first != null) {
+                // The records of a key are consecutive, the first one has the sequence of the first occurrence and the
+                // last one has the contents that are kept
+                Record last = first;
+                byte flags = 0;
+                Record next = merger.next();
+                while (next != null && next.high == first.high && next.low == first.low) {
+                    last = next;
+                    flags = DUPLICATE;
+                    next = merger.next();
+                }
+                uniqueRecords.add(new Record(0, 0, first.sequence, flags, last.payload));
+                uniqueBytes += last.payload.length;
+                if ((rowThreshold > 0 && uniqueRecords.size() >= rowThreshold) || (byteThreshold > 0 && uniqueBytes >= byteThreshold)) {
+                    uniqueRuns.add(writeRun(uniqueRecords, SEQUENCE_ORDER));
+                    uniqueRecords.clear();
+                    uniqueBytes = 0;
+                }
+                first = next;
+            }
+        }
+        if (!uniqueRecords.isEmpty()) {
+            uniqueRuns.add(writeRun(uniqueRecords, SEQUENCE_ORDER));
+            uniqueRecords.clear();
+        }
+
+        try (RunMerger merger = new RunMerger(reduceRuns(uniqueRuns, SEQUENCE_ORDER), SEQUENCE_ORDER)) {
+            for (Record record = merger.next(); record != null; record = merger.next()) {
+                final Vulnerability vulnerability = VulnerabilityCodec.decode(record.payload);
+                writer.write(record.flags == DUPLICATE ? VulnerabilityUtil.toMultipleProjects(vulnerability) : vulnerability);
+            }
+        }
+    }
+
+    /**
+     * Sort the buffered rows on the dedup key and write them to a run file
+     *
+     * @throws IOException
+     */
+    private void spill() throws IOException {
+        if (bufferedVulnerabilities.isEmpty()) {
+            return;
+        }
+        final List<Record> records = new ArrayList<>(bufferedVulnerabilities.size());
+        long sequence = rowCount - bufferedVulnerabilities.size();
+        for (Vulnerability vulnerability : bufferedVulnerabilities) {
+            VulnerabilityUtil.fingerprint(vulnerability, fingerprint);
+            records.add(new Record(fingerprint[0], fingerprint[1], sequence++, (byte) 0, VulnerabilityCodec.encode(vulnerability)));
+        }
+        bufferedVulnerabilities.clear();
+        bufferedBytes = 0;
+        runs.add(writeRun(records, KEY_ORDER));
+        logger.debug("Spilled run " + runs.size() + " of " + records.size() + " vulnerabilities");
+    }
+
+    private File writeRun(List<Record> records, Comparator<Record> order) throws IOException {
+        records.sort(order);
+        final File run = createRun();
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), BUFFER_SIZE))) {
+            for (Record record : records) {
+                writeRecord(output, record);
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Merge the runs in passes of MAX_FAN_IN runs until there are no more than MAX_FAN_IN runs left, the merged runs
+     * are deleted
+     *
+     * @param runs
+     * @param order
+     * @return the runs to merge in the last pass
+     * @throws IOException
+     */
+    private List<File> reduceRuns(List<File> runs, Comparator<Record> order) throws IOException {
+        List<File> reducedRuns = runs;
+        while (reducedRuns.size() > MAX_FAN_IN) {
+            final List<File> mergedRuns = new ArrayList<>(reducedRuns.size() / MAX_FAN_IN + 1);
+            for (int start = 0; start < reducedRuns.size(); start += MAX_FAN_IN) {
+                final List<File> batch = reducedRuns.subList(start, Math.min(reducedRuns.size(), start + MAX_FAN_IN));
+                if (batch.size() == 1) {
+                    mergedRuns.add(batch.get(0));
+                    continue;
+                }
+                final File run = createRun();
+                try (RunMerger merger = new RunMerger(batch, order);
+                        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), BUFFER_SIZE))) {
+                    for (Record record = merger.next(); record != null; record = merger.next()) {
+                        writeRecord(output, record);
+                    }
+                }
+                batch.forEach(File::delete);
+                mergedRuns.add(run);
+            }
+            logger.debug("Merged " + reducedRuns.size() + " runs into " + mergedRuns.size() + " runs");
+            reducedRuns = mergedRuns;
+        }
+        return reducedRuns;
+    }
+
+    private File createRun() throws IOException {
+        if (workDirectory == null) {
+            Files.createDirectories(spillDirectory.toPath());
+            workDirectory = Files.createTempDirectory(spillDirectory.toPath(), "vulnerability-dedup").toFile();
+        }
+        return File.createTempFile("run", ".bin", workDirectory);
+    }
+
+    private static void writeRecord(DataOutputStream output, Record record) throws IOException {
+        output.writeLong(record.high);
+        output.writeLong(record.low);
+        output.writeLong(record.sequence);
+        output.writeByte(record.flags);
+        output.writeInt(record.payload.length);
+        output.write(record.payload);
+    }
+
+    /**
+     * Delete the run files
+     */
+    @Override
+    public void close() {
+        bufferedVulnerabilities.clear();
+        if (workDirectory != null) {
+            final File[] files = workDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            workDirectory.delete();
+            workDirectory = null;
+        }
+        runs.clear();
+    }
+
+    /**
+     * Record of a run file: the dedup key, the sequence of the row, the duplicate flag and the encoded vulnerability
+     */
+    private static final class Record {
+        private final long high;
+
+        private final long low;
+
+        private final long sequence;
+
+        private final byte flags;
+
+        private final byte[] payload;
+
+        private Record(long high, long low, long sequence, byte flags, byte[] payload) {
+            this.high = high;
+            this.low = low;
+            this.sequence = sequence;
+            this.flags = flags;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Reader of a sorted run file
+     */
+    private static final class RunReader implements Closeable {
+        private final DataInputStream input;
+
+        private Record current;
+
+        private RunReader(File run) throws IOException {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(run), BUFFER_SIZE));
+        }
+
+        private boolean advance() throws IOException {
+            final long high;
+            try {
+                high = input.readLong();
+            } catch (EOFException e) {
+                current = null;
+                return false;
+            }
+            final long low = input.readLong();
+            final long sequence = input.readLong();
+            final byte flags = input.readByte();
+            final byte[] payload = new byte[input.readInt()];
+            input.readFully(payload);
+            current = new Record(high, low, sequence, flags, payload);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+
+    /**
+     * K-way merge of sorted run files
+     */
+    private static final class RunMerger implements Closeable {
+        private final List<RunReader> readers = new ArrayList<>();
+
+        private final PriorityQueue<RunReader> queue;
+
+        private RunMerger(List<File> runs, Comparator<Record> order) throws IOException {
+            queue = new PriorityQueue<>(Math.max(1, runs.size()), (first, second) -> order.compare(first.current, second.current));
+            try {
+                for (File run : runs) {
+                    final RunReader reader = new RunReader(run);
+                    readers.add(reader);
+                    if (reader.advance()) {
+                        queue.add(reader);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        private Record next() throws IOException {
+            final RunReader reader = queue.poll();
+            if (reader == null) {
+                return null;
+            }
+            final Record record = reader.current;
+            if (reader.advance()) {
+                queue.add(reader);
+            }
+            return record;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+}
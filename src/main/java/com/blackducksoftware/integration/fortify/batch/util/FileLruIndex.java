@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * This class will be used to track the files that a disk cache stores, in the least recently used order, and to evict
+ * them when their total size is above the maximum size. The methods are synchronized on the index, the caches hold its
+ * lock while they move a file in place so that a concurrent removal can't delete the new file.
+ *
+ * @author smanikantan
+ *
+ */
+final class FileLruIndex<E extends FileLruIndex.Entry> {
+
+    private final long maximumBytes;
+
+    // Entries in the least recently used order
+    private final LinkedHashMap<String, E> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+
+    FileLruIndex(final long maximumBytes) {
+        this.maximumBytes = maximumBytes;
+    }
+
+    /**
+     * Files of a cached key
+     */
+    abstract static class Entry {
+        final String key;
+
+        final long length;
+
+        Entry(String key, long length) {
+            this.key = key;
+            this.length = length;
+        }
+
+        /**
+         * Delete the files of the entry
+         */
+        abstract void delete();
+    }
+
+    synchronized E get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Add the entry, whose files replace the files of the previous entry of its key, and evict the least recently used
+     * entries above the maximum size
+     *
+     * @param entry
+     */
+    synchronized void put(E entry) {
+        final E previous = entries.put(entry.key, entry);
+        totalBytes += entry.length - (previous == null ? 0 : previous.length);
+        evict();
+    }
+
+    /**
+     * Remove the entry if it is still the entry of its key, a newer entry of the key is kept
+     *
+     * @param entry
+     */
+    synchronized void remove(E entry) {
+        if (entries.remove(entry.key, entry)) {
+            totalBytes -= entry.length;
+            entry.delete();
+        }
+    }
+
+    /**
+     * Remove the entry of the key whatever it is
+     *
+     * @param key
+     */
+    synchronized void remove(String key) {
+        final E entry = entries.remove(key);
+        if (entry != null) {
+            totalBytes -= entry.length;
+            entry.delete();
+        }
+    }
+
+    synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized void evict() {
+        final Iterator<E> iterator = entries.values().iterator();
+        while (totalBytes > maximumBytes && iterator.hasNext()) {
+            final E entry = iterator.next();
+            iterator.remove();
+            totalBytes -= entry.length;
+            entry.delete();
+        }
+    }
+
+    /**
+     * List the files of the directory with the suffix, the least recently written first, to load the entries of the
+     * previous runs in the least recently used order
+     *
+     * @param directory
+     * @param suffix
+     * @return
+     */
+    static List<File> listFiles(File directory, String suffix) {
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(suffix));
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        return Arrays.asList(files);
+    }
+
+    /**
+     * Hex SHA-1 of the key, used as the name of the files that are stored for a key
+     *
+     * @param key
+     * @return
+     */
+    static String hash(String key) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+/**
+ * This class is an open addressing hash map from a 128 bit fingerprint to a non negative int. It stores the keys and
+ * the values in primitive arrays, so adding a key does not allocate any object.
+ *
+ * @author smanikantan
+ *
+ */
+public final class FingerprintIndex {
+
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private long[] highs;
+
+    private long[] lows;
+
+    // Value + 1 of each slot, 0 marks an empty slot
+    private int[] values;
+
+    private int size;
+
+    private int resizeThreshold;
+
+    public FingerprintIndex(int expectedSize) {
+        allocate(tableSizeFor(Math.max(MINIMUM_CAPACITY, (int) (expectedSize / 0.5f) + 1)));
+    }
+
+    /**
+     * Add the fingerprint with the given value if it is not present yet
+     *
+     * @param high
+     * @param low
+     * @param value
+     *            non negative value to store
+     * @return the value that is already stored for the fingerprint, or -1 if the fingerprint is added
+     */
+    public int putIfAbsent(long high, long low, int value) {
+        int slot = findSlot(high, low);
+        if (values[slot] != 0) {
+            return values[slot] - 1;
+        }
+        highs[slot] = high;
+        lows[slot] = low;
+        values[slot] = value + 1;
+        if (++size > resizeThreshold) {
+            resize();
+        }
+        return -1;
+    }
+
+    /**
+     * Get the value stored for the fingerprint
+     *
+     * @param high
+     * @param low
+     * @return the value, or -1 if the fingerprint is not present
+     */
+    public int get(long high, long low) {
+        return values[findSlot(high, low)] - 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int findSlot(long high, long low) {
+        final int mask = values.length - 1;
+        int slot = (int) (low ^ (low >>> 32)) & mask;
+        while (values[slot] != 0 && (highs[slot] != high || lows[slot] != low)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize() {
+        final long[] oldHighs = highs;
+        final long[] oldLows = lows;
+        final int[] oldValues = values;
+        allocate(oldValues.length << 1);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != 0) {
+                final int slot = findSlot(oldHighs[i], oldLows[i]);
+                highs[slot] = oldHighs[i];
+                lows[slot] = oldLows[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        highs = new long[capacity];
+        lows = new long[capacity];
+        values = new int[capacity];
+        resizeThreshold = capacity >>> 1;
+    }
+
+    private static int tableSizeFor(int capacity) {
+        final int highestOneBit = Integer.highestOneBit(capacity);
+        return highestOneBit == capacity ? capacity : highestOneBit << 1;
+    }
+}
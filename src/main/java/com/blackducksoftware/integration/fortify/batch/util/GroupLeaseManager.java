@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This class will be used to hold a lease on a Fortify application version while its group is processed, so that the
+ * instances sharing the lease directory never process the same group at the same time. A lease expires after the time
+ * to live unless it is renewed, the leases held by this instance are renewed in a daemon thread. The lease of an
+ * instance that stopped is taken over by the next instance once it is expired. The lease of a processed group is kept,
+ * with the time it was processed, until it expires so that the other instances don't process the group again.
+ *
+ * The leases are files of the lease directory, they are read and written under a file lock of the directory. The
+ * expiry is the time of the instance that wrote the lease, the clocks of the instances have to be synchronized.
+ *
+ * @author smanikantan
+ *
+ */
+public final class GroupLeaseManager implements Closeable {
+
+    private final static Logger logger = Logger.getLogger(GroupLeaseManager.class);
+
+    private static final String LOCK_FILE_NAME = "leases.lock";
+
+    private static final String LEASE_EXTENSION = ".lease";
+
+    private static final String OWNER = "owner";
+
+    private static final String EXPIRES_AT = "expiresAt";
+
+    private static final String PROCESSED_AT = "processedAt";
+
+    private final File directory;
+
+    private final long ttlMillis;
+
+    // Identifies this instance, the process name is kept to know which instance holds a lease
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    // Leases held by this instance by lease file name
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService renewer;
+
+    /**
+     * @param directory
+     *            lease directory shared by the instances
+     * @param ttlMillis
+     *            time to live of a lease that is not renewed
+     */
+    public GroupLeaseManager(final File directory, final long ttlMillis) {
+        this.directory = directory;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Lease held by this instance on a Fortify application version
+     */
+    public final class Lease implements Closeable {
+        private final String fileName;
+
+        private final String description;
+
+        private volatile boolean lost;
+
+        private Lease(final String fileName, final String description) {
+            this.fileName = fileName;
+            this.description = description;
+        }
+
+        /**
+         * Check if the lease expired before it was renewed and another instance took it over
+         *
+         * @return
+         */
+        public boolean isLost() {
+            return lost;
+        }
+
+        /**
+         * Stop renewing the lease of the processed group and keep it until it expires, the other instances skip the
+         * group until then
+         */
+        public void complete() {
+            if (leases.remove(fileName, this)) {
+                try {
+                    markProcessed(this);
+                } catch (IOException e) {
+                    // Renewed no more, the lease expires after its time to live
+                    logger.warn("Unable to record the processing of " + description, e);
+                }
+            }
+        }
+
+        /**
+         * Release the lease if the group is not processed, another instance can take it at once
+         */
+        @Override
+        public void close() {
+            if (leases.remove(fileName, this)) {
+                try {
+                    release(this);
+                } catch (IOException e) {
+                    // The lease expires after its time to live
+                    logger.warn("Unable to release the lease of " + description, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Acquire the lease of the Fortify application version if no other instance holds it
+     *
+     * @param fortifyApplication
+     * @param fortifyApplicationVersion
+     * @return the lease, or null if another instance holds it
+     * @throws IOException
+     */
+    public Lease tryAcquire(final String fortifyApplication, final String fortifyApplicationVersion) throws IOException {
+        // The names are not concatenated, a_b/c and a/b_c have different leases
+        final String fileName = FileLruIndex.hash(fortifyApplication + '\u0000' + fortifyApplicationVersion) + LEASE_EXTENSION;
+        final String description = fortifyApplication + "/" + fortifyApplicationVersion;
+        final Lease lease = new Lease(fileName, description);
+        synchronized (this) {
+            if (leases.containsKey(fileName)) {
+                // Already processed by another thread of this instance
+                return null;
+            }
+            startRenewer();
+            final boolean acquired = underLock(() -> {
+                final Properties current = read(fileName);
+                if (current != null && !owner.equals(current.getProperty(OWNER)) && !isExpired(current)) {
+                    if (current.getProperty(PROCESSED_AT) != null) {
+                        logger.info(description + " was processed by " + current.getProperty(OWNER) + " at " + current.getProperty(PROCESSED_AT));
+                    } else {
+                        logger.info("The lease of " + description + " is held by " + current.getProperty(OWNER));
+                    }
+                    return false;
+                }
+                if (current != null && !owner.equals(current.getProperty(OWNER))) {
+                    logger.info("Reclaiming the expired lease of " + description + " held by " + current.getProperty(OWNER));
+                }
+                write(fileName, null);
+                return true;
+            });
+            if (!acquired) {
+                return null;
+            }
+            leases.put(fileName, lease);
+        }
+        logger.debug("Acquired the lease of " + description);
+        return lease;
+    }
+
+    /**
+     * Stop the renewal and release the leases held by this instance
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (renewer != null) {
+                renewer.shutdownNow();
+                renewer = null;
+            }
+        }
+        leases.values().forEach(Lease::close);
+    }
+
+    // The renewal is started with the first lease, no file is created while the leases are not used
+    private void startRenewer() {
+        if (renewer != null) {
+            return;
+        }
+        renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "group-lease-renewer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Renewed three times per time to live, a late renewal doesn't lose the lease
+        final long periodMillis = Math.max(1, ttlMillis / 3);
+        renewer.scheduleAtFixedRate(this::renew, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void renew() {
+        if (leases.isEmpty()) {
+            return;
+        }
+        try {
+            underLock(() -> {
+                for (Lease lease : leases.values()) {
+                    final Properties current = read(lease.fileName);
+                    if (current != null && !owner.equals(current.getProperty(OWNER))) {
+                        lease.lost = true;
+                        leases.remove(lease.fileName, lease);
+                        logger.warn("The lease of " + lease.description + " expired and is held by " + current.getProperty(OWNER));
+                    } else {
+                        write(lease.fileName, null);
+                    }
+                }
+                return null;
+            });
+        } catch (IOException | RuntimeException e) {
+            // Renewed again in the next period, before the lease expires
+            logger.warn("Unable to renew the leases of the groups", e);
+        }
+    }
+
+    private synchronized void release(final Lease lease) throws IOException {
+        underLock(() -> {
+            final Properties current = read(lease.fileName);
+            if (current != null && owner.equals(current.getProperty(OWNER))) {
+                Files.deleteIfExists(new File(directory, lease.fileName).toPath());
+            }
+            return null;
+        });
+        logger.debug("Released the lease of " + lease.description);
+    }
+
+    private synchronized void markProcessed(final Lease lease) throws IOException {
+        underLock(() -> {
+            final Properties current = read(lease.fileName);
+            if (current != null && owner.equals(current.getProperty(OWNER))) {
+                write(lease.fileName, Instant.now().toString());
+            }
+            return null;
+        });
+        logger.debug("Keeping the lease of the processed " + lease.description);
+    }
+
+    /**
+     * Action on the lease files, run under the file lock of the lease directory
+     */
+    @FunctionalInterface
+    private interface LockedAction<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Run the action under the file lock of the lease directory, the lock is released once the action is done
+     *
+     * @param action
+     * @return the result of the action
+     * @throws IOException
+     */
+    private <T> T underLock(final LockedAction<T> action) throws IOException {
+        Files.createDirectories(directory.toPath());
+        try (FileChannel lockChannel = FileChannel.open(new File(directory, LOCK_FILE_NAME).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            final FileLock lock = lockChannel.lock();
+            try {
+                return action.run();
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private boolean isExpired(final Properties lease) {
+        try {
+            return Long.parseLong(lease.getProperty(EXPIRES_AT, "0")) <= System.currentTimeMillis();
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private Properties read(final String fileName) throws IOException {
+        final File file = new File(directory, fileName);
+        if (!file.isFile()) {
+            return null;
+        }
+        final Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(file)) {
+            properties.load(input);
+        }
+        return properties;
+    }
+
+    private void write(final String fileName, final String processedAt) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(OWNER, owner);
+        properties.setProperty(EXPIRES_AT, String.valueOf(System.currentTimeMillis() + ttlMillis));
+        if (processedAt != null) {
+            properties.setProperty(PROCESSED_AT, processedAt);
+        }
+        final File temporaryFile = File.createTempFile(fileName, ".tmp", directory);
+        try {
+            try (OutputStream output = new FileOutputStream(temporaryFile)) {
+                properties.store(output, "Lease of a mapping group");
+            }
+            Files.move(temporaryFile.toPath(), new File(directory, fileName).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            temporaryFile.delete();
+        }
+    }
+}
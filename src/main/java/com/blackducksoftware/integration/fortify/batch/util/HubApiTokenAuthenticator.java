@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.ServiceUnavailableRetryStrategy;
+import org.apache.http.protocol.HttpContext;
+import org.apache.log4j.Logger;
+
+/**
+ * This class authenticates the Hub requests with a bearer token obtained from a Hub API token. The bearer token is
+ * shared by all the threads for the lifetime of the process and renewed when it expires or when the Hub answers 401.
+ * The renewal is single flight: one thread logs in while the other threads wait for its token.
+ *
+ * It is registered on the Hub HTTP client as request interceptor, to add the bearer token, and as retry strategy, to
+ * retry once a request rejected with 401 after the token is renewed.
+ *
+ * @author smanikantan
+ *
+ */
+public final class HubApiTokenAuthenticator implements HttpRequestInterceptor, ServiceUnavailableRetryStrategy {
+
+    private final static Logger logger = Logger.getLogger(HubApiTokenAuthenticator.class);
+
+    public static final String AUTHENTICATE_PATH = "/api/tokens/authenticate";
+
+    // Name of the context attribute holding the bearer token sent with the request
+    private static final String BEARER_TOKEN_ATTRIBUTE = HubApiTokenAuthenticator.class.getName() + ".bearerToken";
+
+    // The token is renewed a bit before it expires, so that it doesn't expire in flight
+    private static final long EXPIRY_MARGIN_MILLIS = TimeUnit.SECONDS.toMillis(60);
+
+    private final TokenRequester tokenRequester;
+
+    private final AtomicReference<BearerToken> bearerToken = new AtomicReference<>();
+
+    private final ReentrantLock loginLock = new ReentrantLock();
+
+    private final AtomicLong logins = new AtomicLong();
+
+    private final AtomicLong loginFailures = new AtomicLong();
+
+    private final AtomicLong loginNanos = new AtomicLong();
+
+    private final AtomicLong maxLoginNanos = new AtomicLong();
+
+    private final AtomicLong unauthorizedResponses = new AtomicLong();
+
+    private final AtomicLong sharedLogins = new AtomicLong();
+
+    private volatile long lastLoginMillis;
+
+    public HubApiTokenAuthenticator(final TokenRequester tokenRequester) {
+        this.tokenRequester = tokenRequester;
+    }
+
+    @Override
+    public void process(final HttpRequest request, final HttpContext context) throws IOException {
+        if (request.getRequestLine().getUri().contains(AUTHENTICATE_PATH)) {
+            return;
+        }
+        final String token = getBearerToken();
+        context.setAttribute(BEARER_TOKEN_ATTRIBUTE, token);
+        request.setHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+    }
+
+    @Override
+    public boolean retryRequest(final HttpResponse response, final int executionCount, final HttpContext context) {
+        if (response.getStatusLine().getStatusCode() != HttpStatus.SC_UNAUTHORIZED) {
+            return false;
+        }
+        unauthorizedResponses.incrementAndGet();
+        final Object token = context.getAttribute(BEARER_TOKEN_ATTRIBUTE);
+        if (token == null || executionCount > 1) {
+            return false;
+        }
+        invalidate((String) token);
+        return true;
+    }
+
+    @Override
+    public long getRetryInterval() {
+        return 0;
+    }
+
+    /**
+     * Get the current bearer token, log in if there is none or it is expired
+     *
+     * @return
+     * @throws IOException
+     */
+    public String getBearerToken() throws IOException {
+        final BearerToken current = bearerToken.get();
+        if (current != null && !current.isExpired(System.currentTimeMillis())) {
+            return current.getToken();
+        }
+        return login(current);
+    }
+
+    /**
+     * Invalidate the bearer token rejected by the Hub, unless it is already renewed
+     *
+     * @param rejectedToken
+     */
+    public void invalidate(final String rejectedToken) {
+        final BearerToken current = bearerToken.get();
+        if (current != null && current.getToken().equals(rejectedToken) && bearerToken.compareAndSet(current, null)) {
+            logger.info("Hub bearer token rejected, it will be renewed");
+        }
+    }
+
+    private String login(final BearerToken staleToken) throws IOException {
+        loginLock.lock();
+        try {
+            // Another thread renewed the token while this one was waiting
+            final BearerToken current = bearerToken.get();
+            if (current != null && current != staleToken && !current.isExpired(System.currentTimeMillis())) {
+                sharedLogins.incrementAndGet();
+                return current.getToken();
+            }
+
+            final long startTime = System.nanoTime();
+            final BearerToken renewedToken;
+            try {
+                renewedToken = tokenRequester.requestToken();
+            } catch (final IOException e) {
+                loginFailures.incrementAndGet();
+                throw e;
+            }
+            final long elapsedNanos = System.nanoTime() - startTime;
+            loginNanos.addAndGet(elapsedNanos);
+            maxLoginNanos.accumulateAndGet(elapsedNanos, Math::max);
+            final long loginCount = logins.incrementAndGet();
+            final long now = System.currentTimeMillis();
+            logger.info("Hub API token login::" + loginCount + " took::" + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms"
+                    + (lastLoginMillis > 0 ? ", previous login::" + TimeUnit.MILLISECONDS.toSeconds(now - lastLoginMillis) + " s ago" : ""));
+            lastLoginMillis = now;
+            bearerToken.set(renewedToken);
+            return renewedToken.getToken();
+        } finally {
+            loginLock.unlock();
+        }
+    }
+
+    public long getLogins() {
+        return logins.get();
+    }
+
+    public long getLoginFailures() {
+        return loginFailures.get();
+    }
+
+    public long getUnauthorizedResponses() {
+        return unauthorizedResponses.get();
+    }
+
+    public long getSharedLogins() {
+        return sharedLogins.get();
+    }
+
+    /**
+     * Log the number of logins and their latency
+     */
+    public void logStatistics() {
+        final long loginCount = logins.get();
+        logger.info("Hub API token logins::" + loginCount + ", failures::" + loginFailures.get() + ", average login time::"
+                + (loginCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(loginNanos.get() / loginCount)) + " ms, max login time::"
+                + TimeUnit.NANOSECONDS.toMillis(maxLoginNanos.get()) + " ms, 401 responses::" + unauthorizedResponses.get()
+                + ", logins shared by the waiting threads::" + sharedLogins.get());
+    }
+
+    /**
+     * This interface is used to exchange the API token for a bearer token
+     */
+    @FunctionalInterface
+    public interface TokenRequester {
+        BearerToken requestToken() throws IOException;
+    }
+
+    /**
+     * Bearer token returned by the Hub, with its expiry time
+     */
+    public static final class BearerToken {
+
+        private final String token;
+
+        private final long expiresAtMillis;
+
+        /**
+         * @param token
+         * @param expiresInMillis
+         *            validity of the token, 0 or less if it is unknown, the token is then used until it is rejected
+         */
+        public BearerToken(final String token, final long expiresInMillis) {
+            this.token = token;
+            this.expiresAtMillis = expiresInMillis > 0 ? System.currentTimeMillis() + expiresInMillis - Math.min(EXPIRY_MARGIN_MILLIS, expiresInMillis / 2)
+                    : Long.MAX_VALUE;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        private boolean isExpired(final long now) {
+            return now >= expiresAtMillis;
+        }
+    }
+}
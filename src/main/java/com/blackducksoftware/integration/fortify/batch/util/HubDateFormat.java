@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * This class parses the dates of the Hub responses that are read without the Gson of the Hub services. The dates are
+ * parsed the same way: with the Hub date format in the default time zone, else as ISO 8601 dates.
+ *
+ * @author smanikantan
+ *
+ */
+public final class HubDateFormat {
+
+    private static final String HUB_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'";
+
+    private HubDateFormat() {
+    }
+
+    /**
+     * Create the date format of the Hub responses, it is not thread safe
+     *
+     * @return
+     */
+    public static SimpleDateFormat create() {
+        return new SimpleDateFormat(HUB_DATE_FORMAT, Locale.US);
+    }
+
+    /**
+     * Parse a date of a Hub response
+     *
+     * @param value
+     * @param dateFormat
+     *            date format created by {@link #create()}
+     * @return
+     * @throws IOException
+     *             if the value is not a date
+     */
+    public static Date parse(final String value, final SimpleDateFormat dateFormat) throws IOException {
+        try {
+            return dateFormat.parse(value);
+        } catch (final ParseException e) {
+            // Same fallback as Gson, the date is an ISO 8601 date with a time zone
+            try {
+                return DatatypeConverter.parseDateTime(value).getTime();
+            } catch (final IllegalArgumentException e1) {
+                throw new IOException("Invalid date " + value + " in the Hub response", e1);
+            }
+        }
+    }
+}
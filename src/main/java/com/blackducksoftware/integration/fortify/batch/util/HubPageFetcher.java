@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import com.blackducksoftware.integration.exception.IntegrationException;
+
+/**
+ * This interface is used to fetch one page of a Hub list
+ *
+ * @author smanikantan
+ *
+ */
+@FunctionalInterface
+public interface HubPageFetcher<T> {
+
+    /**
+     * Fetch the page
+     *
+     * @param offset
+     * @param limit
+     * @return the page, the Hub may return fewer items than the limit
+     * @throws IntegrationException
+     */
+    HubPage<T> fetch(int offset, int limit) throws IntegrationException;
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.log4j.Logger;
+
+import com.blackducksoftware.integration.exception.IntegrationException;
+import com.blackducksoftware.integration.hub.api.generated.view.ProjectVersionView;
+
+/**
+ * This class indexes the Hub project versions by project name and version name for a run. The versions of a project are
+ * listed once, on the first lookup of the project, and every later lookup of the project is answered from the list.
+ * Concurrent lookups of the same project wait for a single listing.
+ *
+ * The URL of the projects can be kept across the runs in a file, so that the next runs get the projects by URL instead
+ * of searching them by name. A URL is only checked when it is used, the caller removes it when it is not valid anymore.
+ *
+ * @author smanikantan
+ *
+ */
+public final class HubProjectVersionIndex {
+
+    private final static Logger logger = Logger.getLogger(HubProjectVersionIndex.class);
+
+    private final File file;
+
+    // Versions of the projects listed in the run, by version name
+    private final Map<String, FutureTask<Map<String, ProjectVersionView>>> projectVersions = new ConcurrentHashMap<>();
+
+    // URL of the projects, by project name
+    private final Map<String, String> projectUrls = new ConcurrentHashMap<>();
+
+    private volatile boolean modified;
+
+    /**
+     * Create the index and load the URL of the projects that are stored by the previous runs
+     *
+     * @param file
+     *            file of the URL of the projects, or null if they are not kept across the runs
+     */
+    public HubProjectVersionIndex(final File file) {
+        this.file = file;
+        if (file != null && file.isFile()) {
+            final Properties properties = new Properties();
+            try (InputStream input = new FileInputStream(file)) {
+                properties.load(input);
+                for (String projectName : properties.stringPropertyNames()) {
+                    projectUrls.put(projectName, properties.getProperty(projectName));
+                }
+                logger.info("Loaded the URL of " + projectUrls.size() + " Hub projects from " + file);
+            } catch (final IOException e) {
+                logger.warn("Unable to read the Hub project index " + file + ", the projects are searched by name", e);
+            }
+        }
+    }
+
+    /**
+     * Get the Hub project version from the versions of the project, they are listed on the first call for the project
+     *
+     * @param projectName
+     * @param versionName
+     * @param loader
+     *            lists the versions of a project
+     * @return the project version, or null if the project has no version with this name
+     * @throws IntegrationException
+     */
+    public ProjectVersionView getProjectVersion(final String projectName, final String versionName, final ProjectVersionsLoader loader)
+            throws IntegrationException {
+        return getProjectVersions(projectName, loader).get(versionName);
+    }
+
+    /**
+     * Get the versions of the project, they are listed on the first call for the project
+     *
+     * @param projectName
+     * @param loader
+     *            lists the versions of a project
+     * @return the versions by version name
+     * @throws IntegrationException
+     */
+    public Map<String, ProjectVersionView> getProjectVersions(final String projectName, final ProjectVersionsLoader loader) throws IntegrationException {
+        final FutureTask<Map<String, ProjectVersionView>> versions = projectVersions.computeIfAbsent(projectName,
+                name -> new FutureTask<>(() -> loader.load(name)));
+        // Only the first caller lists the versions, the others wait for it
+        versions.run();
+        try {
+            return versions.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IntegrationException("Interrupted while listing the versions of the Hub project " + projectName, e);
+        } catch (final ExecutionException e) {
+            // The listing is retried by the next lookup
+            projectVersions.remove(projectName, versions);
+            if (e.getCause() instanceof IntegrationException) {
+                throw (IntegrationException) e.getCause();
+            }
+            throw new IntegrationException("Error while listing the versions of the Hub project " + projectName, e.getCause());
+        }
+    }
+
+    /**
+     * Add a project version that is found after the versions of the project are listed
+     *
+     * @param projectName
+     * @param projectVersionView
+     */
+    public void addProjectVersion(final String projectName, final ProjectVersionView projectVersionView) {
+        final FutureTask<Map<String, ProjectVersionView>> versions = projectVersions.get(projectName);
+        if (versions != null && versions.isDone()) {
+            try {
+                versions.get().put(projectVersionView.versionName, projectVersionView);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final ExecutionException e) {
+                // The listing failed, the version is found again by the next lookup
+            }
+        }
+    }
+
+    /**
+     * Forget the versions listed in the run, the URL of the projects are kept
+     */
+    public void clear() {
+        projectVersions.clear();
+    }
+
+    public String getProjectUrl(final String projectName) {
+        return projectUrls.get(projectName);
+    }
+
+    public void putProjectUrl(final String projectName, final String projectUrl) {
+        if (!projectUrl.equals(projectUrls.put(projectName, projectUrl))) {
+            modified = true;
+        }
+    }
+
+    public void removeProjectUrl(final String projectName) {
+        if (projectUrls.remove(projectName) != null) {
+            modified = true;
+        }
+    }
+
+    /**
+     * Store the URL of the projects for the next runs, if they are changed
+     */
+    public synchronized void save() {
+        if (file == null || !modified) {
+            return;
+        }
+        modified = false;
+        final Properties properties = new Properties();
+        properties.putAll(projectUrls);
+        try {
+            final File directory = file.getAbsoluteFile().getParentFile();
+            directory.mkdirs();
+            final File temporaryFile = File.createTempFile(file.getName(), ".tmp", directory);
+            try {
+                try (OutputStream output = new FileOutputStream(temporaryFile)) {
+                    properties.store(output, "URL of the Hub projects by name");
+                }
+                Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                temporaryFile.delete();
+            }
+        } catch (final IOException e) {
+            modified = true;
+            logger.warn("Unable to write the Hub project index " + file, e);
+        }
+    }
+
+    /**
+     * This interface is used to list the versions of a Hub project
+     */
+    @FunctionalInterface
+    public interface ProjectVersionsLoader {
+
+        /**
+         * List the versions of the project
+         *
+         * @param projectName
+         * @return the versions by version name, the map must accept concurrent updates
+         * @throws IntegrationException
+         */
+        Map<String, ProjectVersionView> load(String projectName) throws IntegrationException;
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This class will be used to store the Hub GET responses on disk, with their ETag and Last-Modified validators, so that
+ * they can be revalidated with a conditional GET in the next runs. The entries are evicted in the least recently used
+ * order when the total size of the bodies is above the maximum size. The bodies above the maximum entry size are not
+ * cached, so that they are streamed to the Hub services.
+ *
+ * @author smanikantan
+ *
+ */
+public final class HubResponseCache {
+
+    private final static Logger logger = Logger.getLogger(HubResponseCache.class);
+
+    private static final String ENTRY_SUFFIX = ".entry";
+
+    private final File directory;
+
+    private final long maximumEntryBytes;
+
+    // Entries in the least recently used order
+    private final FileLruIndex<Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong savedBytes = new AtomicLong();
+
+    /**
+     * Create the cache and load the entries that are stored in the directory by the previous runs
+     *
+     * @param directory
+     * @param maximumBytes
+     * @throws IOException
+     */
+    public HubResponseCache(final File directory, final long maximumBytes) throws IOException {
+        this(directory, maximumBytes, maximumBytes);
+    }
+
+    /**
+     * Create the cache and load the entries that are stored in the directory by the previous runs
+     *
+     * @param directory
+     * @param maximumBytes
+     * @param maximumEntryBytes
+     *            maximum size of a cached body
+     * @throws IOException
+     */
+    public HubResponseCache(final File directory, final long maximumBytes, final long maximumEntryBytes) throws IOException {
+        this.directory = directory;
+        this.maximumEntryBytes = Math.min(maximumBytes, maximumEntryBytes);
+        this.entries = new FileLruIndex<>(maximumBytes);
+        Files.createDirectories(directory.toPath());
+        load();
+    }
+
+    /**
+     * Validators and metadata of a cached response, the body stays on disk
+     */
+    public static final class Entry extends FileLruIndex.Entry {
+        private final String eTag;
+
+        private final String lastModified;
+
+        private final String contentType;
+
+        private final File file;
+
+        private Entry(String key, String eTag, String lastModified, String contentType, int length, File file) {
+            super(key, length);
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.file = file;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        void delete() {
+            file.delete();
+        }
+    }
+
+    /**
+     * Cached response read from disk, the validators are the ones stored with the body
+     */
+    public static final class CachedResponse {
+        private final String eTag;
+
+        private final String lastModified;
+
+        private final String contentType;
+
+        private final byte[] body;
+
+        private CachedResponse(String eTag, String lastModified, String contentType, byte[] body) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * Get the cached entry of the key
+     *
+     * @param key
+     * @return the entry, or null if the response is not cached
+     */
+    public Entry get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Read the cached response of the key. The validators and the body are read from the same file, an entry that is
+     * replaced or evicted while it is read is either read in full or not at all
+     *
+     * @param key
+     * @return the response, or null if the response is not cached or can't be read anymore
+     */
+    public CachedResponse read(String key) {
+        final Entry entry = get(key);
+        if (entry == null) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(entry.file)))) {
+            final String[] header = readHeader(input);
+            if (!key.equals(header[0])) {
+                return null;
+            }
+            final byte[] body = new byte[input.readInt()];
+            input.readFully(body);
+            return new CachedResponse(emptyToNull(header[1]), emptyToNull(header[2]), emptyToNull(header[3]), body);
+        } catch (FileNotFoundException e) {
+            // Evicted after it was got
+            entries.remove(entry);
+            return null;
+        } catch (IOException e) {
+            logger.warn("Unable to read the cached Hub response " + entry.file, e);
+            entries.remove(entry);
+            return null;
+        }
+    }
+
+    /**
+     * Get the maximum size of a cached body, the larger responses are not cached
+     *
+     * @return
+     */
+    public long getMaximumEntryBytes() {
+        return maximumEntryBytes;
+    }
+
+    /**
+     * Store the response body with its validators, replacing the previous entry of the key
+     *
+     * @param key
+     * @param eTag
+     * @param lastModified
+     * @param contentType
+     * @param body
+     */
+    public void put(String key, String eTag, String lastModified, String contentType, byte[] body) {
+        if (body.length > maximumEntryBytes) {
+            return;
+        }
+        final File file = new File(directory, FileLruIndex.hash(key) + ENTRY_SUFFIX);
+        try {
+            final File temporaryFile = File.createTempFile("response", ".tmp", directory);
+            try {
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+                    output.writeUTF(key);
+                    output.writeUTF(eTag == null ? "" : eTag);
+                    output.writeUTF(lastModified == null ? "" : lastModified);
+                    output.writeUTF(contentType == null ? "" : contentType);
+                    output.writeInt(body.length);
+                    output.write(body);
+                }
+                synchronized (entries) {
+                    Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    entries.put(new Entry(key, eTag, lastModified, contentType, body.length, file));
+                }
+            } finally {
+                temporaryFile.delete();
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to cache the Hub response of " + key, e);
+        }
+    }
+
+    /**
+     * Record a response that was served from the cache after a 304 Not Modified
+     *
+     * @param length
+     */
+    public void recordHit(int length) {
+        hits.incrementAndGet();
+        savedBytes.addAndGet(length);
+    }
+
+    /**
+     * Record a response that was downloaded in full
+     */
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getTotalBytes() {
+        return entries.getTotalBytes();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Log the hit and miss counts and the size of the cache
+     */
+    public void logStatistics() {
+        final long hitCount = hits.get();
+        final long missCount = misses.get();
+        final long requestCount = hitCount + missCount;
+        logger.info("Hub response cache hits::" + hitCount + ", misses::" + missCount + ", hit ratio::"
+                + String.format("%.1f%%", requestCount == 0 ? 0d : hitCount * 100d / requestCount) + ", bytes not downloaded::" + savedBytes.get()
+                + ", entries::" + size() + ", bytes::" + getTotalBytes());
+    }
+
+    /**
+     * Load the entries of the previous runs, the least recently written first
+     */
+    private void load() {
+        for (File file : FileLruIndex.listFiles(directory, ENTRY_SUFFIX)) {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                final String[] header = readHeader(input);
+                final int length = input.readInt();
+                entries.put(new Entry(header[0], emptyToNull(header[1]), emptyToNull(header[2]), emptyToNull(header[3]), length, file));
+            } catch (IOException e) {
+                logger.warn("Removing the unreadable cached Hub response " + file, e);
+                file.delete();
+            }
+        }
+        logger.info("Loaded " + entries.size() + " cached Hub responses, bytes::" + entries.getTotalBytes());
+    }
+
+    private static String[] readHeader(DataInputStream input) throws IOException {
+        return new String[] { input.readUTF(), input.readUTF(), input.readUTF(), input.readUTF() };
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
@@ -22,20 +22,52 @@
  */
 package com.blackducksoftware.integration.fortify.batch.util;
 
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpStatus;
 import org.apache.log4j.Logger;
 
 import com.blackducksoftware.integration.exception.EncryptionException;
 import com.blackducksoftware.integration.exception.IntegrationException;
-import com.blackducksoftware.integration.fortify.batch.model.VersionRiskProfileView;
+import com.blackducksoftware.integration.fortify.batch.model.HubProjectVersion;
+import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
 import com.blackducksoftware.integration.hub.api.generated.view.ProjectVersionView;
+import com.blackducksoftware.integration.hub.api.generated.view.ProjectView;
 import com.blackducksoftware.integration.hub.api.generated.view.VulnerableComponentView;
 import com.blackducksoftware.integration.hub.api.view.MetaHandler;
 import com.blackducksoftware.integration.hub.exception.HubIntegrationException;
 import com.blackducksoftware.integration.hub.request.Request;
+import com.blackducksoftware.integration.hub.request.Response;
+import com.blackducksoftware.integration.hub.rest.exception.IntegrationRestException;
 import com.blackducksoftware.integration.hub.service.HubService;
 import com.blackducksoftware.integration.hub.service.HubServicesFactory;
 import com.blackducksoftware.integration.hub.service.PhoneHomeService;
@@ -43,6 +75,13 @@ import com.blackducksoftware.integration.hub.service.ProjectService;
 import com.blackducksoftware.integration.hub.service.model.ProjectVersionWrapper;
 import com.blackducksoftware.integration.hub.service.model.RequestFactory;
 import com.blackducksoftware.integration.log.IntBufferedLogger;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
 /**
  * This class will be used as REST client to access the Hub API's
@@ -54,10 +93,86 @@ public final class HubServices {
 
     private final static Logger logger = Logger.getLogger(HubServices.class);
 
+    private static final String NOTIFICATIONS_PATH = "/api/notifications";
+
+    private static final int NOTIFICATIONS_PAGE_SIZE = 100;
+
+    // Hub project version link, followed by the link of one of its children, such as a BOM component
+    private static final Pattern PROJECT_VERSION_LINK_PATTERN = Pattern.compile("^(.*/api/projects/[^/]+)/versions/([^/?]+)");
+
+    private static final String LIST_MIME_TYPE = "application/vnd.blackducksoftware.list-1+json";
+
     private final HubServicesFactory hubServicesFactory;
 
+    private final PropertyConstants propertyConstants;
+
+    private final AdaptivePageSize pageSize;
+
+    private ExecutorService pagingExecutor;
+
+    private final HubProjectVersionIndex projectVersionIndex;
+
+    private final VulnerabilitySnapshotStore vulnerabilitySnapshotStore;
+
+    private final CsvFragmentCache csvFragmentCache;
+
+    // Last BOM updated date of the project versions read in the run, by risk profile link
+    private final Map<String, FutureTask<Date>> bomLastUpdatedAtCache = new ConcurrentHashMap<>();
+
     public HubServices(final HubServicesFactory hubServicesFactory) {
+        this(hubServicesFactory, new PropertyConstants());
+    }
+
+    public HubServices(final HubServicesFactory hubServicesFactory, final PropertyConstants propertyConstants) {
         this.hubServicesFactory = hubServicesFactory;
+        this.propertyConstants = propertyConstants;
+        this.pageSize = new AdaptivePageSize(propertyConstants.getHubPagingPageSize(), propertyConstants.getHubPagingMinPageSize(),
+                propertyConstants.getHubPagingMaxPageSize(), propertyConstants.getHubPagingTargetLatencyMillis(),
+                propertyConstants.getHubPagingTargetBytes());
+        this.projectVersionIndex = propertyConstants.isHubProjectVersionIndex()
+                ? new HubProjectVersionIndex(StringUtils.isEmpty(propertyConstants.getHubProjectVersionIndexFile()) ? null
+                        : new File(propertyConstants.getHubProjectVersionIndexFile()))
+                : null;
+        this.vulnerabilitySnapshotStore = createVulnerabilitySnapshotStore(propertyConstants);
+        this.csvFragmentCache = createCsvFragmentCache(propertyConstants);
+    }
+
+    /**
+     * Create the store of the vulnerability snapshots when the snapshot directory is configured
+     *
+     * @param propertyConstants
+     * @return the store, or null if it is disabled or can't be created
+     */
+    private static VulnerabilitySnapshotStore createVulnerabilitySnapshotStore(final PropertyConstants propertyConstants) {
+        if (StringUtils.isEmpty(propertyConstants.getVulnerabilitySnapshotDir())) {
+            return null;
+        }
+        try {
+            return new VulnerabilitySnapshotStore(new File(propertyConstants.getVulnerabilitySnapshotDir()),
+                    propertyConstants.getVulnerabilitySnapshotMaxBytes(), TimeUnit.HOURS.toMillis(propertyConstants.getVulnerabilitySnapshotMaxAgeHours()));
+        } catch (final IOException e) {
+            logger.warn("Unable to create the vulnerability snapshot store, the vulnerabilities are downloaded from the Hub", e);
+            return null;
+        }
+    }
+
+    /**
+     * Create the cache of the CSV fragments when the fragment directory is configured
+     *
+     * @param propertyConstants
+     * @return the cache, or null if it is disabled or can't be created
+     */
+    private static CsvFragmentCache createCsvFragmentCache(final PropertyConstants propertyConstants) {
+        if (StringUtils.isEmpty(propertyConstants.getCsvFragmentDir())) {
+            return null;
+        }
+        try {
+            return new CsvFragmentCache(new File(propertyConstants.getCsvFragmentDir()), propertyConstants.getCsvFragmentMaxBytes(),
+                    TimeUnit.HOURS.toMillis(propertyConstants.getCsvFragmentMaxAgeHours()));
+        } catch (final IOException e) {
+            logger.warn("Unable to create the CSV fragment cache, the CSV of the groups are rendered in full", e);
+            return null;
+        }
     }
 
     /**
@@ -72,10 +187,22 @@ public final class HubServices {
     public ProjectVersionView getProjectVersion(final String projectName, final String projectVersionName)
             throws IllegalArgumentException, IntegrationException {
         logger.info("Getting Hub project and project version info for::" + projectName + ", " + projectVersionName);
+        if (projectVersionIndex != null) {
+            final ProjectVersionView projectVersionView = projectVersionIndex.getProjectVersion(projectName, projectVersionName,
+                    this::loadProjectVersions);
+            if (projectVersionView != null) {
+                return projectVersionView;
+            }
+            // The version may be created after the versions of the project are listed
+            logger.debug("Project version " + projectVersionName + " is not in the versions of " + projectName + ", searching it");
+        }
         final ProjectService projectVersionRequestService = hubServicesFactory.createProjectService();
         final ProjectVersionWrapper projectVersionWrapper = projectVersionRequestService.getProjectVersion(projectName, projectVersionName);
         if (projectVersionWrapper != null && projectVersionWrapper.getProjectVersionView() != null) {
             logger.debug("ProjectVersionView::" + projectVersionWrapper.getProjectVersionView().json);
+            if (projectVersionIndex != null) {
+                projectVersionIndex.addProjectVersion(projectName, projectVersionWrapper.getProjectVersionView());
+            }
             return projectVersionWrapper.getProjectVersionView();
         } else {
             throw new IntegrationException("Project Version does not Exists!");
@@ -83,7 +210,138 @@ public final class HubServices {
     }
 
     /**
-     * Get the Vulnerability component views
+     * Get the Hub project version information of the mapping. A project version pinned by URL is got directly, without
+     * searching it, it is searched by name only if the pinned project version does not exist anymore
+     *
+     * @param hubProjectVersion
+     * @return
+     * @throws IllegalArgumentException
+     * @throws IntegrationException
+     */
+    public ProjectVersionView getProjectVersion(final HubProjectVersion hubProjectVersion) throws IllegalArgumentException, IntegrationException {
+        final String hubProjectVersionUrl = hubProjectVersion.getHubProjectVersionUrl();
+        if (hubProjectVersionUrl != null) {
+            logger.info("Getting Hub project version info for::" + hubProjectVersion.getHubProject() + ", " + hubProjectVersion.getHubProjectVersion()
+                    + " at::" + hubProjectVersionUrl);
+            try {
+                return hubServicesFactory.createHubService().getResponse(hubProjectVersionUrl, ProjectVersionView.class);
+            } catch (final IntegrationRestException e) {
+                if (e.getHttpStatusCode() != HttpStatus.SC_NOT_FOUND) {
+                    throw e;
+                }
+                logger.warn("Pinned Hub project version " + hubProjectVersionUrl + " is not found, searching it by name");
+            }
+        }
+        return getProjectVersion(hubProjectVersion.getHubProject(), hubProjectVersion.getHubProjectVersion());
+    }
+
+    /**
+     * Get all the versions of the Hub project. They are listed once per run when the project version index is enabled
+     *
+     * @param projectName
+     * @return
+     * @throws IntegrationException
+     */
+    public Collection<ProjectVersionView> getProjectVersions(final String projectName) throws IntegrationException {
+        if (projectVersionIndex != null) {
+            return projectVersionIndex.getProjectVersions(projectName, this::loadProjectVersions).values();
+        }
+        return loadProjectVersions(projectName).values();
+    }
+
+    /**
+     * List the versions of the Hub project. The project is got by the URL of the previous runs if it is known and still
+     * valid, else it is searched by name
+     *
+     * @param projectName
+     * @return the versions by version name
+     * @throws IntegrationException
+     */
+    private Map<String, ProjectVersionView> loadProjectVersions(final String projectName) throws IntegrationException {
+        final ProjectService projectService = hubServicesFactory.createProjectService();
+        ProjectView projectView = null;
+        final String projectUrl = projectVersionIndex == null ? null : projectVersionIndex.getProjectUrl(projectName);
+        if (projectUrl != null) {
+            try {
+                projectView = hubServicesFactory.createHubService().getResponse(projectUrl, ProjectView.class);
+            } catch (final IntegrationRestException e) {
+                if (e.getHttpStatusCode() != HttpStatus.SC_NOT_FOUND) {
+                    throw e;
+                }
+            }
+            if (projectView == null || !projectName.equals(projectView.name)) {
+                logger.info("Hub project " + projectName + " is not at " + projectUrl + " anymore, searching it by name");
+                projectVersionIndex.removeProjectUrl(projectName);
+                projectView = null;
+            }
+        }
+        if (projectView == null) {
+            projectView = projectService.getProjectByName(projectName);
+            if (projectVersionIndex != null) {
+                projectVersionIndex.putProjectUrl(projectName, new MetaHandler(new IntBufferedLogger()).getHref(projectView));
+            }
+        }
+
+        final Map<String, ProjectVersionView> projectVersions = new ConcurrentHashMap<>();
+        for (ProjectVersionView projectVersionView : projectService.getAllProjectVersions(projectView)) {
+            projectVersions.put(projectVersionView.versionName, projectVersionView);
+        }
+        logger.info("Listed " + projectVersions.size() + " versions of the Hub project " + projectName);
+        return projectVersions;
+    }
+
+    /**
+     * Forget the Hub project versions and the last BOM updated dates read by the previous run, it is called at the
+     * start of a run
+     */
+    public void clearRunCaches() {
+        if (projectVersionIndex != null) {
+            projectVersionIndex.clear();
+        }
+        bomLastUpdatedAtCache.clear();
+    }
+
+    /**
+     * Get the store of the vulnerability snapshots of the Hub project versions
+     *
+     * @return the store, or null if it is disabled
+     */
+    public VulnerabilitySnapshotStore getVulnerabilitySnapshotStore() {
+        return vulnerabilitySnapshotStore;
+    }
+
+    /**
+     * Get the cache of the CSV fragments of the Hub project versions
+     *
+     * @return the cache, or null if it is disabled
+     */
+    public CsvFragmentCache getCsvFragmentCache() {
+        return csvFragmentCache;
+    }
+
+    /**
+     * Get the URL of the Hub project version
+     *
+     * @param projectVersionItem
+     * @return
+     * @throws HubIntegrationException
+     */
+    public String getProjectVersionUrl(final ProjectVersionView projectVersionItem) throws HubIntegrationException {
+        return new MetaHandler(new IntBufferedLogger()).getHref(projectVersionItem);
+    }
+
+    /**
+     * Store the URL of the Hub projects for the next runs, it is called at the end of a run
+     */
+    public void saveProjectVersionIndex() {
+        if (projectVersionIndex != null) {
+            projectVersionIndex.save();
+        }
+    }
+
+    /**
+     * Get the Vulnerability component views. The first page gives the total count, then the other pages are fetched
+     * concurrently, and the items are returned in the order of the pages.
      *
      * @param projectVersionItem
      * @return
@@ -93,13 +351,247 @@ public final class HubServices {
         logger.info("Getting Hub Vulnerability info");
         if (projectVersionItem != null) {
             final HubService hubResponseService = hubServicesFactory.createHubService();
-            final Request.Builder requestBuilder = RequestFactory.createCommonGetRequestBuilder().addQueryParameter("limit", String.valueOf(500))
-                    .mimeType("application/vnd.blackducksoftware.list-1+json");
-            return hubResponseService.getResponses(projectVersionItem, ProjectVersionView.VULNERABLE_COMPONENTS_LINK_RESPONSE, requestBuilder, true);
+            final Gson gson = hubResponseService.getGson();
+            final String vulnerableComponentsLink = new MetaHandler(new IntBufferedLogger()).getFirstLink(projectVersionItem,
+                    ProjectVersionView.VULNERABLE_COMPONENTS_LINK);
+            return getAllPages(hubResponseService, vulnerableComponentsLink, reader -> {
+                int totalCount = 0;
+                final List<VulnerableComponentView> items = new ArrayList<>();
+                final JsonReader jsonReader = new JsonReader(reader);
+                jsonReader.beginObject();
+                while (jsonReader.hasNext()) {
+                    final String name = jsonReader.nextName();
+                    if ("totalCount".equals(name)) {
+                        totalCount = jsonReader.nextInt();
+                    } else if ("items".equals(name)) {
+                        jsonReader.beginArray();
+                        while (jsonReader.hasNext()) {
+                            items.add(gson.fromJson(jsonReader, VulnerableComponentView.class));
+                        }
+                        jsonReader.endArray();
+                    } else {
+                        jsonReader.skipValue();
+                    }
+                }
+                jsonReader.endObject();
+                return new HubPage<>(totalCount, items);
+            });
         }
         return new ArrayList<>();
     }
 
+    /**
+     * Get the vulnerabilities of the Hub project version. The vulnerable components are decoded straight into the CSV
+     * Vulnerability view while the pages are streamed, without building the Hub Component views
+     *
+     * @param projectVersionItem
+     * @param projectName
+     * @param projectVersionName
+     * @param maxBomUpdatedDate
+     * @param stringPool
+     * @return
+     * @throws IntegrationException
+     */
+    public List<Vulnerability> getVulnerabilities(final ProjectVersionView projectVersionItem, final String projectName, final String projectVersionName,
+            final Date maxBomUpdatedDate, final VulnerabilityStringPool stringPool) throws IntegrationException {
+        logger.info("Getting Hub Vulnerability info");
+        if (projectVersionItem != null) {
+            final HubService hubResponseService = hubServicesFactory.createHubService();
+            final String vulnerableComponentsLink = new MetaHandler(new IntBufferedLogger()).getFirstLink(projectVersionItem,
+                    ProjectVersionView.VULNERABLE_COMPONENTS_LINK);
+            return getAllPages(hubResponseService, vulnerableComponentsLink,
+                    new VulnerableComponentDecoder(projectName, projectVersionName, propertyConstants.getHubServerUrl(), maxBomUpdatedDate, stringPool));
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Get all the items of a Hub list. The first page gives the total count, then the other pages are fetched
+     * concurrently, at most hub.paging.max.concurrent.per.version at a time, with the page size adapted to the latency
+     * and the size of the responses. The items are returned in the order of the pages.
+     *
+     * @param hubResponseService
+     * @param link
+     * @param decoder
+     * @return
+     * @throws IntegrationException
+     */
+    <T> List<T> getAllPages(final HubService hubResponseService, final String link, final HubPageDecoder<T> decoder) throws IntegrationException {
+        return getAllPages(link, (offset, limit) -> getPage(hubResponseService, link, offset, limit, decoder));
+    }
+
+    /**
+     * Get all the items of a Hub list with the page fetcher. A page that is shorter than the limit, when the Hub caps
+     * the page size, is completed from the offset of its last item before the next pages are added
+     *
+     * @param link
+     * @param fetcher
+     * @return
+     * @throws IntegrationException
+     *             if the number of items doesn't match the total count
+     */
+    <T> List<T> getAllPages(final String link, final HubPageFetcher<T> fetcher) throws IntegrationException {
+        final HubPage<T> firstPage = fetcher.fetch(0, pageSize.get());
+        final int totalCount = firstPage.getTotalCount();
+        final List<T> items = new ArrayList<>(Math.max(totalCount, firstPage.getItems().size()));
+        items.addAll(firstPage.getItems());
+        if (firstPage.getItems().isEmpty() || items.size() >= totalCount) {
+            return items;
+        }
+
+        final Semaphore permits = new Semaphore(propertyConstants.getHubPagingMaxConcurrentPerVersion());
+        final List<Future<HubPage<T>>> pages = new ArrayList<>();
+        int missingCount = 0;
+        try {
+            final int start = items.size();
+            final int limit = pageSize.get();
+            for (int offset = start; offset < totalCount; offset += limit) {
+                permits.acquire();
+                final int pageOffset = offset;
+                try {
+                    pages.add(getPagingExecutor().submit(() -> {
+                        try {
+                            return fetcher.fetch(pageOffset, limit);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                } catch (final RejectedExecutionException e) {
+                    permits.release();
+                    throw new IntegrationException("Unable to fetch the page at offset " + pageOffset + " of " + link, e);
+                }
+            }
+            for (int i = 0; i < pages.size(); i++) {
+                final int pageOffset = start + i * limit;
+                final int pageEnd = Math.min(pageOffset + limit, totalCount);
+                final List<T> pageItems = pages.get(i).get().getItems();
+                items.addAll(pageItems.size() > pageEnd - pageOffset ? pageItems.subList(0, pageEnd - pageOffset) : pageItems);
+                if (pageOffset + pageItems.size() < pageEnd) {
+                    missingCount += pageEnd - pageOffset - pageItems.size();
+                    fetchRange(link, fetcher, pageOffset + pageItems.size(), pageEnd, items);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IntegrationException("Interrupted while fetching the pages of " + link, e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IntegrationException) {
+                throw (IntegrationException) e.getCause();
+            }
+            throw new IntegrationException("Error while fetching the pages of " + link, e.getCause());
+        } finally {
+            for (Future<HubPage<T>> page : pages) {
+                page.cancel(true);
+            }
+        }
+        if (items.size() != totalCount) {
+            // The rows missing from the Fortify report would not be noticed, the group fails instead
+            throw new IntegrationException("Fetched " + items.size() + " of " + totalCount + " items of " + link);
+        }
+        if (missingCount > 0) {
+            logger.info("Completed " + missingCount + " items of the pages shorter than the page size of " + link);
+        }
+        logger.debug("Fetched " + items.size() + " of " + totalCount + " items in " + (pages.size() + 1) + " pages of " + link);
+        return items;
+    }
+
+    /**
+     * Fetch the items from the offset to the end (exclusive), advancing by the number of items that each page returns
+     *
+     * @param link
+     * @param fetcher
+     * @param offset
+     * @param end
+     * @param items
+     *            receives the items
+     * @throws IntegrationException
+     */
+    private <T> void fetchRange(final String link, final HubPageFetcher<T> fetcher, int offset, final int end, final List<T> items)
+            throws IntegrationException {
+        while (offset < end) {
+            final List<T> pageItems = fetcher.fetch(offset, end - offset).getItems();
+            if (pageItems.isEmpty()) {
+                // The list is shorter than its total count, the count check reports it
+                return;
+            }
+            items.addAll(pageItems.size() > end - offset ? pageItems.subList(0, end - offset) : pageItems);
+            offset += pageItems.size();
+        }
+    }
+
+    /**
+     * Get one page of a Hub list, the latency and the size of the response are recorded to adapt the page size
+     *
+     * @param hubResponseService
+     * @param link
+     * @param offset
+     * @param limit
+     * @param decoder
+     * @return
+     * @throws IntegrationException
+     */
+    private <T> HubPage<T> getPage(final HubService hubResponseService, final String link, final int offset, final int limit,
+            final HubPageDecoder<T> decoder) throws IntegrationException {
+        final Request request = RequestFactory.createCommonGetRequestBuilder(link).addQueryParameter("limit", String.valueOf(limit))
+                .addQueryParameter("offset", String.valueOf(offset)).mimeType(LIST_MIME_TYPE).build();
+        final long startTime = System.nanoTime();
+        try (Response response = hubResponseService.executeRequest(request);
+                CountingInputStream inputStream = new CountingInputStream(response.getContent());
+                Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8)) {
+            final HubPage<T> page = decoder.decode(reader);
+            pageSize.record(page.getItems().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), inputStream.count);
+            return page;
+        } catch (final IOException e) {
+            throw new IntegrationException("Error while reading the page at offset " + offset + " of " + link, e);
+        }
+    }
+
+    /**
+     * Get the executor of the concurrent page requests, it is shared by all the Hub project versions
+     *
+     * @return
+     */
+    private synchronized ExecutorService getPagingExecutor() {
+        if (pagingExecutor == null) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            pagingExecutor = Executors.newFixedThreadPool(propertyConstants.getHubPagingThreads(), runnable -> {
+                final Thread thread = new Thread(runnable, "hub-paging-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return pagingExecutor;
+    }
+
+    /**
+     * Input stream that counts the bytes that are read
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(final InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int length = super.read(b, off, len);
+            if (length > 0) {
+                count += length;
+            }
+            return length;
+        }
+    }
+
     /**
      * Get the Hub Project version risk-profile url
      *
@@ -116,7 +608,8 @@ public final class HubServices {
     }
 
     /**
-     * Get the Hub project version last BOM updated date for the given project version
+     * Get the Hub project version last BOM updated date for the given project version. The date is read once per run
+     * for a project version, the groups that map the same project version share it
      *
      * @param projectVersionItem
      * @return
@@ -127,14 +620,161 @@ public final class HubServices {
         if (projectVersionItem != null) {
             final String riskProfileLink = getProjectVersionRiskProfileUrl(projectVersionItem);
             logger.debug("riskProfileLink::" + riskProfileLink);
-            final HubService hubResponseService = hubServicesFactory.createHubService();
-            final VersionRiskProfileView versionRiskProfileView = hubResponseService.getResponse(riskProfileLink, VersionRiskProfileView.class);
-            // logger.debug("versionRiskProfileView::" + versionRiskProfileView.json);
-            return versionRiskProfileView.getBomLastUpdatedAt();
+            final FutureTask<Date> bomLastUpdatedAt = bomLastUpdatedAtCache.computeIfAbsent(riskProfileLink,
+                    link -> new FutureTask<>(() -> readBomLastUpdatedAt(link)));
+            // Only the first caller reads the risk profile, the others wait for it
+            bomLastUpdatedAt.run();
+            try {
+                return bomLastUpdatedAt.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IntegrationException("Interrupted while reading " + riskProfileLink, e);
+            } catch (final ExecutionException e) {
+                // The risk profile is read again by the next call
+                bomLastUpdatedAtCache.remove(riskProfileLink, bomLastUpdatedAt);
+                if (e.getCause() instanceof IntegrationException) {
+                    throw (IntegrationException) e.getCause();
+                }
+                throw new IntegrationException("Error while reading " + riskProfileLink, e.getCause());
+            }
         }
         return null;
     }
 
+    /**
+     * Read the last BOM updated date of the risk profile. Only this date is decoded, the risk categories are skipped
+     *
+     * @param riskProfileLink
+     * @return
+     * @throws IntegrationException
+     */
+    private Date readBomLastUpdatedAt(final String riskProfileLink) throws IntegrationException {
+        final HubService hubResponseService = hubServicesFactory.createHubService();
+        try (Response response = hubResponseService.executeGetRequest(riskProfileLink);
+                Reader reader = new InputStreamReader(response.getContent(), StandardCharsets.UTF_8)) {
+            Date bomLastUpdatedAt = null;
+            final JsonReader jsonReader = new JsonReader(reader);
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                if ("bomLastUpdatedAt".equals(jsonReader.nextName()) && jsonReader.peek() == JsonToken.STRING) {
+                    bomLastUpdatedAt = HubDateFormat.parse(jsonReader.nextString(), HubDateFormat.create());
+                } else {
+                    // The rest of the risk profile is consumed so that the connection can be reused
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+            return bomLastUpdatedAt;
+        } catch (final IOException | IllegalStateException e) {
+            throw new IntegrationException("Error while reading the last BOM updated date of " + riskProfileLink, e);
+        }
+    }
+
+    /**
+     * Get the Hub project versions that are referenced by the Hub notifications of the given types between the start
+     * date and the end date. The notifications give the project and version names, or the link of the project version
+     * or of one of its children, such as a BOM component; the links are resolved to the names.
+     *
+     * @param startDate
+     * @param endDate
+     * @param notificationTypes
+     * @return
+     * @throws IntegrationException
+     */
+    public Set<HubProjectVersion> getNotifiedProjectVersions(final Date startDate, final Date endDate, final Set<String> notificationTypes)
+            throws IntegrationException {
+        logger.info("Getting Hub notifications from " + startDate + " to " + endDate);
+        if (propertyConstants.getHubServerUrl() == null) {
+            throw new IntegrationException("Hub server URL is not configured for the notifications");
+        }
+        final HubService hubResponseService = hubServicesFactory.createHubService();
+        final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        final String notificationsUrl = propertyConstants.getHubServerUrl() + NOTIFICATIONS_PATH;
+
+        final Set<HubProjectVersion> projectVersions = new HashSet<>();
+        final Set<String> projectVersionLinks = new HashSet<>();
+        int offset = 0;
+        int totalCount;
+        int notificationCount = 0;
+        do {
+            final Request request = RequestFactory.createCommonGetRequestBuilder(notificationsUrl)
+                    .addQueryParameter("startDate", dateFormat.format(startDate)).addQueryParameter("endDate", dateFormat.format(endDate))
+                    .addQueryParameter("limit", String.valueOf(NOTIFICATIONS_PAGE_SIZE)).addQueryParameter("offset", String.valueOf(offset))
+                    .mimeType("application/json").build();
+            final JsonObject page;
+            try (Response response = hubResponseService.executeRequest(request)) {
+                page = new JsonParser().parse(response.getContentString()).getAsJsonObject();
+            }
+            totalCount = page.has("totalCount") ? page.get("totalCount").getAsInt() : 0;
+            final JsonArray items = page.has("items") ? page.getAsJsonArray("items") : new JsonArray();
+            for (JsonElement item : items) {
+                final JsonObject notification = item.getAsJsonObject();
+                final String type = notification.has("type") ? notification.get("type").getAsString() : null;
+                if (notificationTypes.contains(type) && notification.has("content")) {
+                    collectProjectVersions(notification.get("content"), projectVersions, projectVersionLinks);
+                }
+            }
+            notificationCount += items.size();
+            offset += NOTIFICATIONS_PAGE_SIZE;
+            if (items.size() == 0) {
+                break;
+            }
+        } while (offset < totalCount);
+
+        // Resolve the links that were not given with their names
+        final Map<String, String> projectNames = new HashMap<>();
+        for (String projectVersionLink : projectVersionLinks) {
+            final Matcher matcher = PROJECT_VERSION_LINK_PATTERN.matcher(projectVersionLink);
+            if (matcher.find()) {
+                final String projectLink = matcher.group(1);
+                String projectName = projectNames.get(projectLink);
+                if (projectName == null) {
+                    projectName = getName(hubResponseService, projectLink, "name");
+                    projectNames.put(projectLink, projectName);
+                }
+                projectVersions.add(new HubProjectVersion(projectName, getName(hubResponseService, matcher.group(0), "versionName")));
+            }
+        }
+        logger.info("Found " + projectVersions.size() + " Hub project versions in " + notificationCount + " notifications");
+        return projectVersions;
+    }
+
+    /**
+     * Collect the project and version names, or else the project version links, of the notification content
+     *
+     * @param element
+     * @param projectVersions
+     * @param projectVersionLinks
+     */
+    private void collectProjectVersions(final JsonElement element, final Set<HubProjectVersion> projectVersions, final Set<String> projectVersionLinks) {
+        if (element.isJsonArray()) {
+            for (JsonElement child : element.getAsJsonArray()) {
+                collectProjectVersions(child, projectVersions, projectVersionLinks);
+            }
+        } else if (element.isJsonObject()) {
+            final JsonObject object = element.getAsJsonObject();
+            if (object.has("projectName") && object.has("projectVersionName")) {
+                projectVersions.add(new HubProjectVersion(object.get("projectName").getAsString(), object.get("projectVersionName").getAsString()));
+                return;
+            }
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                collectProjectVersions(entry.getValue(), projectVersions, projectVersionLinks);
+            }
+        } else if (element.isJsonPrimitive() && element.getAsJsonPrimitive().isString()) {
+            final Matcher matcher = PROJECT_VERSION_LINK_PATTERN.matcher(element.getAsString());
+            if (matcher.find()) {
+                projectVersionLinks.add(matcher.group(0));
+            }
+        }
+    }
+
+    private String getName(final HubService hubResponseService, final String link, final String nameField) throws IntegrationException {
+        try (Response response = hubResponseService.executeGetRequest(link)) {
+            return new JsonParser().parse(response.getContentString()).getAsJsonObject().get(nameField).getAsString();
+        }
+    }
+
     public PhoneHomeService getPhoneHomeDataService() {
         logger.info("Getting Phone Home Data Service");
         final PhoneHomeService phoneHomeDataService = hubServicesFactory.createPhoneHomeService();
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+/**
+ * This class will be used to watch the mapping file and run the listener once the file is changed. An edit often
+ * writes the file more than once, the listener is run when the file is not changed for the quiet period.
+ *
+ * @author smanikantan
+ *
+ */
+public final class MappingFileWatcher implements Closeable {
+
+    private final static Logger logger = Logger.getLogger(MappingFileWatcher.class);
+
+    private final Path directory;
+
+    private final Path fileName;
+
+    private final long quietPeriodMillis;
+
+    private final Runnable listener;
+
+    private WatchService watchService;
+
+    /**
+     * @param mappingFile
+     * @param quietPeriodMillis
+     *            time without change of the file before the listener is run
+     * @param listener
+     *            run in the thread of the watcher
+     */
+    public MappingFileWatcher(final File mappingFile, final long quietPeriodMillis, final Runnable listener) {
+        final Path path = mappingFile.getAbsoluteFile().toPath();
+        this.directory = path.getParent();
+        this.fileName = path.getFileName();
+        this.quietPeriodMillis = quietPeriodMillis;
+        this.listener = listener;
+    }
+
+    /**
+     * Start to watch the mapping file in a daemon thread
+     *
+     * @throws IOException
+     */
+    public synchronized void start() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        // The editors that save through a temporary file create the file again
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        final WatchService service = watchService;
+        final Thread thread = new Thread(() -> watch(service), "mapping-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Watching the mapping file " + directory.resolve(fileName));
+    }
+
+    private void watch(final WatchService service) {
+        try {
+            while (true) {
+                if (!isMappingFileChanged(service.take())) {
+                    continue;
+                }
+                // Wait until the file is not changed anymore
+                WatchKey key;
+                while ((key = service.poll(quietPeriodMillis, TimeUnit.MILLISECONDS)) != null) {
+                    isMappingFileChanged(key);
+                }
+                try {
+                    listener.run();
+                } catch (RuntimeException e) {
+                    logger.error("Error while reloading the mapping file", e);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("Stopped watching the mapping file");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isMappingFileChanged(final WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            // An overflow may hide a change of the mapping file
+            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context());
+        }
+        key.reset();
+        return changed;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+    }
+}
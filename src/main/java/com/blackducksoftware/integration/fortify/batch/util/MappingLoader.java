@@ -0,0 +1,417 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import org.apache.log4j.Logger;
+
+import com.blackducksoftware.integration.fortify.batch.model.BlackDuckFortifyMapper;
+import com.blackducksoftware.integration.fortify.batch.model.BlackDuckFortifyMappingRule;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+/**
+ * This class will be used to load the mappings of the mapping.json file grouped by Fortify application version. The
+ * file is read as a stream, the mappings are grouped while they are read. The entries with a Hub project version
+ * pattern or phase are mapping rules, they are kept apart to be expanded by the Hub discovery. When the index file is
+ * set, the groups and the rules are stored in it in a binary form with the length and the CRC32 of the mapping file,
+ * and read from it while the mapping file is not changed.
+ *
+ * @author smanikantan
+ *
+ */
+public final class MappingLoader {
+
+    private final static Logger logger = Logger.getLogger(MappingLoader.class);
+
+    // Changed when the encoding of the index file or the mapping fields change
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private final File indexFile;
+
+    /**
+     * @param indexFile
+     *            file of the compiled mappings, or null to parse the mapping file in each run
+     */
+    public MappingLoader(final File indexFile) {
+        this.indexFile = indexFile;
+    }
+
+    /**
+     * Mappings of a Fortify application version, in the order of the mapping file
+     */
+    public static final class MappingGroup {
+        private final String fortifyApplication;
+
+        private final String fortifyApplicationVersion;
+
+        private final List<BlackDuckFortifyMapper> blackDuckFortifyMappers = new ArrayList<>();
+
+        private MappingGroup(String fortifyApplication, String fortifyApplicationVersion) {
+            this.fortifyApplication = fortifyApplication;
+            this.fortifyApplicationVersion = fortifyApplicationVersion;
+        }
+
+        public String getFortifyApplication() {
+            return fortifyApplication;
+        }
+
+        public String getFortifyApplicationVersion() {
+            return fortifyApplicationVersion;
+        }
+
+        public List<BlackDuckFortifyMapper> getBlackDuckFortifyMappers() {
+            return blackDuckFortifyMappers;
+        }
+    }
+
+    /**
+     * Mappings and mapping rules of the mapping file
+     */
+    public static final class Mapping {
+        private final List<MappingGroup> groups;
+
+        private final List<BlackDuckFortifyMappingRule> rules;
+
+        private Mapping(List<MappingGroup> groups, List<BlackDuckFortifyMappingRule> rules) {
+            this.groups = groups;
+            this.rules = rules;
+        }
+
+        public List<MappingGroup> getGroups() {
+            return groups;
+        }
+
+        public List<BlackDuckFortifyMappingRule> getRules() {
+            return rules;
+        }
+    }
+
+    /**
+     * Load the mappings of the mapping file grouped by Fortify application version, in the order of their first
+     * mapping, and its mapping rules
+     *
+     * @param filePath
+     * @return
+     * @throws IOException
+     */
+    public Mapping load(final String filePath) throws IOException {
+        final File mappingFile = new File(filePath);
+        if (!mappingFile.isFile()) {
+            throw new FileNotFoundException("Error finding the mapping.json file :: " + filePath);
+        }
+        final long length = mappingFile.length();
+        if (indexFile != null && indexFile.isFile()) {
+            final Mapping mapping = readIndex(length, checksum(mappingFile));
+            if (mapping != null) {
+                logger.info("Read " + mapping.groups.size() + " mapping groups and " + mapping.rules.size() + " mapping rules from the index " + indexFile);
+                return mapping;
+            }
+        }
+
+        final CRC32 checksum = new CRC32();
+        final Mapping mapping;
+        try (InputStream input = new CheckedInputStream(new FileInputStream(mappingFile), checksum)) {
+            mapping = parse(new InputStreamReader(new BufferedInputStream(input, BUFFER_SIZE), StandardCharsets.UTF_8));
+            // The checksum covers the whole file, including what follows the JSON array
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (input.read(buffer) >= 0) {
+            }
+        }
+        if (indexFile != null) {
+            writeIndex(mapping, length, checksum.getValue());
+        }
+        return mapping;
+    }
+
+    /**
+     * Parse the JSON array of the mappings and group them by Fortify application version
+     *
+     * @param reader
+     * @return
+     * @throws IOException
+     */
+    static Mapping parse(final Reader reader) throws IOException {
+        // The Fortify application and version names are compared as a pair, not concatenated
+        final Map<List<String>, MappingGroup> groups = new LinkedHashMap<>();
+        final List<BlackDuckFortifyMappingRule> rules = new ArrayList<>();
+        final JsonReader jsonReader = new JsonReader(reader);
+        // Gson reads the mapping file leniently
+        jsonReader.setLenient(true);
+        try {
+            jsonReader.beginArray();
+            while (jsonReader.hasNext()) {
+                final BlackDuckFortifyMapper blackDuckFortifyMapper = readMapper(jsonReader, rules);
+                if (blackDuckFortifyMapper != null) {
+                    addMapper(groups, blackDuckFortifyMapper);
+                }
+            }
+            jsonReader.endArray();
+        } catch (MalformedJsonException | IllegalStateException e) {
+            // Same error as the Gson binding of the mapping file
+            throw new JsonSyntaxException(e);
+        }
+        return new Mapping(new ArrayList<>(groups.values()), rules);
+    }
+
+    /**
+     * Add the mappings expanded from the mapping rules to the groups. A Hub project version that is already mapped to
+     * the Fortify application version is not added again, the mappings of the mapping file take precedence
+     *
+     * @param mappingGroups
+     * @param blackDuckFortifyMappers
+     * @return the groups with the added mappings, the given groups are not changed
+     */
+    static List<MappingGroup> addMappers(final List<MappingGroup> mappingGroups, final List<BlackDuckFortifyMapper> blackDuckFortifyMappers) {
+        final Map<List<String>, MappingGroup> groups = new LinkedHashMap<>();
+        for (MappingGroup mappingGroup : mappingGroups) {
+            for (BlackDuckFortifyMapper blackDuckFortifyMapper : mappingGroup.blackDuckFortifyMappers) {
+                addMapper(groups, blackDuckFortifyMapper);
+            }
+        }
+        for (BlackDuckFortifyMapper blackDuckFortifyMapper : blackDuckFortifyMappers) {
+            final MappingGroup group = groups
+                    .get(Arrays.asList(blackDuckFortifyMapper.getFortifyApplication(), blackDuckFortifyMapper.getFortifyApplicationVersion()));
+            if (group == null || group.blackDuckFortifyMappers.stream().noneMatch(mapper -> isSameHubProjectVersion(mapper, blackDuckFortifyMapper))) {
+                addMapper(groups, blackDuckFortifyMapper);
+            }
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    private static boolean isSameHubProjectVersion(final BlackDuckFortifyMapper mapper, final BlackDuckFortifyMapper other) {
+        return Objects.equals(mapper.getHubProject(), other.getHubProject()) && Objects.equals(mapper.getHubProjectVersion(), other.getHubProjectVersion());
+    }
+
+    private static void addMapper(final Map<List<String>, MappingGroup> groups, final BlackDuckFortifyMapper blackDuckFortifyMapper) {
+        final String fortifyApplication = blackDuckFortifyMapper.getFortifyApplication();
+        final String fortifyApplicationVersion = blackDuckFortifyMapper.getFortifyApplicationVersion();
+        groups.computeIfAbsent(Arrays.asList(fortifyApplication, fortifyApplicationVersion),
+                key -> new MappingGroup(fortifyApplication, fortifyApplicationVersion)).blackDuckFortifyMappers.add(blackDuckFortifyMapper);
+    }
+
+    /**
+     * Read an entry of the mapping file
+     *
+     * @param jsonReader
+     * @param rules
+     *            receives the entry if it is a mapping rule
+     * @return the mapping, or null if the entry is a mapping rule
+     * @throws IOException
+     */
+    private static BlackDuckFortifyMapper readMapper(final JsonReader jsonReader, final List<BlackDuckFortifyMappingRule> rules) throws IOException {
+        String hubProject = null;
+        String hubProjectVersion = null;
+        String hubProjectVersionPattern = null;
+        String hubProjectVersionPhase = null;
+        String fortifyApplication = null;
+        String fortifyApplicationVersion = null;
+        String hubProjectVersionUrl = null;
+        String hubProjectId = null;
+        String hubProjectVersionId = null;
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            switch (jsonReader.nextName()) {
+            case "hubProject":
+                hubProject = nextString(jsonReader);
+                break;
+            case "hubProjectVersion":
+                hubProjectVersion = nextString(jsonReader);
+                break;
+            case "hubProjectVersionPattern":
+                hubProjectVersionPattern = nextString(jsonReader);
+                break;
+            case "hubProjectVersionPhase":
+                hubProjectVersionPhase = nextString(jsonReader);
+                break;
+            case "fortifyApplication":
+                fortifyApplication = nextString(jsonReader);
+                break;
+            case "fortifyApplicationVersion":
+                fortifyApplicationVersion = nextString(jsonReader);
+                break;
+            case "hubProjectVersionUrl":
+                hubProjectVersionUrl = nextString(jsonReader);
+                break;
+            case "hubProjectId":
+                hubProjectId = nextString(jsonReader);
+                break;
+            case "hubProjectVersionId":
+                hubProjectVersionId = nextString(jsonReader);
+                break;
+            default:
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+        if (hubProjectVersionPattern != null || hubProjectVersionPhase != null) {
+            rules.add(new BlackDuckFortifyMappingRule(hubProject, hubProjectVersionPattern, hubProjectVersionPhase, fortifyApplication,
+                    fortifyApplicationVersion));
+            return null;
+        }
+        return new BlackDuckFortifyMapper(hubProject, hubProjectVersion, fortifyApplication, fortifyApplicationVersion, hubProjectVersionUrl,
+                hubProjectId, hubProjectVersionId);
+    }
+
+    // Same as the Gson binding of the mapping, a null is kept and a number is read as a String
+    private static String nextString(final JsonReader jsonReader) throws IOException {
+        if (jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.nextNull();
+            return null;
+        }
+        return jsonReader.nextString();
+    }
+
+    private static long checksum(final File file) throws IOException {
+        final CRC32 checksum = new CRC32();
+        try (InputStream input = new CheckedInputStream(new FileInputStream(file), checksum)) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (input.read(buffer) >= 0) {
+            }
+        }
+        return checksum.getValue();
+    }
+
+    /**
+     * Read the groups and the rules of the index file if it is compiled from a mapping file of the same length and
+     * checksum
+     *
+     * @return the mapping, or null if the index is not valid
+     */
+    private Mapping readIndex(final long length, final long checksum) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), BUFFER_SIZE))) {
+            if (input.readInt() != FORMAT_VERSION || input.readLong() != length || input.readLong() != checksum) {
+                return null;
+            }
+            final int groupCount = input.readInt();
+            final List<MappingGroup> groups = new ArrayList<>(groupCount);
+            for (int i = 0; i < groupCount; i++) {
+                final MappingGroup group = new MappingGroup(readString(input), readString(input));
+                final int mapperCount = input.readInt();
+                for (int j = 0; j < mapperCount; j++) {
+                    group.blackDuckFortifyMappers.add(new BlackDuckFortifyMapper(readString(input), readString(input), group.fortifyApplication,
+                            group.fortifyApplicationVersion, readString(input), readString(input), readString(input)));
+                }
+                groups.add(group);
+            }
+            final int ruleCount = input.readInt();
+            final List<BlackDuckFortifyMappingRule> rules = new ArrayList<>(ruleCount);
+            for (int i = 0; i < ruleCount; i++) {
+                rules.add(new BlackDuckFortifyMappingRule(readString(input), readString(input), readString(input), readString(input), readString(input)));
+            }
+            return new Mapping(groups, rules);
+        } catch (IOException e) {
+            logger.warn("Unable to read the mapping index " + indexFile + ", parsing the mapping file", e);
+            return null;
+        }
+    }
+
+    private void writeIndex(final Mapping mapping, final long length, final long checksum) {
+        try {
+            final File directory = indexFile.getAbsoluteFile().getParentFile();
+            Files.createDirectories(directory.toPath());
+            final File temporaryFile = File.createTempFile("mapping", ".tmp", directory);
+            try {
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile), BUFFER_SIZE))) {
+                    output.writeInt(FORMAT_VERSION);
+                    output.writeLong(length);
+                    output.writeLong(checksum);
+                    output.writeInt(mapping.groups.size());
+                    for (MappingGroup group : mapping.groups) {
+                        writeString(output, group.fortifyApplication);
+                        writeString(output, group.fortifyApplicationVersion);
+                        output.writeInt(group.blackDuckFortifyMappers.size());
+                        for (BlackDuckFortifyMapper blackDuckFortifyMapper : group.blackDuckFortifyMappers) {
+                            writeString(output, blackDuckFortifyMapper.getHubProject());
+                            writeString(output, blackDuckFortifyMapper.getHubProjectVersion());
+                            writeString(output, blackDuckFortifyMapper.getHubProjectVersionUrl());
+                            writeString(output, blackDuckFortifyMapper.getHubProjectId());
+                            writeString(output, blackDuckFortifyMapper.getHubProjectVersionId());
+                        }
+                    }
+                    output.writeInt(mapping.rules.size());
+                    for (BlackDuckFortifyMappingRule rule : mapping.rules) {
+                        writeString(output, rule.getHubProject());
+                        writeString(output, rule.getHubProjectVersionPattern());
+                        writeString(output, rule.getHubProjectVersionPhase());
+                        writeString(output, rule.getFortifyApplication());
+                        writeString(output, rule.getFortifyApplicationVersion());
+                    }
+                }
+                Files.move(temporaryFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                temporaryFile.delete();
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to write the mapping index " + indexFile, e);
+        }
+    }
+
+    // The Strings are encoded as bytes with their length, they are not limited to 64 KB as writeUTF
+    private static void writeString(final DataOutputStream output, final String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(final DataInputStream input) throws IOException {
+        final int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
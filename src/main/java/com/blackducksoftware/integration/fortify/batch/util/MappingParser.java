@@ -22,10 +22,10 @@
  */
 package com.blackducksoftware.integration.fortify.batch.util;
 
+import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -35,6 +35,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
@@ -43,6 +45,8 @@ import com.blackducksoftware.integration.exception.IntegrationException;
 import com.blackducksoftware.integration.fortify.batch.model.BlackDuckFortifyMapper;
 import com.blackducksoftware.integration.fortify.batch.model.BlackDuckFortifyMapperGroup;
 import com.blackducksoftware.integration.fortify.batch.model.HubProjectVersion;
+import com.blackducksoftware.integration.fortify.batch.util.MappingLoader.Mapping;
+import com.blackducksoftware.integration.fortify.batch.util.MappingLoader.MappingGroup;
 import com.blackducksoftware.integration.fortify.model.CommitFortifyApplicationRequest;
 import com.blackducksoftware.integration.fortify.model.CreateApplicationRequest;
 import com.blackducksoftware.integration.fortify.model.FortifyApplicationResponse;
@@ -53,9 +57,7 @@ import com.blackducksoftware.integration.fortify.model.UpdateFortifyApplicationA
 import com.blackducksoftware.integration.fortify.model.UpdateFortifyApplicationAttributesRequest.Value;
 import com.blackducksoftware.integration.fortify.service.FortifyApplicationVersionApi;
 import com.blackducksoftware.integration.fortify.service.FortifyAttributeDefinitionApi;
-import com.google.gson.Gson;
 import com.google.gson.JsonIOException;
-import com.google.gson.reflect.TypeToken;
 
 /**
  * This class creates a mapping between the Fortify Application and Hub projects.
@@ -85,12 +87,29 @@ public final class MappingParser {
 
     private final AttributeConstants attributeConstants;
 
+    private final MappingLoader mappingLoader;
+
+    // Expands the mapping rules, null when the Hub is not available to discover the project versions
+    private final MappingRuleExpander mappingRuleExpander;
+
+    // Groups of the last read mapping by Fortify application and version
+    private Map<List<String>, ResolvedGroup> resolvedGroups = new HashMap<>();
+
     public MappingParser(final FortifyApplicationVersionApi fortifyApplicationVersionApi, final FortifyAttributeDefinitionApi fortifyAttributeDefinitionApi,
             PropertyConstants propertyConstants, AttributeConstants attributeConstants) {
+        this(fortifyApplicationVersionApi, fortifyAttributeDefinitionApi, propertyConstants, attributeConstants, null);
+    }
+
+    public MappingParser(final FortifyApplicationVersionApi fortifyApplicationVersionApi, final FortifyAttributeDefinitionApi fortifyAttributeDefinitionApi,
+            PropertyConstants propertyConstants, AttributeConstants attributeConstants, HubServices hubServices) {
         this.fortifyApplicationVersionApi = fortifyApplicationVersionApi;
         this.fortifyAttributeDefinitionApi = fortifyAttributeDefinitionApi;
         this.propertyConstants = propertyConstants;
         this.attributeConstants = attributeConstants;
+        this.mappingLoader = new MappingLoader(
+                StringUtils.isEmpty(propertyConstants.getMappingIndexFilePath()) ? null : new File(propertyConstants.getMappingIndexFilePath()));
+        this.mappingRuleExpander = hubServices == null ? null
+                : new MappingRuleExpander(hubServices, TimeUnit.MINUTES.toMillis(propertyConstants.getMappingRuleRefreshMinutes()));
     }
 
     /**
@@ -102,68 +121,107 @@ public final class MappingParser {
      * @throws IOException
      * @throws IntegrationException
      */
-    public List<BlackDuckFortifyMapperGroup> createMapping(String filePath) throws JsonIOException, IOException, IntegrationException {
-        Gson gson;
-        List<BlackDuckFortifyMapper> mapping;
-        try {
-            gson = new Gson();
+    public synchronized List<BlackDuckFortifyMapperGroup> createMapping(String filePath) throws JsonIOException, IOException, IntegrationException {
+        return buildGroupedMappings(loadMapping(filePath), new ArrayList<>());
+    }
+
+    /**
+     * Read the mapping.json file again and get the groups that are added or changed since the mapping was last read,
+     * only their Fortify ID is found again
+     *
+     * @param filePath
+     *            - Filepath to mapping.json
+     * @return the added or changed groups
+     * @throws IOException
+     * @throws IntegrationException
+     */
+    public synchronized List<BlackDuckFortifyMapperGroup> reloadMapping(String filePath) throws JsonIOException, IOException, IntegrationException {
+        final List<BlackDuckFortifyMapperGroup> changedGroups = new ArrayList<>();
+        buildGroupedMappings(loadMapping(filePath), changedGroups);
+        return changedGroups;
+    }
 
-            Type listType = new TypeToken<List<BlackDuckFortifyMapper>>() {
-            }.getType();
+    /**
+     * Forget the group, so that its Fortify ID is found again when the mapping is read again. It is used when the
+     * Fortify application version of the group may not exist anymore
+     *
+     * @param blackDuckFortifyMapperGroup
+     */
+    public synchronized void forgetMapping(BlackDuckFortifyMapperGroup blackDuckFortifyMapperGroup) {
+        resolvedGroups.values().removeIf(resolvedGroup -> resolvedGroup.blackDuckFortifyMapperGroup == blackDuckFortifyMapperGroup);
+    }
 
-            mapping = gson.fromJson(new FileReader(filePath), listType);
-        } catch (JsonIOException jio) {
-            logger.error("Exception occured while creating Mappings", jio);
-            throw new JsonIOException("Exception occured while creating Mappings", jio);
+    /**
+     * Load the mapping groups of the mapping file, with the mappings expanded from its mapping rules
+     *
+     * @param filePath
+     * @return
+     * @throws IOException
+     * @throws IntegrationException
+     */
+    private List<MappingGroup> loadMapping(String filePath) throws IOException, IntegrationException {
+        final Mapping mapping;
+        try {
+            mapping = mappingLoader.load(filePath);
         } catch (FileNotFoundException fe) {
             logger.error("File Not Found for creating Mappings", fe);
             throw new FileNotFoundException("Error finding the mapping.json file :: " + filePath);
         }
-
-        return buildGroupedMappings(mapping);
+        if (mapping.getRules().isEmpty()) {
+            return mapping.getGroups();
+        }
+        if (mappingRuleExpander == null) {
+            logger.warn("The " + mapping.getRules().size() + " mapping rules are ignored, the Hub project versions can't be discovered");
+            return mapping.getGroups();
+        }
+        return MappingLoader.addMappers(mapping.getGroups(), mappingRuleExpander.expand(mapping.getRules()));
     }
 
     /**
      *
-     * This method, groups multiple Hub projects mapped to the same Fortify application.
+     * This method, creates the group of the Hub projects mapped to each Fortify application and finds the Fortify
+     * application id of the group. The groups whose mappings are not changed since the mapping was last read are
+     * reused with their Fortify application id.
      *
-     * @param blackDuckFortifyMappers
+     * @param mappingGroups
+     * @param changedGroups
+     *            receives the groups that are added or changed
      * @return
      * @throws IOException
      * @throws IntegrationException
      */
-    private List<BlackDuckFortifyMapperGroup> buildGroupedMappings(List<BlackDuckFortifyMapper> blackDuckFortifyMappers)
+    private List<BlackDuckFortifyMapperGroup> buildGroupedMappings(List<MappingGroup> mappingGroups, List<BlackDuckFortifyMapperGroup> changedGroups)
             throws IOException, IntegrationException {
-
-        Map<String, BlackDuckFortifyMapperGroup> mappings = new HashMap<>();
+        final int shardIndex = propertyConstants.getShardIndex();
+        final int shardCount = propertyConstants.getShardCount();
+        if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IntegrationException("Invalid shard, shard.index must be between 0 and shard.count - 1 :: shard.index=" + shardIndex
+                    + ", shard.count=" + shardCount);
+        }
+        List<BlackDuckFortifyMapperGroup> mappings = new ArrayList<>(mappingGroups.size());
+        Map<List<String>, ResolvedGroup> groups = new HashMap<>();
         try {
-
-            for (BlackDuckFortifyMapper blackDuckFortifyMapper : blackDuckFortifyMappers) {
-                int applicationId;
-                List<HubProjectVersion> hubProjectVersions = new ArrayList<>();
-
-                BlackDuckFortifyMapperGroup blackDuckFortifyMapperGroup;
-
-                HubProjectVersion hubProjectVersion = new HubProjectVersion(blackDuckFortifyMapper.getHubProject(),
-                        blackDuckFortifyMapper.getHubProjectVersion());
-
-                String key = blackDuckFortifyMapper.getFortifyApplication() + '_' + blackDuckFortifyMapper.getFortifyApplicationVersion();
-
-                if (mappings.containsKey(key)) {
-                    blackDuckFortifyMapperGroup = mappings.get(key);
-                    hubProjectVersions = blackDuckFortifyMapperGroup.getHubProjectVersion();
-                    applicationId = blackDuckFortifyMapperGroup.getFortifyApplicationId();
-                } else {
-                    applicationId = getFortifyApplicationId(blackDuckFortifyMapper);
+            for (MappingGroup mappingGroup : mappingGroups) {
+                // The groups of the other shards are not resolved in Fortify, they are processed by the other instances
+                if (getShard(mappingGroup.getFortifyApplication(), mappingGroup.getFortifyApplicationVersion(), shardCount) != shardIndex) {
+                    continue;
                 }
-
-                hubProjectVersions.add(hubProjectVersion);
-
-                blackDuckFortifyMapperGroup = new BlackDuckFortifyMapperGroup(blackDuckFortifyMapper.getFortifyApplication(),
-                        blackDuckFortifyMapper.getFortifyApplicationVersion(), hubProjectVersions, applicationId);
-
-                mappings.put(key, blackDuckFortifyMapperGroup);
-
+                final List<String> key = Arrays.asList(mappingGroup.getFortifyApplication(), mappingGroup.getFortifyApplicationVersion());
+                ResolvedGroup resolvedGroup = resolvedGroups.get(key);
+                if (resolvedGroup == null || !resolvedGroup.blackDuckFortifyMappers.equals(mappingGroup.getBlackDuckFortifyMappers())) {
+                    List<HubProjectVersion> hubProjectVersions = new ArrayList<>(mappingGroup.getBlackDuckFortifyMappers().size());
+                    for (BlackDuckFortifyMapper blackDuckFortifyMapper : mappingGroup.getBlackDuckFortifyMappers()) {
+                        hubProjectVersions.add(new HubProjectVersion(blackDuckFortifyMapper.getHubProject(), blackDuckFortifyMapper.getHubProjectVersion(),
+                                getHubProjectVersionUrl(blackDuckFortifyMapper)));
+                    }
+                    int applicationId = getFortifyApplicationId(mappingGroup.getBlackDuckFortifyMappers().get(0));
+
+                    resolvedGroup = new ResolvedGroup(mappingGroup.getBlackDuckFortifyMappers(), new BlackDuckFortifyMapperGroup(
+                            mappingGroup.getFortifyApplication(), mappingGroup.getFortifyApplicationVersion(), hubProjectVersions, applicationId));
+                    changedGroups.add(resolvedGroup.blackDuckFortifyMapperGroup);
+                }
+                groups.put(key, resolvedGroup);
+                mappings.add(resolvedGroup.blackDuckFortifyMapperGroup);
             }
 
         } catch (IOException ioe) {
@@ -171,7 +229,63 @@ public final class MappingParser {
             throw new IOException(ioe);
         }
 
-        return new ArrayList<>(mappings.values());
+        // The removed groups are forgotten
+        resolvedGroups = groups;
+        if (shardCount > 1) {
+            logger.info("Shard " + shardIndex + " of " + shardCount + " has " + mappings.size() + " of the " + mappingGroups.size() + " mapping groups");
+        }
+        return mappings;
+    }
+
+    /**
+     * Get the shard of the Fortify application version. The hash is computed from the names, it is the same in every
+     * instance and every run
+     *
+     * @param fortifyApplication
+     * @param fortifyApplicationVersion
+     * @param shardCount
+     * @return
+     */
+    static int getShard(String fortifyApplication, String fortifyApplicationVersion, int shardCount) {
+        final CRC32 hash = new CRC32();
+        hash.update(StringUtils.defaultString(fortifyApplication).getBytes(StandardCharsets.UTF_8));
+        // Separator of the names, a_b/c and a/b_c are in different shards
+        hash.update(0);
+        hash.update(StringUtils.defaultString(fortifyApplicationVersion).getBytes(StandardCharsets.UTF_8));
+        return (int) (hash.getValue() % shardCount);
+    }
+
+    /**
+     * Group of the mapping with the mappings it is created from
+     */
+    private static final class ResolvedGroup {
+        private final List<BlackDuckFortifyMapper> blackDuckFortifyMappers;
+
+        private final BlackDuckFortifyMapperGroup blackDuckFortifyMapperGroup;
+
+        private ResolvedGroup(List<BlackDuckFortifyMapper> blackDuckFortifyMappers, BlackDuckFortifyMapperGroup blackDuckFortifyMapperGroup) {
+            this.blackDuckFortifyMappers = blackDuckFortifyMappers;
+            this.blackDuckFortifyMapperGroup = blackDuckFortifyMapperGroup;
+        }
+    }
+
+    /**
+     * Get the URL of the Hub project version pinned in the mapping, either by URL, absolute or relative to the Hub
+     * server, or by the project and version IDs
+     *
+     * @param mapping
+     * @return the URL, or null if the Hub project version is not pinned
+     */
+    private String getHubProjectVersionUrl(BlackDuckFortifyMapper mapping) {
+        final String hubServerUrl = StringUtils.removeEnd(propertyConstants.getHubServerUrl(), "/");
+        if (!StringUtils.isBlank(mapping.getHubProjectVersionUrl())) {
+            final String hubProjectVersionUrl = mapping.getHubProjectVersionUrl().trim();
+            return hubProjectVersionUrl.startsWith("/") ? hubServerUrl + hubProjectVersionUrl : hubProjectVersionUrl;
+        }
+        if (!StringUtils.isBlank(mapping.getHubProjectId()) && !StringUtils.isBlank(mapping.getHubProjectVersionId())) {
+            return hubServerUrl + "/api/projects/" + mapping.getHubProjectId().trim() + "/versions/" + mapping.getHubProjectVersionId().trim();
+        }
+        return null;
     }
 
     /**
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+
+import com.blackducksoftware.integration.exception.IntegrationException;
+import com.blackducksoftware.integration.fortify.batch.model.BlackDuckFortifyMapper;
+import com.blackducksoftware.integration.fortify.batch.model.BlackDuckFortifyMappingRule;
+import com.blackducksoftware.integration.hub.api.generated.view.ProjectVersionView;
+
+/**
+ * This class expands the mapping rules of the mapping file into mappings of the Hub project versions that they match.
+ * The versions of each Hub project are discovered in the Hub and kept for the refresh period, each project is listed
+ * again on its own when its period is elapsed. The expanded mappings are pinned to the URL of the discovered version.
+ *
+ * @author smanikantan
+ *
+ */
+public final class MappingRuleExpander {
+
+    private final static Logger logger = Logger.getLogger(MappingRuleExpander.class);
+
+    private static final String HUB_PROJECT = "{hubProject}";
+
+    private static final String HUB_PROJECT_VERSION = "{hubProjectVersion}";
+
+    private static final String PHASE = "{phase}";
+
+    private final HubServices hubServices;
+
+    private final long refreshMillis;
+
+    // Discovered versions by Hub project name, the mapping parser calls the expander under its lock
+    private final Map<String, DiscoveredProject> discoveredProjects = new HashMap<>();
+
+    /**
+     * @param hubServices
+     * @param refreshMillis
+     *            period after which the versions of a Hub project are listed again
+     */
+    public MappingRuleExpander(final HubServices hubServices, final long refreshMillis) {
+        this.hubServices = hubServices;
+        this.refreshMillis = refreshMillis;
+    }
+
+    /**
+     * Version of a Hub project found by the discovery
+     */
+    static final class DiscoveredVersion {
+        private final String versionName;
+
+        private final String phase;
+
+        private final String url;
+
+        DiscoveredVersion(final String versionName, final String phase, final String url) {
+            this.versionName = versionName;
+            this.phase = phase;
+            this.url = url;
+        }
+    }
+
+    private static final class DiscoveredProject {
+        private final List<DiscoveredVersion> versions;
+
+        private final long discoveredAt;
+
+        private DiscoveredProject(final List<DiscoveredVersion> versions, final long discoveredAt) {
+            this.versions = versions;
+            this.discoveredAt = discoveredAt;
+        }
+    }
+
+    /**
+     * Expand the mapping rules into the mappings of the Hub project versions they match, in the order of the rules
+     *
+     * @param rules
+     * @return
+     * @throws IntegrationException
+     *             if a rule is not valid
+     */
+    public List<BlackDuckFortifyMapper> expand(final List<BlackDuckFortifyMappingRule> rules) throws IntegrationException {
+        final Map<String, List<BlackDuckFortifyMappingRule>> rulesByProject = new LinkedHashMap<>();
+        for (BlackDuckFortifyMappingRule rule : rules) {
+            if (StringUtils.isBlank(rule.getHubProject()) || StringUtils.isBlank(rule.getFortifyApplication())
+                    || StringUtils.isBlank(rule.getFortifyApplicationVersion())) {
+                throw new IntegrationException("The hubProject, fortifyApplication and fortifyApplicationVersion of the mapping rule are required :: " + rule);
+            }
+            rulesByProject.computeIfAbsent(rule.getHubProject(), key -> new ArrayList<>()).add(rule);
+        }
+        // The projects that are not used by the rules anymore are forgotten
+        discoveredProjects.keySet().retainAll(rulesByProject.keySet());
+
+        final List<BlackDuckFortifyMapper> blackDuckFortifyMappers = new ArrayList<>();
+        for (Map.Entry<String, List<BlackDuckFortifyMappingRule>> entry : rulesByProject.entrySet()) {
+            final List<DiscoveredVersion> versions = getVersions(entry.getKey());
+            for (BlackDuckFortifyMappingRule rule : entry.getValue()) {
+                final Pattern pattern = compile(rule);
+                for (DiscoveredVersion version : versions) {
+                    if (matches(rule, pattern, version)) {
+                        blackDuckFortifyMappers.add(expand(rule, version));
+                    }
+                }
+            }
+        }
+        logger.info("Expanded " + rules.size() + " mapping rules into " + blackDuckFortifyMappers.size() + " mappings");
+        return blackDuckFortifyMappers;
+    }
+
+    /**
+     * Get the versions of the Hub project, they are listed again when the refresh period is elapsed. If the listing
+     * fails, the versions that are already discovered are used
+     *
+     * @param projectName
+     * @return the versions sorted by name, so that the expanded mappings are in the same order in each run
+     */
+    private List<DiscoveredVersion> getVersions(final String projectName) {
+        final DiscoveredProject discoveredProject = discoveredProjects.get(projectName);
+        final long now = System.currentTimeMillis();
+        if (discoveredProject != null && now - discoveredProject.discoveredAt < refreshMillis) {
+            return discoveredProject.versions;
+        }
+        try {
+            final Collection<ProjectVersionView> projectVersionViews = hubServices.getProjectVersions(projectName);
+            final List<DiscoveredVersion> versions = new ArrayList<>(projectVersionViews.size());
+            for (ProjectVersionView projectVersionView : projectVersionViews) {
+                versions.add(new DiscoveredVersion(projectVersionView.versionName, projectVersionView.phase == null ? null : projectVersionView.phase.name(),
+                        hubServices.getProjectVersionUrl(projectVersionView)));
+            }
+            versions.sort(Comparator.comparing(version -> version.versionName));
+            discoveredProjects.put(projectName, new DiscoveredProject(versions, now));
+            logger.info("Discovered " + versions.size() + " versions of the Hub project " + projectName);
+            return versions;
+        } catch (IntegrationException e) {
+            if (discoveredProject != null) {
+                logger.warn("Unable to list the versions of the Hub project " + projectName + ", using the versions discovered before", e);
+                return discoveredProject.versions;
+            }
+            logger.error("Unable to list the versions of the Hub project " + projectName + ", its mapping rules are skipped", e);
+            return new ArrayList<>();
+        }
+    }
+
+    private static Pattern compile(final BlackDuckFortifyMappingRule rule) throws IntegrationException {
+        if (rule.getHubProjectVersionPattern() == null) {
+            return null;
+        }
+        try {
+            return Pattern.compile(rule.getHubProjectVersionPattern());
+        } catch (PatternSyntaxException e) {
+            throw new IntegrationException("Invalid hubProjectVersionPattern of the mapping rule :: " + rule, e);
+        }
+    }
+
+    /**
+     * Check if the version matches the version pattern and the phase of the rule
+     *
+     * @param rule
+     * @param pattern
+     *            compiled version pattern of the rule, or null to match every version name
+     * @param version
+     * @return
+     */
+    static boolean matches(final BlackDuckFortifyMappingRule rule, final Pattern pattern, final DiscoveredVersion version) {
+        if (pattern != null && (version.versionName == null || !pattern.matcher(version.versionName).matches())) {
+            return false;
+        }
+        return rule.getHubProjectVersionPhase() == null || rule.getHubProjectVersionPhase().trim().equalsIgnoreCase(version.phase);
+    }
+
+    /**
+     * Create the mapping of the version from the rule, the placeholders of the Fortify names are replaced
+     *
+     * @param rule
+     * @param version
+     * @return
+     */
+    static BlackDuckFortifyMapper expand(final BlackDuckFortifyMappingRule rule, final DiscoveredVersion version) {
+        return new BlackDuckFortifyMapper(rule.getHubProject(), version.versionName, replacePlaceholders(rule.getFortifyApplication(), rule, version),
+                replacePlaceholders(rule.getFortifyApplicationVersion(), rule, version), version.url, null, null);
+    }
+
+    private static String replacePlaceholders(final String template, final BlackDuckFortifyMappingRule rule, final DiscoveredVersion version) {
+        return StringUtils.replaceEach(template, new String[] { HUB_PROJECT, HUB_PROJECT_VERSION, PHASE },
+                new String[] { rule.getHubProject(), version.versionName, StringUtils.defaultString(version.phase) });
+    }
+}
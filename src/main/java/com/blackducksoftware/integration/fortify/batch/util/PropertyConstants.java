@@ -22,6 +22,10 @@
  */
 package com.blackducksoftware.integration.fortify.batch.util;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 
@@ -48,6 +52,13 @@ public class PropertyConstants {
         this.hubPassword = hubPassword;
     }
 
+    private String hubApiToken = "";
+
+    @Value("${hub.api.token:}")
+    public void setHubApiToken(String hubApiToken) {
+        this.hubApiToken = hubApiToken;
+    }
+
     private String hubTimeout;
 
     @Value("${hub.timeout}")
@@ -181,6 +192,313 @@ public class PropertyConstants {
         this.pluginVersion = pluginVersion;
     }
 
+    private int transformParallelThreshold = 10000;
+
+    @Value("${transform.parallel.threshold:10000}")
+    public void setTransformParallelThreshold(int transformParallelThreshold) {
+        this.transformParallelThreshold = transformParallelThreshold;
+    }
+
+    private int transformParallelism = Runtime.getRuntime().availableProcessors();
+
+    @Value("${transform.parallelism:0}")
+    public void setTransformParallelism(int transformParallelism) {
+        this.transformParallelism = transformParallelism > 0 ? transformParallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    private int dedupSpillThresholdRows;
+
+    @Value("${dedup.spill.threshold.rows:0}")
+    public void setDedupSpillThresholdRows(int dedupSpillThresholdRows) {
+        this.dedupSpillThresholdRows = dedupSpillThresholdRows;
+    }
+
+    private long dedupSpillThresholdBytes;
+
+    @Value("${dedup.spill.threshold.bytes:0}")
+    public void setDedupSpillThresholdBytes(long dedupSpillThresholdBytes) {
+        this.dedupSpillThresholdBytes = dedupSpillThresholdBytes;
+    }
+
+    private String dedupSpillDir = System.getProperty("java.io.tmpdir");
+
+    @Value("${dedup.spill.dir:}")
+    public void setDedupSpillDir(String dedupSpillDir) {
+        this.dedupSpillDir = dedupSpillDir == null || dedupSpillDir.isEmpty() ? System.getProperty("java.io.tmpdir") : dedupSpillDir;
+    }
+
+    private boolean hubNotificationChangeDetection;
+
+    @Value("${hub.notification.change.detection:false}")
+    public void setHubNotificationChangeDetection(boolean hubNotificationChangeDetection) {
+        this.hubNotificationChangeDetection = hubNotificationChangeDetection;
+    }
+
+    private Set<String> hubNotificationTypes = new HashSet<>(Arrays.asList("VULNERABILITY", "BOM_EDIT", "VERSION_BOM_CODE_LOCATION_BOM_COMPUTED"));
+
+    @Value("${hub.notification.types:VULNERABILITY,BOM_EDIT,VERSION_BOM_CODE_LOCATION_BOM_COMPUTED}")
+    public void setHubNotificationTypes(String hubNotificationTypes) {
+        final Set<String> types = new HashSet<>();
+        for (String type : hubNotificationTypes.split(",")) {
+            if (!type.trim().isEmpty()) {
+                types.add(type.trim());
+            }
+        }
+        this.hubNotificationTypes = types;
+    }
+
+    private String hubResponseCacheDir;
+
+    @Value("${hub.response.cache.dir:}")
+    public void setHubResponseCacheDir(String hubResponseCacheDir) {
+        this.hubResponseCacheDir = hubResponseCacheDir;
+    }
+
+    private long hubResponseCacheMaxBytes = 268435456L;
+
+    @Value("${hub.response.cache.max.bytes:268435456}")
+    public void setHubResponseCacheMaxBytes(long hubResponseCacheMaxBytes) {
+        this.hubResponseCacheMaxBytes = hubResponseCacheMaxBytes;
+    }
+
+    private long hubResponseCacheMaxEntryBytes = 4194304L;
+
+    @Value("${hub.response.cache.max.entry.bytes:4194304}")
+    public void setHubResponseCacheMaxEntryBytes(long hubResponseCacheMaxEntryBytes) {
+        this.hubResponseCacheMaxEntryBytes = hubResponseCacheMaxEntryBytes;
+    }
+
+    private boolean fortifyUploadZip;
+
+    @Value("${fortify.upload.zip:false}")
+    public void setFortifyUploadZip(boolean fortifyUploadZip) {
+        this.fortifyUploadZip = fortifyUploadZip;
+    }
+
+    private int fortifyUploadZipCompressionLevel = 6;
+
+    @Value("${fortify.upload.zip.compression.level:6}")
+    public void setFortifyUploadZipCompressionLevel(int fortifyUploadZipCompressionLevel) {
+        this.fortifyUploadZipCompressionLevel = fortifyUploadZipCompressionLevel;
+    }
+
+    private String mappingIndexFilePath = "";
+
+    @Value("${hub.fortify.mapping.index.file:}")
+    public void setMappingIndexFilePath(String mappingIndexFilePath) {
+        this.mappingIndexFilePath = mappingIndexFilePath;
+    }
+
+    private boolean mappingWatch = false;
+
+    @Value("${hub.fortify.mapping.watch:false}")
+    public void setMappingWatch(boolean mappingWatch) {
+        this.mappingWatch = mappingWatch;
+    }
+
+    private boolean mappingWatchDispatch = true;
+
+    @Value("${hub.fortify.mapping.watch.dispatch:true}")
+    public void setMappingWatchDispatch(boolean mappingWatchDispatch) {
+        this.mappingWatchDispatch = mappingWatchDispatch;
+    }
+
+    private long mappingRuleRefreshMinutes = 60;
+
+    @Value("${hub.fortify.mapping.rule.refresh.minutes:60}")
+    public void setMappingRuleRefreshMinutes(long mappingRuleRefreshMinutes) {
+        this.mappingRuleRefreshMinutes = mappingRuleRefreshMinutes;
+    }
+
+    private int shardIndex = 0;
+
+    @Value("${shard.index:0}")
+    public void setShardIndex(int shardIndex) {
+        this.shardIndex = shardIndex;
+    }
+
+    private int shardCount = 1;
+
+    @Value("${shard.count:1}")
+    public void setShardCount(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    private String groupLeaseDir = "";
+
+    @Value("${group.lease.dir:}")
+    public void setGroupLeaseDir(String groupLeaseDir) {
+        this.groupLeaseDir = groupLeaseDir;
+    }
+
+    private long groupLeaseTtlSeconds = 300;
+
+    @Value("${group.lease.ttl.seconds:300}")
+    public void setGroupLeaseTtlSeconds(long groupLeaseTtlSeconds) {
+        this.groupLeaseTtlSeconds = groupLeaseTtlSeconds;
+    }
+
+    private int fortifyUploadParallelism = 4;
+
+    @Value("${fortify.upload.parallelism:4}")
+    public void setFortifyUploadParallelism(int fortifyUploadParallelism) {
+        this.fortifyUploadParallelism = fortifyUploadParallelism;
+    }
+
+    private int hubConnectionPoolMaxTotal;
+
+    @Value("${hub.connection.pool.max.total:0}")
+    public void setHubConnectionPoolMaxTotal(int hubConnectionPoolMaxTotal) {
+        this.hubConnectionPoolMaxTotal = hubConnectionPoolMaxTotal;
+    }
+
+    private int hubConnectionPoolMaxPerRoute;
+
+    @Value("${hub.connection.pool.max.per.route:0}")
+    public void setHubConnectionPoolMaxPerRoute(int hubConnectionPoolMaxPerRoute) {
+        this.hubConnectionPoolMaxPerRoute = hubConnectionPoolMaxPerRoute;
+    }
+
+    private long hubConnectionPoolTtlSeconds = 300;
+
+    @Value("${hub.connection.pool.ttl.seconds:300}")
+    public void setHubConnectionPoolTtlSeconds(long hubConnectionPoolTtlSeconds) {
+        this.hubConnectionPoolTtlSeconds = hubConnectionPoolTtlSeconds;
+    }
+
+    private long hubConnectionPoolIdleEvictionSeconds = 60;
+
+    @Value("${hub.connection.pool.idle.eviction.seconds:60}")
+    public void setHubConnectionPoolIdleEvictionSeconds(long hubConnectionPoolIdleEvictionSeconds) {
+        this.hubConnectionPoolIdleEvictionSeconds = hubConnectionPoolIdleEvictionSeconds;
+    }
+
+    private int hubConnectionRequestTimeoutMillis;
+
+    @Value("${hub.connection.request.timeout.millis:0}")
+    public void setHubConnectionRequestTimeoutMillis(int hubConnectionRequestTimeoutMillis) {
+        this.hubConnectionRequestTimeoutMillis = hubConnectionRequestTimeoutMillis;
+    }
+
+    private long hubConnectionPoolStatsIntervalSeconds = 30;
+
+    @Value("${hub.connection.pool.stats.interval.seconds:30}")
+    public void setHubConnectionPoolStatsIntervalSeconds(long hubConnectionPoolStatsIntervalSeconds) {
+        this.hubConnectionPoolStatsIntervalSeconds = hubConnectionPoolStatsIntervalSeconds;
+    }
+
+    private int hubPagingPageSize = 500;
+
+    @Value("${hub.paging.page.size:500}")
+    public void setHubPagingPageSize(int hubPagingPageSize) {
+        this.hubPagingPageSize = hubPagingPageSize;
+    }
+
+    private int hubPagingMinPageSize = 100;
+
+    @Value("${hub.paging.min.page.size:100}")
+    public void setHubPagingMinPageSize(int hubPagingMinPageSize) {
+        this.hubPagingMinPageSize = hubPagingMinPageSize;
+    }
+
+    private int hubPagingMaxPageSize = 2000;
+
+    @Value("${hub.paging.max.page.size:2000}")
+    public void setHubPagingMaxPageSize(int hubPagingMaxPageSize) {
+        this.hubPagingMaxPageSize = hubPagingMaxPageSize;
+    }
+
+    private long hubPagingTargetLatencyMillis = 2000;
+
+    @Value("${hub.paging.target.latency.millis:2000}")
+    public void setHubPagingTargetLatencyMillis(long hubPagingTargetLatencyMillis) {
+        this.hubPagingTargetLatencyMillis = hubPagingTargetLatencyMillis;
+    }
+
+    private long hubPagingTargetBytes = 4194304;
+
+    @Value("${hub.paging.target.bytes:4194304}")
+    public void setHubPagingTargetBytes(long hubPagingTargetBytes) {
+        this.hubPagingTargetBytes = hubPagingTargetBytes;
+    }
+
+    private int hubPagingMaxConcurrentPerVersion = 4;
+
+    @Value("${hub.paging.max.concurrent.per.version:4}")
+    public void setHubPagingMaxConcurrentPerVersion(int hubPagingMaxConcurrentPerVersion) {
+        this.hubPagingMaxConcurrentPerVersion = Math.max(1, hubPagingMaxConcurrentPerVersion);
+    }
+
+    private int hubPagingThreads = 8;
+
+    @Value("${hub.paging.threads:8}")
+    public void setHubPagingThreads(int hubPagingThreads) {
+        this.hubPagingThreads = Math.max(1, hubPagingThreads);
+    }
+
+    private boolean hubProjectVersionIndex = true;
+
+    @Value("${hub.project.version.index:true}")
+    public void setHubProjectVersionIndex(boolean hubProjectVersionIndex) {
+        this.hubProjectVersionIndex = hubProjectVersionIndex;
+    }
+
+    private String hubProjectVersionIndexFile = "";
+
+    @Value("${hub.project.version.index.file:}")
+    public void setHubProjectVersionIndexFile(String hubProjectVersionIndexFile) {
+        this.hubProjectVersionIndexFile = hubProjectVersionIndexFile;
+    }
+
+    private String vulnerabilitySnapshotDir = "";
+
+    @Value("${vulnerability.snapshot.dir:}")
+    public void setVulnerabilitySnapshotDir(String vulnerabilitySnapshotDir) {
+        this.vulnerabilitySnapshotDir = vulnerabilitySnapshotDir;
+    }
+
+    private long vulnerabilitySnapshotMaxBytes = 1073741824L;
+
+    @Value("${vulnerability.snapshot.max.bytes:1073741824}")
+    public void setVulnerabilitySnapshotMaxBytes(long vulnerabilitySnapshotMaxBytes) {
+        this.vulnerabilitySnapshotMaxBytes = vulnerabilitySnapshotMaxBytes;
+    }
+
+    private long vulnerabilitySnapshotMaxAgeHours = 24;
+
+    @Value("${vulnerability.snapshot.max.age.hours:24}")
+    public void setVulnerabilitySnapshotMaxAgeHours(long vulnerabilitySnapshotMaxAgeHours) {
+        this.vulnerabilitySnapshotMaxAgeHours = vulnerabilitySnapshotMaxAgeHours;
+    }
+
+    private String csvFragmentDir = "";
+
+    @Value("${csv.fragment.dir:}")
+    public void setCsvFragmentDir(String csvFragmentDir) {
+        this.csvFragmentDir = csvFragmentDir;
+    }
+
+    private long csvFragmentMaxBytes = 2147483648L;
+
+    @Value("${csv.fragment.max.bytes:2147483648}")
+    public void setCsvFragmentMaxBytes(long csvFragmentMaxBytes) {
+        this.csvFragmentMaxBytes = csvFragmentMaxBytes;
+    }
+
+    private long csvFragmentMaxAgeHours = 24;
+
+    @Value("${csv.fragment.max.age.hours:24}")
+    public void setCsvFragmentMaxAgeHours(long csvFragmentMaxAgeHours) {
+        this.csvFragmentMaxAgeHours = csvFragmentMaxAgeHours;
+    }
+
+    private boolean hubVulnerabilityStreamingDecoder = true;
+
+    @Value("${hub.vulnerability.streaming.decoder:true}")
+    public void setHubVulnerabilityStreamingDecoder(boolean hubVulnerabilityStreamingDecoder) {
+        this.hubVulnerabilityStreamingDecoder = hubVulnerabilityStreamingDecoder;
+    }
+
     public String getHubUserName() {
         return hubUserName;
     }
@@ -264,4 +582,182 @@ public class PropertyConstants {
     public String getPluginVersion() {
         return pluginVersion;
     }
+
+    public int getTransformParallelThreshold() {
+        return transformParallelThreshold;
+    }
+
+    public int getTransformParallelism() {
+        return transformParallelism;
+    }
+
+    public int getDedupSpillThresholdRows() {
+        return dedupSpillThresholdRows;
+    }
+
+    public long getDedupSpillThresholdBytes() {
+        return dedupSpillThresholdBytes;
+    }
+
+    public String getDedupSpillDir() {
+        return dedupSpillDir;
+    }
+
+    public boolean isHubNotificationChangeDetection() {
+        return hubNotificationChangeDetection;
+    }
+
+    public Set<String> getHubNotificationTypes() {
+        return hubNotificationTypes;
+    }
+
+    public String getHubResponseCacheDir() {
+        return hubResponseCacheDir;
+    }
+
+    public long getHubResponseCacheMaxBytes() {
+        return hubResponseCacheMaxBytes;
+    }
+
+    public long getHubResponseCacheMaxEntryBytes() {
+        return hubResponseCacheMaxEntryBytes;
+    }
+
+    public boolean isFortifyUploadZip() {
+        return fortifyUploadZip;
+    }
+
+    public int getFortifyUploadZipCompressionLevel() {
+        return fortifyUploadZipCompressionLevel;
+    }
+
+    public int getHubConnectionPoolMaxTotal() {
+        // One connection for each group thread and each paging thread when it is not set
+        return hubConnectionPoolMaxTotal > 0 ? hubConnectionPoolMaxTotal : maximumThreadSize + hubPagingThreads;
+    }
+
+    public int getHubConnectionPoolMaxPerRoute() {
+        // All the requests go to the Hub server, the route limit is the total limit when it is not set
+        return hubConnectionPoolMaxPerRoute > 0 ? hubConnectionPoolMaxPerRoute : getHubConnectionPoolMaxTotal();
+    }
+
+    public long getHubConnectionPoolTtlSeconds() {
+        return hubConnectionPoolTtlSeconds;
+    }
+
+    public long getHubConnectionPoolIdleEvictionSeconds() {
+        return hubConnectionPoolIdleEvictionSeconds;
+    }
+
+    public int getHubConnectionRequestTimeoutMillis() {
+        return hubConnectionRequestTimeoutMillis;
+    }
+
+    public long getHubConnectionPoolStatsIntervalSeconds() {
+        return hubConnectionPoolStatsIntervalSeconds;
+    }
+
+    public int getHubPagingPageSize() {
+        return hubPagingPageSize;
+    }
+
+    public int getHubPagingMinPageSize() {
+        return hubPagingMinPageSize;
+    }
+
+    public int getHubPagingMaxPageSize() {
+        return hubPagingMaxPageSize;
+    }
+
+    public long getHubPagingTargetLatencyMillis() {
+        return hubPagingTargetLatencyMillis;
+    }
+
+    public long getHubPagingTargetBytes() {
+        return hubPagingTargetBytes;
+    }
+
+    public int getHubPagingMaxConcurrentPerVersion() {
+        return hubPagingMaxConcurrentPerVersion;
+    }
+
+    public int getHubPagingThreads() {
+        return hubPagingThreads;
+    }
+
+    public boolean isHubVulnerabilityStreamingDecoder() {
+        return hubVulnerabilityStreamingDecoder;
+    }
+
+    public String getHubApiToken() {
+        return hubApiToken;
+    }
+
+    public boolean isHubProjectVersionIndex() {
+        return hubProjectVersionIndex;
+    }
+
+    public String getHubProjectVersionIndexFile() {
+        return hubProjectVersionIndexFile;
+    }
+
+    public String getVulnerabilitySnapshotDir() {
+        return vulnerabilitySnapshotDir;
+    }
+
+    public long getVulnerabilitySnapshotMaxBytes() {
+        return vulnerabilitySnapshotMaxBytes;
+    }
+
+    public long getVulnerabilitySnapshotMaxAgeHours() {
+        return vulnerabilitySnapshotMaxAgeHours;
+    }
+
+    public String getCsvFragmentDir() {
+        return csvFragmentDir;
+    }
+
+    public long getCsvFragmentMaxBytes() {
+        return csvFragmentMaxBytes;
+    }
+
+    public long getCsvFragmentMaxAgeHours() {
+        return csvFragmentMaxAgeHours;
+    }
+
+    public int getFortifyUploadParallelism() {
+        return fortifyUploadParallelism;
+    }
+
+    public String getMappingIndexFilePath() {
+        return mappingIndexFilePath;
+    }
+
+    public boolean isMappingWatch() {
+        return mappingWatch;
+    }
+
+    public boolean isMappingWatchDispatch() {
+        return mappingWatchDispatch;
+    }
+
+    public long getMappingRuleRefreshMinutes() {
+        return mappingRuleRefreshMinutes;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public String getGroupLeaseDir() {
+        return groupLeaseDir;
+    }
+
+    public long getGroupLeaseTtlSeconds() {
+        return groupLeaseTtlSeconds;
+    }
 }
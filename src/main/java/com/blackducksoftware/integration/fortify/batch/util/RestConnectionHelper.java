@@ -22,24 +22,41 @@
  */
 package com.blackducksoftware.integration.fortify.batch.util;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
 import org.apache.log4j.Logger;
 
 import com.blackducksoftware.integration.exception.EncryptionException;
+import com.blackducksoftware.integration.exception.IntegrationException;
 import com.blackducksoftware.integration.hub.configuration.HubServerConfig;
 import com.blackducksoftware.integration.hub.configuration.HubServerConfigBuilder;
 import com.blackducksoftware.integration.hub.proxy.ProxyInfo;
 import com.blackducksoftware.integration.hub.proxy.ProxyInfoBuilder;
+import com.blackducksoftware.integration.hub.request.Request;
+import com.blackducksoftware.integration.hub.request.Response;
 import com.blackducksoftware.integration.hub.rest.CredentialsRestConnection;
 import com.blackducksoftware.integration.hub.rest.RestConnection;
+import com.blackducksoftware.integration.hub.rest.UnauthenticatedRestConnection;
 import com.blackducksoftware.integration.hub.rest.UriCombiner;
 import com.blackducksoftware.integration.hub.service.HubServicesFactory;
 import com.blackducksoftware.integration.log.IntLogger;
 import com.blackducksoftware.integration.log.LogLevel;
 import com.blackducksoftware.integration.log.PrintStreamIntLogger;
+import com.blackducksoftware.integration.rest.HttpMethod;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
 
 /**
  * This class is used to get the Hub REST connection
@@ -51,6 +68,12 @@ public final class RestConnectionHelper {
 
     private final static Logger logger = Logger.getLogger(RestConnectionHelper.class);
 
+    private static HubResponseCache hubResponseCache;
+
+    private static PoolingHttpClientConnectionManager connectionManager;
+
+    private static HubApiTokenAuthenticator hubApiTokenAuthenticator;
+
     /**
      * Build the Hub Server information for connection
      *
@@ -124,6 +147,91 @@ public final class RestConnectionHelper {
         return restConnection;
     }
 
+    /**
+     * Get the Hub REST connection that authenticates with the API token. The connection itself is unauthenticated, the
+     * bearer token is added to the requests by the Hub API token authenticator
+     *
+     * @param propertyConstants
+     * @return
+     */
+    private static RestConnection getApiTokenRestConnection(final PropertyConstants propertyConstants) {
+        try {
+            return new UnauthenticatedRestConnection(new PrintStreamIntLogger(System.out, LogLevel.DEBUG), new URL(propertyConstants.getHubServerUrl()),
+                    Integer.parseInt(propertyConstants.getHubTimeout()), getProxyInfo(propertyConstants), new UriCombiner());
+        } catch (final MalformedURLException | IllegalArgumentException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Get the Hub API token authenticator, it is created on the first call and shared by the Hub REST connections so
+     * that the bearer token is cached for the lifetime of the process
+     *
+     * @param restConnection
+     * @param propertyConstants
+     * @return
+     */
+    private static synchronized HubApiTokenAuthenticator getHubApiTokenAuthenticator(final RestConnection restConnection,
+            final PropertyConstants propertyConstants) {
+        if (hubApiTokenAuthenticator == null) {
+            final String authenticateUrl = StringUtils.removeEnd(propertyConstants.getHubServerUrl(), "/") + HubApiTokenAuthenticator.AUTHENTICATE_PATH;
+            final String apiToken = propertyConstants.getHubApiToken();
+            hubApiTokenAuthenticator = new HubApiTokenAuthenticator(() -> authenticate(restConnection, authenticateUrl, apiToken));
+        }
+        return hubApiTokenAuthenticator;
+    }
+
+    /**
+     * Exchange the Hub API token for a bearer token
+     *
+     * @param restConnection
+     * @param authenticateUrl
+     * @param apiToken
+     * @return
+     * @throws IOException
+     */
+    private static HubApiTokenAuthenticator.BearerToken authenticate(final RestConnection restConnection, final String authenticateUrl,
+            final String apiToken) throws IOException {
+        final Request request = new Request.Builder(authenticateUrl).method(HttpMethod.POST).addAdditionalHeader(HttpHeaders.AUTHORIZATION, "token " + apiToken)
+                .build();
+        try (Response response = restConnection.executeRequest(request)) {
+            final JsonObject json = new JsonParser().parse(response.getContentString()).getAsJsonObject();
+            final JsonElement bearerToken = json.get("bearerToken");
+            if (bearerToken == null || bearerToken.isJsonNull()) {
+                throw new IOException("The Hub didn't return a bearer token for the API token");
+            }
+            final JsonElement expiresIn = json.get("expiresInMilliseconds");
+            return new HubApiTokenAuthenticator.BearerToken(bearerToken.getAsString(),
+                    expiresIn == null || expiresIn.isJsonNull() ? 0 : expiresIn.getAsLong());
+        } catch (final IntegrationException | JsonParseException | IllegalStateException e) {
+            throw new IOException("Unable to authenticate to the Hub with the API token", e);
+        }
+    }
+
+    /**
+     * Return the proxy info based on the application properties
+     *
+     * @param propertyConstants
+     * @return
+     */
+    private static ProxyInfo getProxyInfo(final PropertyConstants propertyConstants) {
+        if (!StringUtils.isEmpty(propertyConstants.getHubProxyHost())) {
+            logger.info("Inside Proxy settings");
+            final ProxyInfoBuilder proxyInfoBuilder = new ProxyInfoBuilder();
+            proxyInfoBuilder.setHost(propertyConstants.getHubProxyHost());
+            proxyInfoBuilder.setPort(Integer.parseInt(propertyConstants.getHubProxyPort()));
+            proxyInfoBuilder.setUsername(propertyConstants.getHubProxyUser());
+            proxyInfoBuilder.setPassword(propertyConstants.getHubProxyPassword());
+            proxyInfoBuilder.setNtlmDomain(propertyConstants.getHubProxyNtlmDomain());
+            proxyInfoBuilder.setNtlmWorkstation(propertyConstants.getHubProxyNtlmWorkstation());
+            proxyInfoBuilder.setIgnoredProxyHosts(propertyConstants.getHubProxyNoHost());
+            return proxyInfoBuilder.build();
+        } else {
+            return new ProxyInfo(null, 0, null, null, null, null);
+        }
+    }
+
     /**
      * Return the proxy info based on the configuration
      *
@@ -174,19 +282,92 @@ public final class RestConnectionHelper {
      * @return
      */
     private static HubServicesFactory createHubServicesFactory(final IntLogger logger, final PropertyConstants propertyConstants) {
-        final RestConnection restConnection = getApplicationPropertyRestConnection(propertyConstants);
+        final RestConnection restConnection;
+        if (StringUtils.isEmpty(propertyConstants.getHubApiToken())) {
+            restConnection = getApplicationPropertyRestConnection(propertyConstants);
+        } else {
+            // The bearer token of the API token is added to the requests by the authenticator
+            restConnection = getApiTokenRestConnection(propertyConstants);
+            final HubApiTokenAuthenticator authenticator = getHubApiTokenAuthenticator(restConnection, propertyConstants);
+            restConnection.getClientBuilder().addInterceptorLast(authenticator).setServiceUnavailableRetryStrategy(authenticator);
+        }
         restConnection.logger = logger;
-        // Adjust the number of connections in the connection pool. The keepAlive info is the same as the default
-        // constructor
-        final PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager(5, TimeUnit.MINUTES);
-        connManager.setDefaultMaxPerRoute(propertyConstants.getMaximumThreadSize());
-        connManager.setMaxTotal(propertyConstants.getMaximumThreadSize());
+        // Size the connection pool independently of the number of threads, the Hub services of a thread may run
+        // several requests in parallel
+        final PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager(propertyConstants.getHubConnectionPoolTtlSeconds(),
+                TimeUnit.SECONDS);
+        connManager.setMaxTotal(propertyConstants.getHubConnectionPoolMaxTotal());
+        connManager.setDefaultMaxPerRoute(propertyConstants.getHubConnectionPoolMaxPerRoute());
         restConnection.getClientBuilder().setConnectionManager(connManager);
+        if (propertyConstants.getHubConnectionPoolIdleEvictionSeconds() > 0) {
+            restConnection.getClientBuilder().evictExpiredConnections().evictIdleConnections(propertyConstants.getHubConnectionPoolIdleEvictionSeconds(),
+                    TimeUnit.SECONDS);
+        }
+        if (propertyConstants.getHubConnectionRequestTimeoutMillis() > 0) {
+            restConnection.getDefaultRequestConfigBuilder().setConnectionRequestTimeout(propertyConstants.getHubConnectionRequestTimeoutMillis());
+        }
+        setConnectionManager(connManager, propertyConstants);
 
-        // restConnection.getClientBuilder().setMaxConnPerRoute(propertyConstants.getMaximumThreadSize())
-        // .setMaxConnTotal(propertyConstants.getMaximumThreadSize())
-        // .setConnectionTimeToLive(5, TimeUnit.MINUTES);
+        // Revalidate the GET requests with the responses cached by the previous runs
+        final HubResponseCache responseCache = getHubResponseCache(propertyConstants);
+        if (responseCache != null) {
+            final ConditionalGetInterceptor conditionalGetInterceptor = new ConditionalGetInterceptor(responseCache);
+            restConnection.getClientBuilder().addInterceptorLast((HttpRequestInterceptor) conditionalGetInterceptor)
+                    .addInterceptorLast((HttpResponseInterceptor) conditionalGetInterceptor);
+        }
         final HubServicesFactory hubServicesFactory = new HubServicesFactory(restConnection);
         return hubServicesFactory;
     }
+
+    /**
+     * Get the Hub response cache, it is created on the first call when the cache directory is configured
+     *
+     * @param propertyConstants
+     * @return the cache, or null if it is disabled or can't be created
+     */
+    private static synchronized HubResponseCache getHubResponseCache(final PropertyConstants propertyConstants) {
+        if (hubResponseCache == null && !StringUtils.isEmpty(propertyConstants.getHubResponseCacheDir())) {
+            try {
+                hubResponseCache = new HubResponseCache(new File(propertyConstants.getHubResponseCacheDir()),
+                        propertyConstants.getHubResponseCacheMaxBytes(), propertyConstants.getHubResponseCacheMaxEntryBytes());
+            } catch (final IOException e) {
+                logger.warn("Unable to create the Hub response cache, the responses are not cached", e);
+            }
+        }
+        return hubResponseCache;
+    }
+
+    /**
+     * Get the Hub response cache
+     *
+     * @return the cache, or null if it is disabled
+     */
+    public static synchronized HubResponseCache getHubResponseCache() {
+        return hubResponseCache;
+    }
+
+    /**
+     * Get the Hub API token authenticator
+     *
+     * @return the authenticator, or null if the Hub is accessed with the username and password
+     */
+    public static synchronized HubApiTokenAuthenticator getHubApiTokenAuthenticator() {
+        return hubApiTokenAuthenticator;
+    }
+
+    private static synchronized void setConnectionManager(final PoolingHttpClientConnectionManager connManager, final PropertyConstants propertyConstants) {
+        connectionManager = connManager;
+        // The unset limits default to maximum.thread.size + hub.paging.threads
+        logger.info("Hub connection pool max total::" + connManager.getMaxTotal() + ", max per route::" + connManager.getDefaultMaxPerRoute()
+                + ", maximum.thread.size::" + propertyConstants.getMaximumThreadSize() + ", hub.paging.threads::" + propertyConstants.getHubPagingThreads());
+    }
+
+    /**
+     * Get the statistics of the Hub connection pool: the leased, pending and available connections
+     *
+     * @return the statistics, or null if the Hub services factory is not created
+     */
+    public static synchronized PoolStats getConnectionPoolStats() {
+        return connectionManager == null ? null : connectionManager.getTotalStats();
+    }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
+
+/**
+ * This class will be used to encode the vulnerabilities in a compact binary form, to store them on disk. The fields are
+ * written in the order of the Vulnerability constructor: the Strings as a length prefixed UTF-8 value, the dates as
+ * the epoch milliseconds and the decimals as their String representation. A null value is written as a -1 length or a
+ * false presence flag.
+ *
+ * @author smanikantan
+ *
+ */
+public final class VulnerabilityCodec {
+
+    private static final int NULL_LENGTH = -1;
+
+    // Approximate encoded size of the fields that are not Strings
+    private static final int FIXED_SIZE = 128;
+
+    /**
+     * Encode the vulnerability to a byte array
+     *
+     * @param vulnerability
+     * @return
+     * @throws IOException
+     */
+    public static byte[] encode(Vulnerability vulnerability) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(estimateSize(vulnerability));
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            write(vulnerability, output);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode the vulnerability from a byte array created by encode
+     *
+     * @param bytes
+     * @return
+     * @throws IOException
+     */
+    public static Vulnerability decode(byte[] bytes) throws IOException {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            return read(input);
+        }
+    }
+
+    /**
+     * Write the vulnerability to the output
+     *
+     * @param vulnerability
+     * @param output
+     * @throws IOException
+     */
+    public static void write(Vulnerability vulnerability, DataOutput output) throws IOException {
+        writeString(vulnerability.getProjectName(), output);
+        writeString(vulnerability.getProjectVersion(), output);
+        writeString(vulnerability.getProjectId(), output);
+        writeString(vulnerability.getVersionId(), output);
+        writeString(vulnerability.getChannelVersionId(), output);
+        writeString(vulnerability.getComponentName(), output);
+        writeString(vulnerability.getVersion(), output);
+        writeString(vulnerability.getChannelVersionOrigin(), output);
+        writeString(vulnerability.getChannelVersionOriginId(), output);
+        writeString(vulnerability.getChannelVersionOriginName(), output);
+        writeString(vulnerability.getVulnerabilityId(), output);
+        writeString(vulnerability.getDescription(), output);
+        writeDate(vulnerability.getPublishedOn(), output);
+        writeDate(vulnerability.getUpdatedOn(), output);
+        writeDecimal(vulnerability.getBaseScore(), output);
+        writeDecimal(vulnerability.getExploitability(), output);
+        writeDecimal(vulnerability.getImpact(), output);
+        writeString(vulnerability.getVulnerabilitySource(), output);
+        writeString(vulnerability.getHubVulnerabilityUrlPrefix(), output);
+        writeString(vulnerability.getRemediationStatus(), output);
+        writeDate(vulnerability.getRemediationTargetDate(), output);
+        writeDate(vulnerability.getRemediationActualDate(), output);
+        writeString(vulnerability.getRemediationComment(), output);
+        writeString(vulnerability.getSeverity(), output);
+        writeDate(vulnerability.getScanDate(), output);
+    }
+
+    /**
+     * Read a vulnerability written by write from the input
+     *
+     * @param input
+     * @return
+     * @throws IOException
+     */
+    public static Vulnerability read(DataInput input) throws IOException {
+        return read(input, null);
+    }
+
+    /**
+     * Read a vulnerability written by write from the input, the Strings are shared through the String pool
+     *
+     * @param input
+     * @param stringPool
+     *            pool of the Strings, or null if they are not shared
+     * @return
+     * @throws IOException
+     */
+    public static Vulnerability read(DataInput input, VulnerabilityStringPool stringPool) throws IOException {
+        return new Vulnerability(readString(input, stringPool), readString(input, stringPool), readString(input, stringPool),
+                readString(input, stringPool), readString(input, stringPool), readString(input, stringPool), readString(input, stringPool),
+                readString(input, stringPool), readString(input, stringPool), readString(input, stringPool), readString(input, stringPool),
+                readString(input, stringPool), readDate(input), readDate(input), readDecimal(input), readDecimal(input), readDecimal(input),
+                readString(input, stringPool), readString(input, stringPool), readString(input, stringPool), readDate(input), readDate(input),
+                readString(input, stringPool), readString(input, stringPool), readDate(input));
+    }
+
+    /**
+     * Estimate the encoded size of the vulnerability without encoding it. It is exact for the ASCII Strings.
+     *
+     * @param vulnerability
+     * @return
+     */
+    public static int estimateSize(Vulnerability vulnerability) {
+        return FIXED_SIZE + length(vulnerability.getProjectName()) + length(vulnerability.getProjectVersion())
+                + length(vulnerability.getProjectId()) + length(vulnerability.getVersionId()) + length(vulnerability.getChannelVersionId())
+                + length(vulnerability.getComponentName()) + length(vulnerability.getVersion()) + length(vulnerability.getChannelVersionOrigin())
+                + length(vulnerability.getChannelVersionOriginId()) + length(vulnerability.getChannelVersionOriginName())
+                + length(vulnerability.getVulnerabilityId()) + length(vulnerability.getDescription()) + length(vulnerability.getVulnerabilitySource())
+                + length(vulnerability.getHubVulnerabilityUrlPrefix()) + length(vulnerability.getRemediationStatus())
+                + length(vulnerability.getRemediationComment()) + length(vulnerability.getSeverity());
+    }
+
+    private static int length(String value) {
+        return value == null ? 4 : 4 + value.length();
+    }
+
+    private static void writeString(String value, DataOutput output) throws IOException {
+        if (value == null) {
+            output.writeInt(NULL_LENGTH);
+            return;
+        }
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInput input) throws IOException {
+        final int length = input.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String readString(DataInput input, VulnerabilityStringPool stringPool) throws IOException {
+        final String value = readString(input);
+        return stringPool == null ? value : stringPool.get(value);
+    }
+
+    private static void writeDate(Date value, DataOutput output) throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeLong(value.getTime());
+        }
+    }
+
+    private static Date readDate(DataInput input) throws IOException {
+        return input.readBoolean() ? new Date(input.readLong()) : null;
+    }
+
+    private static void writeDecimal(BigDecimal value, DataOutput output) throws IOException {
+        writeString(value == null ? null : value.toString(), output);
+    }
+
+    private static BigDecimal readDecimal(DataInput input) throws IOException {
+        final String value = readString(input);
+        return value == null ? null : new BigDecimal(value);
+    }
+}
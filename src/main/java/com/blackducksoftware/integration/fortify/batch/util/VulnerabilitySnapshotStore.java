@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.log4j.Logger;
+
+import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
+
+/**
+ * This class will be used to store on disk the transformed vulnerabilities of each Hub project version, with the last
+ * BOM updated date of the version. A run reads the vulnerabilities of the versions that are not updated since they are
+ * stored instead of downloading them from the Hub again. The snapshots are evicted in the least recently used order
+ * when their total size is above the maximum size, and ignored when they are older than the maximum age.
+ *
+ * A snapshot is a GZIP file: the format version, the URL of the Hub project version, the last BOM updated date, the
+ * creation time, the number of vulnerabilities and the vulnerabilities encoded by VulnerabilityCodec.
+ *
+ * @author smanikantan
+ *
+ */
+public final class VulnerabilitySnapshotStore {
+
+    private final static Logger logger = Logger.getLogger(VulnerabilitySnapshotStore.class);
+
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    // Changed when the encoding of the snapshots or the transformation of the vulnerabilities changes
+    private static final int FORMAT_VERSION = 1;
+
+    private final File directory;
+
+    private final long maximumBytes;
+
+    private final long maximumAgeMillis;
+
+    // Snapshots in the least recently used order, by hash of the Hub project version URL
+    private final FileLruIndex<Snapshot> snapshots;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong readRows = new AtomicLong();
+
+    /**
+     * Create the store and load the snapshots that are stored in the directory by the previous runs
+     *
+     * @param directory
+     * @param maximumBytes
+     * @param maximumAgeMillis
+     *            snapshots older than this are ignored, 0 or less for no limit
+     * @throws IOException
+     */
+    public VulnerabilitySnapshotStore(final File directory, final long maximumBytes, final long maximumAgeMillis) throws IOException {
+        this.directory = directory;
+        this.maximumBytes = maximumBytes;
+        this.maximumAgeMillis = maximumAgeMillis;
+        this.snapshots = new FileLruIndex<>(maximumBytes);
+        Files.createDirectories(directory.toPath());
+        load();
+    }
+
+    private static final class Snapshot extends FileLruIndex.Entry {
+        private final File file;
+
+        private Snapshot(String key, long length, File file) {
+            super(key, length);
+            this.file = file;
+        }
+
+        @Override
+        void delete() {
+            file.delete();
+        }
+    }
+
+    /**
+     * Get the vulnerabilities of the Hub project version if they are stored for the same last BOM updated date
+     *
+     * @param projectVersionUrl
+     * @param bomLastUpdatedAt
+     * @param stringPool
+     *            pool of the Strings of the vulnerabilities
+     * @return the vulnerabilities, or null if there is no valid snapshot
+     */
+    public List<Vulnerability> get(final String projectVersionUrl, final Date bomLastUpdatedAt, final VulnerabilityStringPool stringPool) {
+        final Snapshot snapshot = snapshots.get(FileLruIndex.hash(projectVersionUrl));
+        if (snapshot == null || bomLastUpdatedAt == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(snapshot.file))))) {
+            if (input.readInt() != FORMAT_VERSION || !projectVersionUrl.equals(input.readUTF()) || input.readLong() != bomLastUpdatedAt.getTime()) {
+                misses.incrementAndGet();
+                return null;
+            }
+            final long createdAt = input.readLong();
+            if (maximumAgeMillis > 0 && System.currentTimeMillis() - createdAt > maximumAgeMillis) {
+                misses.incrementAndGet();
+                return null;
+            }
+            final int count = input.readInt();
+            final List<Vulnerability> vulnerabilities = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                vulnerabilities.add(VulnerabilityCodec.read(input, stringPool));
+            }
+            hits.incrementAndGet();
+            readRows.addAndGet(count);
+            return vulnerabilities;
+        } catch (IOException e) {
+            logger.warn("Unable to read the vulnerability snapshot " + snapshot.file, e);
+            snapshots.remove(snapshot);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Store the vulnerabilities of the Hub project version, replacing the previous snapshot of the version
+     *
+     * @param projectVersionUrl
+     * @param bomLastUpdatedAt
+     * @param vulnerabilities
+     */
+    public void put(final String projectVersionUrl, final Date bomLastUpdatedAt, final List<Vulnerability> vulnerabilities) {
+        if (bomLastUpdatedAt == null) {
+            return;
+        }
+        final String key = FileLruIndex.hash(projectVersionUrl);
+        final File file = new File(directory, key + SNAPSHOT_SUFFIX);
+        try {
+            final File temporaryFile = File.createTempFile("snapshot", ".tmp", directory);
+            try {
+                try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(temporaryFile))))) {
+                    output.writeInt(FORMAT_VERSION);
+                    output.writeUTF(projectVersionUrl);
+                    output.writeLong(bomLastUpdatedAt.getTime());
+                    output.writeLong(System.currentTimeMillis());
+                    output.writeInt(vulnerabilities.size());
+                    for (Vulnerability vulnerability : vulnerabilities) {
+                        VulnerabilityCodec.write(vulnerability, output);
+                    }
+                }
+                final long length = temporaryFile.length();
+                if (length > maximumBytes) {
+                    return;
+                }
+                synchronized (snapshots) {
+                    Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    snapshots.put(new Snapshot(key, length, file));
+                }
+            } finally {
+                temporaryFile.delete();
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to store the vulnerability snapshot of " + projectVersionUrl, e);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getTotalBytes() {
+        return snapshots.getTotalBytes();
+    }
+
+    public int size() {
+        return snapshots.size();
+    }
+
+    /**
+     * Log the hit and miss counts and the size of the store
+     */
+    public void logStatistics() {
+        logger.info("Vulnerability snapshot hits::" + hits.get() + ", misses::" + misses.get() + ", vulnerabilities read from disk::" + readRows.get()
+                + ", snapshots::" + size() + ", bytes::" + getTotalBytes());
+    }
+
+    /**
+     * Load the snapshots of the previous runs, the least recently written first
+     */
+    private void load() {
+        for (File file : FileLruIndex.listFiles(directory, SNAPSHOT_SUFFIX)) {
+            final String key = file.getName().substring(0, file.getName().length() - SNAPSHOT_SUFFIX.length());
+            snapshots.put(new Snapshot(key, file.length(), file));
+        }
+        logger.info("Loaded " + snapshots.size() + " vulnerability snapshots, bytes::" + snapshots.getTotalBytes());
+    }
+}
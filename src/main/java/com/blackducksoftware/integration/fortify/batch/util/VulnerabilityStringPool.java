@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class will be used to share the equal String values of the vulnerabilities of a mapping group. Component
+ * names, versions, origins, vulnerability names and descriptions repeat across the rows and across the project
+ * versions of the group, so each distinct value is kept once instead of once per row.
+ *
+ * It is safe to use from the parallel transformation threads.
+ *
+ * @author smanikantan
+ *
+ */
+public final class VulnerabilityStringPool {
+
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+
+    /**
+     * Get the pooled instance of the value
+     *
+     * @param value
+     * @return the first equal value added to the pool, or null if the value is null
+     */
+    public String get(String value) {
+        if (value == null) {
+            return null;
+        }
+        final String pooledValue = values.putIfAbsent(value, value);
+        return pooledValue == null ? value : pooledValue;
+    }
+
+    /**
+     * Get the number of distinct values in the pool
+     *
+     * @return
+     */
+    public int size() {
+        return values.size();
+    }
+}
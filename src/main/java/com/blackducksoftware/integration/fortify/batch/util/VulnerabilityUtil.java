@@ -22,14 +22,19 @@
  */
 package com.blackducksoftware.integration.fortify.batch.util;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Pattern;
 
 import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
-import com.blackducksoftware.integration.hub.api.generated.enumeration.VulnerabilityWithRemediationSourceType;
+import com.blackducksoftware.integration.hub.api.generated.component.VulnerabilityWithRemediationView;
 import com.blackducksoftware.integration.hub.api.generated.view.VulnerableComponentView;
 
 /**
@@ -40,36 +45,114 @@ import com.blackducksoftware.integration.hub.api.generated.view.VulnerableCompon
  */
 public final class VulnerabilityUtil {
 
+    private static final String MULTIPLE_PROJECTS = "Multiple projects";
+
+    private static final String MULTIPLE_VERSIONS = "Multiple versions";
+
+    private static final String HUB_VULNERABILITY_PATH = "/api/vulnerabilities/";
+
+    private static final String CRLF = "\r\n";
+
+    private static final Pattern CRLF_PATTERN = Pattern.compile(CRLF, Pattern.LITERAL);
+
+    private static ForkJoinPool transformPool;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
     /**
-     * It will be used to remove the duplicate vulnerabilities in the list
+     * It will be used to remove the duplicate vulnerabilities in the list. The unique vulnerability is the combination
+     * of Component name and version, Channel version and Vulnerability Id. If a vulnerability is present more than once,
+     * the last occurrence is kept and its project name and version name are replaced by Multiple projects and Multiple
+     * versions. The unique vulnerabilities are returned in the order of their first occurrence.
      *
      * @param vulnerabilities
      * @return
      */
     public static List<Vulnerability> removeDuplicates(List<Vulnerability> vulnerabilities) {
-        Map<String, Vulnerability> uniqueKeys = new HashMap<>();
-        // Iterate the vulnerabilities to remove the duplicates
-        vulnerabilities.forEach(vulnerability -> {
-            // The unique vulnerability will be the combination of Component name and version, Channel version and
-            // Vulnerability Id
-            String uniqueKey = vulnerability.getComponentName() + "~" + vulnerability.getVersion() + "~" + vulnerability.getChannelVersionOriginId() + "~"
-                    + vulnerability.getVulnerabilityId();
-
-            // If the vulnerability is present in multiple project, then assign the project name and version name to
-            // Multiple projects and Multiple versions respectively
-            if (uniqueKeys.containsKey(uniqueKey)) {
-                vulnerability = new Vulnerability("Multiple projects", "Multiple versions", vulnerability.getProjectId(), vulnerability.getVersionId(),
-                        vulnerability.getChannelVersionId(), vulnerability.getComponentName(), vulnerability.getVersion(),
-                        vulnerability.getChannelVersionOrigin(), vulnerability.getChannelVersionOriginId(), vulnerability.getChannelVersionOriginName(),
-                        vulnerability.getVulnerabilityId(), vulnerability.getDescription(), vulnerability.getPublishedOn(), vulnerability.getUpdatedOn(),
-                        vulnerability.getBaseScore(), vulnerability.getExploitability(), vulnerability.getImpact(), vulnerability.getVulnerabilitySource(),
-                        vulnerability.getHubVulnerabilityUrl(), vulnerability.getRemediationStatus(), vulnerability.getRemediationTargetDate(),
-                        vulnerability.getRemediationActualDate(), vulnerability.getRemediationComment(), vulnerability.getUrl(), vulnerability.getSeverity(),
-                        vulnerability.getScanDate());
+        final FingerprintIndex uniqueKeys = new FingerprintIndex(vulnerabilities.size());
+        // Index of the last occurrence of each unique vulnerability, in the order of the first occurrence
+        int[] lastOccurrences = new int[Math.max(16, vulnerabilities.size() / 2)];
+        final BitSet duplicates = new BitSet();
+        final long[] fingerprint = new long[2];
+        int rowIndex = 0;
+        for (Vulnerability vulnerability : vulnerabilities) {
+            fingerprint(vulnerability, fingerprint);
+            final int uniqueIndex = uniqueKeys.size();
+            final int existingIndex = uniqueKeys.putIfAbsent(fingerprint[0], fingerprint[1], uniqueIndex);
+            if (existingIndex < 0) {
+                if (uniqueIndex == lastOccurrences.length) {
+                    lastOccurrences = Arrays.copyOf(lastOccurrences, uniqueIndex << 1);
+                }
+                lastOccurrences[uniqueIndex] = rowIndex;
+            } else {
+                lastOccurrences[existingIndex] = rowIndex;
+                duplicates.set(existingIndex);
             }
-            uniqueKeys.put(uniqueKey, vulnerability);
-        });
-        return new ArrayList<>(uniqueKeys.values());
+            rowIndex++;
+        }
+
+        // Apply the Multiple projects/Multiple versions rewrite once per unique vulnerability
+        final int uniqueCount = uniqueKeys.size();
+        final List<Vulnerability> uniqueVulnerabilities = new ArrayList<>(uniqueCount);
+        for (int uniqueIndex = 0; uniqueIndex < uniqueCount; uniqueIndex++) {
+            final Vulnerability vulnerability = vulnerabilities.get(lastOccurrences[uniqueIndex]);
+            uniqueVulnerabilities.add(duplicates.get(uniqueIndex) ? toMultipleProjects(vulnerability) : vulnerability);
+        }
+        return uniqueVulnerabilities;
+    }
+
+    /**
+     * Compute the 128 bit fingerprint of the unique key of the vulnerability
+     *
+     * @param vulnerability
+     * @param fingerprint
+     *            array that receives the high and the low 64 bits of the fingerprint
+     */
+    static void fingerprint(Vulnerability vulnerability, long[] fingerprint) {
+        fingerprint[0] = FNV_OFFSET_BASIS;
+        fingerprint[1] = GOLDEN_GAMMA;
+        addToFingerprint(vulnerability.getComponentName(), fingerprint);
+        addToFingerprint(vulnerability.getVersion(), fingerprint);
+        addToFingerprint(vulnerability.getChannelVersionOriginId(), fingerprint);
+        addToFingerprint(vulnerability.getVulnerabilityId(), fingerprint);
+        fingerprint[0] = mix(fingerprint[0]);
+        fingerprint[1] = mix(fingerprint[1]);
+    }
+
+    private static void addToFingerprint(String field, long[] fingerprint) {
+        // Same key as the concatenated String key, where a null field was rendered as "null"
+        final String value = field == null ? "null" : field;
+        final int length = value.length();
+        long high = fingerprint[0];
+        long low = fingerprint[1];
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            high = (high ^ c) * FNV_PRIME;
+            low = Long.rotateLeft((low ^ c) * GOLDEN_GAMMA, 31);
+        }
+        // Mix the length in, so that the field boundaries are part of the key
+        fingerprint[0] = (high ^ length) * FNV_PRIME;
+        fingerprint[1] = Long.rotateLeft((low ^ length) * GOLDEN_GAMMA, 31);
+    }
+
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Copy the vulnerability with the project name and version name replaced by Multiple projects and Multiple versions
+     *
+     * @param vulnerability
+     * @return
+     */
+    static Vulnerability toMultipleProjects(Vulnerability vulnerability) {
+        return vulnerability.withProject(MULTIPLE_PROJECTS, MULTIPLE_VERSIONS);
     }
 
     /**
@@ -82,41 +165,251 @@ public final class VulnerabilityUtil {
      */
     public static List<Vulnerability> transformMapping(List<VulnerableComponentView> vulnerabilityComponentViews, String hubProjectName,
             String hubProjectVersion, Date maxBomUpdatedDate, PropertyConstants propertyConstants) {
-        List<Vulnerability> vulnerabilities = new ArrayList<>();
-        vulnerabilityComponentViews.forEach(vulnerableComponentView -> {
-            String[] componentVersionLinkArr = vulnerableComponentView.componentVersion.split("/");
-            Vulnerability vulnerability = new Vulnerability(String.valueOf(hubProjectName),
-                    String.valueOf(hubProjectVersion),
-                    String.valueOf(componentVersionLinkArr[5]),
-                    String.valueOf(componentVersionLinkArr[7]),
-                    "",
-                    String.valueOf(vulnerableComponentView.componentName),
-                    String.valueOf(vulnerableComponentView.componentVersionName),
-                    String.valueOf(vulnerableComponentView.componentVersionOriginName),
-                    String.valueOf(vulnerableComponentView.componentVersionOriginId),
-                    String.valueOf(vulnerableComponentView.componentVersionName),
-                    String.valueOf(vulnerableComponentView.vulnerabilityWithRemediation.vulnerabilityName),
-                    String.valueOf(vulnerableComponentView.vulnerabilityWithRemediation.description.replaceAll("\\r\\n", "")),
-                    vulnerableComponentView.vulnerabilityWithRemediation.vulnerabilityPublishedDate,
-                    vulnerableComponentView.vulnerabilityWithRemediation.vulnerabilityUpdatedDate,
-                    vulnerableComponentView.vulnerabilityWithRemediation.baseScore,
-                    vulnerableComponentView.vulnerabilityWithRemediation.exploitabilitySubscore,
-                    vulnerableComponentView.vulnerabilityWithRemediation.impactSubscore,
-                    String.valueOf(vulnerableComponentView.vulnerabilityWithRemediation.source.toString()),
-                    propertyConstants.getHubServerUrl() + "/api/vulnerabilities/"
-                            + String.valueOf(vulnerableComponentView.vulnerabilityWithRemediation.vulnerabilityName),
-                    String.valueOf(vulnerableComponentView.vulnerabilityWithRemediation.remediationStatus.toString()),
-                    vulnerableComponentView.vulnerabilityWithRemediation.remediationTargetAt,
-                    vulnerableComponentView.vulnerabilityWithRemediation.remediationActualAt,
-                    String.valueOf(""),
-                    VulnerabilityWithRemediationSourceType.NVD.equals(vulnerableComponentView.vulnerabilityWithRemediation.source)
-                            ? "http://web.nvd.nist.gov/view/vuln/detail?vulnId="
-                                    + vulnerableComponentView.vulnerabilityWithRemediation.vulnerabilityName
-                            : "",
-                    String.valueOf(vulnerableComponentView.vulnerabilityWithRemediation.severity.toString()),
-                    maxBomUpdatedDate);
-            vulnerabilities.add(vulnerability);
-        });
+        return transformMapping(vulnerabilityComponentViews, hubProjectName, hubProjectVersion, maxBomUpdatedDate, propertyConstants,
+                new VulnerabilityStringPool());
+    }
+
+    /**
+     * It will convert Hub Component view to CSV Vulnerability view. The repeating String values are shared through the
+     * pool, so that the vulnerabilities of all the project versions of a mapping group can share a single pool.
+     *
+     * @param vulnerabilityComponentViews
+     * @param hubProjectName
+     * @param hubProjectVersion
+     * @param maxBomUpdatedDate
+     * @param propertyConstants
+     * @param stringPool
+     * @return List<Vulnerability>
+     */
+    public static List<Vulnerability> transformMapping(List<VulnerableComponentView> vulnerabilityComponentViews, String hubProjectName,
+            String hubProjectVersion, Date maxBomUpdatedDate, PropertyConstants propertyConstants, VulnerabilityStringPool stringPool) {
+        final String projectName = stringPool.get(String.valueOf(hubProjectName));
+        final String projectVersion = stringPool.get(String.valueOf(hubProjectVersion));
+        final String hubVulnerabilityUrlPrefix = stringPool.get(getHubVulnerabilityUrlPrefix(propertyConstants.getHubServerUrl()));
+        final int threshold = propertyConstants.getTransformParallelThreshold();
+        if (threshold > 0 && vulnerabilityComponentViews.size() >= threshold) {
+            final VulnerableComponentView[] views = vulnerabilityComponentViews.toArray(new VulnerableComponentView[vulnerabilityComponentViews.size()]);
+            final Vulnerability[] vulnerabilities = new Vulnerability[views.length];
+            getTransformPool(propertyConstants.getTransformParallelism())
+                    .invoke(new TransformTask(views, vulnerabilities, 0, views.length, projectName, projectVersion, hubVulnerabilityUrlPrefix,
+                            maxBomUpdatedDate, stringPool));
+            return new ArrayList<>(Arrays.asList(vulnerabilities));
+        }
+        final List<Vulnerability> vulnerabilities = new ArrayList<>(vulnerabilityComponentViews.size());
+        for (VulnerableComponentView vulnerableComponentView : vulnerabilityComponentViews) {
+            vulnerabilities.add(transform(vulnerableComponentView, projectName, projectVersion, hubVulnerabilityUrlPrefix, maxBomUpdatedDate,
+                    stringPool));
+        }
         return vulnerabilities;
     }
+
+    /**
+     * Get the fork join pool of the parallel transformation. It is separate from the common pool, so that the
+     * transformation does not compete with the other users of the common pool. The pool is created once per process by
+     * the first parallel transformation, so transform.parallelism is fixed at first use and the parallelism of the later
+     * calls is ignored.
+     *
+     * @param parallelism
+     *            number of threads of the pool, only used when the pool is created
+     * @return
+     */
+    private static synchronized ForkJoinPool getTransformPool(int parallelism) {
+        if (transformPool == null) {
+            transformPool = new ForkJoinPool(parallelism, pool -> {
+                final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("vulnerability-transform-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+        return transformPool;
+    }
+
+    /**
+     * Transform a range of the Hub Component views. Each row is written at its own index, so the output order is the
+     * input order whatever the order in which the ranges are processed.
+     */
+    private static final class TransformTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private static final int SEQUENTIAL_THRESHOLD = 2048;
+
+        private final VulnerableComponentView[] views;
+
+        private final Vulnerability[] vulnerabilities;
+
+        private final int start;
+
+        private final int end;
+
+        private final String projectName;
+
+        private final String projectVersion;
+
+        private final String hubVulnerabilityUrlPrefix;
+
+        private final Date maxBomUpdatedDate;
+
+        private final VulnerabilityStringPool stringPool;
+
+        private TransformTask(VulnerableComponentView[] views, Vulnerability[] vulnerabilities, int start, int end, String projectName,
+                String projectVersion, String hubVulnerabilityUrlPrefix, Date maxBomUpdatedDate, VulnerabilityStringPool stringPool) {
+            this.views = views;
+            this.vulnerabilities = vulnerabilities;
+            this.start = start;
+            this.end = end;
+            this.projectName = projectName;
+            this.projectVersion = projectVersion;
+            this.hubVulnerabilityUrlPrefix = hubVulnerabilityUrlPrefix;
+            this.maxBomUpdatedDate = maxBomUpdatedDate;
+            this.stringPool = stringPool;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= SEQUENTIAL_THRESHOLD) {
+                for (int i = start; i < end; i++) {
+                    vulnerabilities[i] = transform(views[i], projectName, projectVersion, hubVulnerabilityUrlPrefix, maxBomUpdatedDate, stringPool);
+                }
+                return;
+            }
+            final int middle = (start + end) >>> 1;
+            invokeAll(new TransformTask(views, vulnerabilities, start, middle, projectName, projectVersion, hubVulnerabilityUrlPrefix,
+                    maxBomUpdatedDate, stringPool),
+                    new TransformTask(views, vulnerabilities, middle, end, projectName, projectVersion, hubVulnerabilityUrlPrefix,
+                            maxBomUpdatedDate, stringPool));
+        }
+    }
+
+    /**
+     * Convert one Hub Component view to CSV Vulnerability view
+     *
+     * @param vulnerableComponentView
+     * @param projectName
+     * @param projectVersion
+     * @param hubVulnerabilityUrlPrefix
+     * @param maxBomUpdatedDate
+     * @param stringPool
+     * @return
+     */
+    private static Vulnerability transform(VulnerableComponentView vulnerableComponentView, String projectName, String projectVersion,
+            String hubVulnerabilityUrlPrefix, Date maxBomUpdatedDate, VulnerabilityStringPool stringPool) {
+        final VulnerabilityWithRemediationView vulnerabilityWithRemediation = vulnerableComponentView.vulnerabilityWithRemediation;
+        return newVulnerability(projectName, projectVersion, hubVulnerabilityUrlPrefix, maxBomUpdatedDate, stringPool,
+                vulnerableComponentView.componentVersion,
+                vulnerableComponentView.componentName,
+                vulnerableComponentView.componentVersionName,
+                vulnerableComponentView.componentVersionOriginName,
+                vulnerableComponentView.componentVersionOriginId,
+                vulnerabilityWithRemediation.vulnerabilityName,
+                vulnerabilityWithRemediation.description,
+                vulnerabilityWithRemediation.vulnerabilityPublishedDate,
+                vulnerabilityWithRemediation.vulnerabilityUpdatedDate,
+                vulnerabilityWithRemediation.baseScore,
+                vulnerabilityWithRemediation.exploitabilitySubscore,
+                vulnerabilityWithRemediation.impactSubscore,
+                vulnerabilityWithRemediation.source.toString(),
+                vulnerabilityWithRemediation.remediationStatus.toString(),
+                vulnerabilityWithRemediation.remediationTargetAt,
+                vulnerabilityWithRemediation.remediationActualAt,
+                vulnerabilityWithRemediation.severity.toString());
+    }
+
+    /**
+     * Create the CSV Vulnerability view from the fields of a Hub vulnerable component. It is shared by the
+     * transformation of the Hub Component views and by the streaming decoder of the Hub responses, so that both give
+     * the same rows.
+     *
+     * @return
+     */
+    static Vulnerability newVulnerability(String projectName, String projectVersion, String hubVulnerabilityUrlPrefix, Date maxBomUpdatedDate,
+            VulnerabilityStringPool stringPool, String componentVersionLink, String componentName, String componentVersionName,
+            String componentVersionOriginName, String componentVersionOriginId, String vulnerabilityName, String description, Date publishedDate,
+            Date updatedDate, BigDecimal baseScore, BigDecimal exploitabilitySubscore, BigDecimal impactSubscore, String source,
+            String remediationStatus, Date remediationTargetAt, Date remediationActualAt, String severity) {
+        // The component version link is <hub url>/api/components/<component id>/versions/<version id>
+        final String pooledComponentVersionName = stringPool.get(String.valueOf(componentVersionName));
+        // The enum names are constants already, they do not need to be pooled
+        return new Vulnerability(projectName,
+                projectVersion,
+                stringPool.get(linkSegment(componentVersionLink, 5)),
+                stringPool.get(linkSegment(componentVersionLink, 7)),
+                "",
+                stringPool.get(String.valueOf(componentName)),
+                pooledComponentVersionName,
+                stringPool.get(String.valueOf(componentVersionOriginName)),
+                stringPool.get(String.valueOf(componentVersionOriginId)),
+                pooledComponentVersionName,
+                stringPool.get(String.valueOf(vulnerabilityName)),
+                stringPool.get(removeLineBreaks(description)),
+                publishedDate,
+                updatedDate,
+                baseScore,
+                exploitabilitySubscore,
+                impactSubscore,
+                source,
+                hubVulnerabilityUrlPrefix,
+                remediationStatus,
+                remediationTargetAt,
+                remediationActualAt,
+                "",
+                severity,
+                maxBomUpdatedDate);
+    }
+
+    /**
+     * Get the prefix of the Hub Vulnerability URL of the vulnerabilities
+     *
+     * @param hubServerUrl
+     * @return
+     */
+    static String getHubVulnerabilityUrlPrefix(String hubServerUrl) {
+        return hubServerUrl + HUB_VULNERABILITY_PATH;
+    }
+
+    /**
+     * Get the segment at the given index of the '/' separated link, same as link.split("/")[index] without the regular
+     * expression and the array allocation
+     *
+     * @param link
+     * @param index
+     * @return
+     */
+    static String linkSegment(String link, int index) {
+        int start = 0;
+        for (int i = 0; i < index; i++) {
+            start = link.indexOf('/', start) + 1;
+            if (start == 0) {
+                throw new ArrayIndexOutOfBoundsException(index);
+            }
+        }
+        final int end = link.indexOf('/', start);
+        final String segment = end < 0 ? link.substring(start) : link.substring(start, end);
+        if (segment.isEmpty() && !link.isEmpty() && isTrailing(link, start)) {
+            // split drops the trailing empty segments
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return segment;
+    }
+
+    private static boolean isTrailing(String link, int start) {
+        for (int i = start; i < link.length(); i++) {
+            if (link.charAt(i) != '/') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove the Windows line breaks of the description. Most descriptions do not have any, so they are returned as is.
+     *
+     * @param description
+     * @return
+     */
+    static String removeLineBreaks(String description) {
+        if (description.indexOf(CRLF) < 0) {
+            return description;
+        }
+        return CRLF_PATTERN.matcher(description).replaceAll("");
+    }
 }
@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * This class decodes a page of the Hub vulnerable BOM components response straight into the CSV Vulnerability view. It
+ * streams the response and reads only the fields that are exported, the rest of the payload (meta data, links, license
+ * and remediation audit fields) is skipped without being materialized.
+ *
+ * The rows are the same as the ones of VulnerabilityUtil.transformMapping for the Hub Component views of the page.
+ *
+ * @author smanikantan
+ *
+ */
+public final class VulnerableComponentDecoder implements HubPageDecoder<Vulnerability> {
+
+    private final String projectName;
+
+    private final String projectVersion;
+
+    private final String hubVulnerabilityUrlPrefix;
+
+    private final Date maxBomUpdatedDate;
+
+    private final VulnerabilityStringPool stringPool;
+
+    public VulnerableComponentDecoder(final String projectName, final String projectVersion, final String hubServerUrl, final Date maxBomUpdatedDate,
+            final VulnerabilityStringPool stringPool) {
+        this.projectName = projectName;
+        this.projectVersion = projectVersion;
+        this.hubVulnerabilityUrlPrefix = stringPool.get(VulnerabilityUtil.getHubVulnerabilityUrlPrefix(hubServerUrl));
+        this.maxBomUpdatedDate = maxBomUpdatedDate;
+        this.stringPool = stringPool;
+    }
+
+    @Override
+    public HubPage<Vulnerability> decode(final Reader reader) throws IOException {
+        // The pages are decoded concurrently, the date format is not thread safe
+        final SimpleDateFormat dateFormat = HubDateFormat.create();
+        int totalCount = 0;
+        final List<Vulnerability> items = new ArrayList<>();
+        final JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            final String name = jsonReader.nextName();
+            if ("totalCount".equals(name)) {
+                totalCount = jsonReader.nextInt();
+            } else if ("items".equals(name)) {
+                jsonReader.beginArray();
+                while (jsonReader.hasNext()) {
+                    items.add(readVulnerableComponent(jsonReader, dateFormat));
+                }
+                jsonReader.endArray();
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+        return new HubPage<>(totalCount, items);
+    }
+
+    private Vulnerability readVulnerableComponent(final JsonReader jsonReader, final SimpleDateFormat dateFormat) throws IOException {
+        String componentVersion = null;
+        String componentName = null;
+        String componentVersionName = null;
+        String componentVersionOriginName = null;
+        String componentVersionOriginId = null;
+        String vulnerabilityName = null;
+        String description = null;
+        Date publishedDate = null;
+        Date updatedDate = null;
+        BigDecimal baseScore = null;
+        BigDecimal exploitabilitySubscore = null;
+        BigDecimal impactSubscore = null;
+        String source = null;
+        String remediationStatus = null;
+        Date remediationTargetAt = null;
+        Date remediationActualAt = null;
+        String severity = null;
+
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            final String name = jsonReader.nextName();
+            if ("componentVersion".equals(name)) {
+                componentVersion = nextString(jsonReader);
+            } else if ("componentName".equals(name)) {
+                componentName = nextString(jsonReader);
+            } else if ("componentVersionName".equals(name)) {
+                componentVersionName = nextString(jsonReader);
+            } else if ("componentVersionOriginName".equals(name)) {
+                componentVersionOriginName = nextString(jsonReader);
+            } else if ("componentVersionOriginId".equals(name)) {
+                componentVersionOriginId = nextString(jsonReader);
+            } else if ("vulnerabilityWithRemediation".equals(name) && jsonReader.peek() == JsonToken.BEGIN_OBJECT) {
+                jsonReader.beginObject();
+                while (jsonReader.hasNext()) {
+                    final String vulnerabilityField = jsonReader.nextName();
+                    if ("vulnerabilityName".equals(vulnerabilityField)) {
+                        vulnerabilityName = nextString(jsonReader);
+                    } else if ("description".equals(vulnerabilityField)) {
+                        description = nextString(jsonReader);
+                    } else if ("vulnerabilityPublishedDate".equals(vulnerabilityField)) {
+                        publishedDate = nextDate(jsonReader, dateFormat);
+                    } else if ("vulnerabilityUpdatedDate".equals(vulnerabilityField)) {
+                        updatedDate = nextDate(jsonReader, dateFormat);
+                    } else if ("baseScore".equals(vulnerabilityField)) {
+                        baseScore = nextBigDecimal(jsonReader);
+                    } else if ("exploitabilitySubscore".equals(vulnerabilityField)) {
+                        exploitabilitySubscore = nextBigDecimal(jsonReader);
+                    } else if ("impactSubscore".equals(vulnerabilityField)) {
+                        impactSubscore = nextBigDecimal(jsonReader);
+                    } else if ("source".equals(vulnerabilityField)) {
+                        source = nextString(jsonReader);
+                    } else if ("remediationStatus".equals(vulnerabilityField)) {
+                        remediationStatus = nextString(jsonReader);
+                    } else if ("remediationTargetAt".equals(vulnerabilityField)) {
+                        remediationTargetAt = nextDate(jsonReader, dateFormat);
+                    } else if ("remediationActualAt".equals(vulnerabilityField)) {
+                        remediationActualAt = nextDate(jsonReader, dateFormat);
+                    } else if ("severity".equals(vulnerabilityField)) {
+                        severity = nextString(jsonReader);
+                    } else {
+                        jsonReader.skipValue();
+                    }
+                }
+                jsonReader.endObject();
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+
+        return VulnerabilityUtil.newVulnerability(projectName, projectVersion, hubVulnerabilityUrlPrefix, maxBomUpdatedDate, stringPool,
+                componentVersion, componentName, componentVersionName, componentVersionOriginName, componentVersionOriginId, vulnerabilityName,
+                description, publishedDate, updatedDate, baseScore, exploitabilitySubscore, impactSubscore, source, remediationStatus,
+                remediationTargetAt, remediationActualAt, severity);
+    }
+
+    private static String nextString(final JsonReader jsonReader) throws IOException {
+        if (jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.nextNull();
+            return null;
+        }
+        return jsonReader.nextString();
+    }
+
+    private static BigDecimal nextBigDecimal(final JsonReader jsonReader) throws IOException {
+        final String value = nextString(jsonReader);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (final NumberFormatException e) {
+            throw new IOException("Invalid number " + value + " in the Hub response", e);
+        }
+    }
+
+    private static Date nextDate(final JsonReader jsonReader, final SimpleDateFormat dateFormat) throws IOException {
+        final String value = nextString(jsonReader);
+        return value == null ? null : HubDateFormat.parse(value, dateFormat);
+    }
+}
@@ -55,8 +55,14 @@ public final class FortifyUploadApi extends FortifyService {
 
     private final String URL;
 
+    private final boolean zipUpload;
+
+    private final int zipCompressionLevel;
+
     public FortifyUploadApi(final PropertyConstants propertyConstants) {
         super(propertyConstants);
+        zipUpload = propertyConstants.isFortifyUploadZip();
+        zipCompressionLevel = propertyConstants.getFortifyUploadZipCompressionLevel();
         okBuilder = getHeader(propertyConstants.getFortifyUserName(),
                 propertyConstants.getFortifyPassword());
         okHttpClient = okBuilder.build();
@@ -76,7 +82,14 @@ public final class FortifyUploadApi extends FortifyService {
         MultipartBody.Builder builder = new MultipartBody.Builder().setType(MultipartBody.FORM);
         builder.addFormDataPart("entityId", String.valueOf(entityIdVal));
         builder.addFormDataPart("engineType", "BLACKDUCK");
-        builder.addFormDataPart("files[]", file.getName(), RequestBody.create(MediaType.parse("text/csv"), file));
+        ZipFileRequestBody zipFileRequestBody = null;
+        if (zipUpload) {
+            // The CSV is compressed while it is uploaded
+            zipFileRequestBody = new ZipFileRequestBody(file, zipCompressionLevel);
+            builder.addFormDataPart("files[]", file.getName() + ".zip", zipFileRequestBody);
+        } else {
+            builder.addFormDataPart("files[]", file.getName(), RequestBody.create(MediaType.parse("text/csv"), file));
+        }
 
         RequestBody requestBody = builder.build();
 
@@ -85,6 +98,14 @@ public final class FortifyUploadApi extends FortifyService {
         JobStatusResponse jobStatusResponse = null;
         try {
             response = okHttpClient.newCall(request).execute();
+            if (zipFileRequestBody != null) {
+                final long rawBytes = zipFileRequestBody.getRawBytes();
+                final long compressedBytes = zipFileRequestBody.getCompressedBytes();
+                logger.info("Uploaded " + file.getName() + " raw bytes::" + rawBytes + ", compressed bytes::" + compressedBytes + ", ratio::"
+                        + String.format("%.1f%%", rawBytes == 0 ? 100d : compressedBytes * 100d / rawBytes));
+            } else {
+                logger.info("Uploaded " + file.getName() + " raw bytes::" + file.length());
+            }
             Serializer serializer = new Persister();
             try {
                 jobStatusResponse = serializer.read(JobStatusResponse.class, response.body().string());
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * This class will be used to upload a file as a zip archive with a single entry. The file is compressed while it is
+ * written to the request, so the archive is never stored on disk or in memory.
+ *
+ * @author smanikantan
+ *
+ */
+public final class ZipFileRequestBody extends RequestBody {
+
+    private static final MediaType ZIP_MEDIA_TYPE = MediaType.parse("application/zip");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+
+    private final int compressionLevel;
+
+    private volatile long rawBytes;
+
+    private volatile long compressedBytes;
+
+    /**
+     * @param file
+     * @param compressionLevel
+     *            0 to 9, or -1 for the default level of the Deflater
+     */
+    public ZipFileRequestBody(final File file, final int compressionLevel) {
+        this.file = file;
+        this.compressionLevel = compressionLevel;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return ZIP_MEDIA_TYPE;
+    }
+
+    @Override
+    public long contentLength() {
+        // Unknown until the file is compressed, the request is sent in chunks
+        return -1;
+    }
+
+    @Override
+    public void writeTo(final BufferedSink sink) throws IOException {
+        final CountingOutputStream countingOutputStream = new CountingOutputStream(sink.outputStream());
+        long fileBytes = 0;
+        // Closing the archive releases its Deflater on every path, the counting stream doesn't close the sink that
+        // OkHttp closes
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(countingOutputStream); InputStream inputStream = new FileInputStream(file)) {
+            zipOutputStream.setLevel(compressionLevel);
+            zipOutputStream.putNextEntry(new ZipEntry(file.getName()));
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int length;
+            while ((length = inputStream.read(buffer)) != -1) {
+                zipOutputStream.write(buffer, 0, length);
+                fileBytes += length;
+            }
+            zipOutputStream.closeEntry();
+            zipOutputStream.finish();
+            zipOutputStream.flush();
+        }
+        rawBytes = fileBytes;
+        compressedBytes = countingOutputStream.count;
+    }
+
+    /**
+     * Get the size of the file in the last upload
+     *
+     * @return
+     */
+    public long getRawBytes() {
+        return rawBytes;
+    }
+
+    /**
+     * Get the size of the zip archive in the last upload
+     *
+     * @return
+     */
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(final OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() {
+            // The sink is closed by OkHttp
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.step;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import com.blackducksoftware.integration.exception.IntegrationException;
+import com.blackducksoftware.integration.fortify.batch.model.BlackDuckFortifyMapperGroup;
+import com.blackducksoftware.integration.fortify.batch.model.HubProjectVersion;
+import com.blackducksoftware.integration.fortify.batch.util.GroupLeaseManager;
+import com.blackducksoftware.integration.fortify.batch.util.PropertyConstants;
+import com.blackducksoftware.integration.fortify.load.StubSscServer;
+import com.blackducksoftware.integration.fortify.service.FortifyFileTokenApi;
+import com.blackducksoftware.integration.fortify.service.FortifyUploadApi;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the upload of a CSV to the Fortify application versions of the groups of a thread
+ *
+ * @author smanikantan
+ *
+ */
+public class BlackDuckFortifyPushThreadTest extends TestCase {
+
+    @Test
+    public void testLostLeaseIsSkipped() throws IOException, IntegrationException, InterruptedException {
+        final StubSscServer sscServer = new StubSscServer(0, 0, 0);
+        sscServer.start();
+        final File directory = Files.createTempDirectory("push-test").toFile();
+        final File leaseDirectory = new File(directory, "leases");
+        try (GroupLeaseManager groupLeaseManager = new GroupLeaseManager(leaseDirectory, 300)) {
+            final GroupLeaseManager.Lease lostLease = groupLeaseManager.tryAcquire("application-1", "1.0");
+            takeOver(groupLeaseManager, leaseDirectory);
+            final GroupLeaseManager.Lease lease = groupLeaseManager.tryAcquire("application-2", "1.0");
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (!lostLease.isLost() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(lostLease.isLost());
+
+            final File csv = createCsv(directory);
+            createPushThread(sscServer, Arrays.asList(createGroup(1), createGroup(2)), Arrays.asList(lostLease, lease))
+                    .uploadVulnerabilities(csv.getPath());
+            assertEquals(Collections.singletonList(2), sscServer.getUploadedApplicationVersionIds());
+
+            // Nothing is uploaded for a single group whose lease is lost
+            createPushThread(sscServer, Collections.singletonList(createGroup(1)), Collections.singletonList(lostLease))
+                    .uploadVulnerabilities(createCsv(directory).getPath());
+            assertEquals(1, sscServer.getUploadCount());
+        } finally {
+            sscServer.stop();
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testFailedTargetDoesNotFailTheOthers() throws IOException, IntegrationException {
+        final StubSscServer sscServer = new StubSscServer(0, 0, 0);
+        sscServer.start();
+        sscServer.rejectUploads(2);
+        final File directory = Files.createTempDirectory("push-test").toFile();
+        try {
+            final File csv = createCsv(directory);
+            createPushThread(sscServer, Arrays.asList(createGroup(1), createGroup(2), createGroup(3)), null).uploadVulnerabilities(csv.getPath());
+
+            final List<Integer> uploadedApplicationVersionIds = new ArrayList<>(sscServer.getUploadedApplicationVersionIds());
+            Collections.sort(uploadedApplicationVersionIds);
+            assertEquals(Arrays.asList(1, 3), uploadedApplicationVersionIds);
+            // Kept for the application version where the upload failed
+            assertTrue(csv.exists());
+        } finally {
+            sscServer.stop();
+            delete(directory);
+        }
+    }
+
+    static BlackDuckFortifyPushThread createPushThread(final StubSscServer sscServer, final List<BlackDuckFortifyMapperGroup> groups,
+            final List<GroupLeaseManager.Lease> leases) {
+        final PropertyConstants propertyConstants = new PropertyConstants();
+        propertyConstants.setFortifyServerUrl(sscServer.getBaseUrl());
+        propertyConstants.setFortifyUserName("admin");
+        propertyConstants.setFortifyPassword("admin");
+        return new BlackDuckFortifyPushThread(groups, null, new FortifyFileTokenApi(propertyConstants), new FortifyUploadApi(propertyConstants),
+                propertyConstants, false, leases);
+    }
+
+    static BlackDuckFortifyMapperGroup createGroup(final int fortifyApplicationId) {
+        return new BlackDuckFortifyMapperGroup("application-" + fortifyApplicationId, "1.0",
+                Collections.singletonList(new HubProjectVersion("project", "1.0", null)), fortifyApplicationId);
+    }
+
+    static File createCsv(final File directory) throws IOException {
+        final File csv = File.createTempFile("vulnerabilities", ".csv", directory);
+        Files.write(csv.toPath(), "Project name,Version name\nproject,1.0\n".getBytes(StandardCharsets.UTF_8));
+        return csv;
+    }
+
+    // Another instance takes over the leases of the directory
+    private static void takeOver(final GroupLeaseManager groupLeaseManager, final File leaseDirectory) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty("owner", "other");
+        properties.setProperty("expiresAt", String.valueOf(System.currentTimeMillis() + 60000));
+        // Not written while the manager renews its leases
+        synchronized (groupLeaseManager) {
+            for (File file : leaseDirectory.listFiles((dir, name) -> name.endsWith(".lease"))) {
+                try (OutputStream output = new FileOutputStream(file)) {
+                    properties.store(output, null);
+                }
+            }
+        }
+    }
+
+    static void delete(final File file) {
+        final File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.step;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.blackducksoftware.integration.fortify.batch.model.BlackDuckFortifyMapperGroup;
+import com.blackducksoftware.integration.fortify.batch.model.HubProjectVersion;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the gathering of the groups that share a CSV
+ *
+ * @author smanikantan
+ *
+ */
+public class InitializerTest extends TestCase {
+
+    private static final String URL_1 = "https://hub.example.com/api/projects/1/versions/1";
+
+    private static final String URL_2 = "https://hub.example.com/api/projects/2/versions/2";
+
+    @Test
+    public void testGroupsWithTheSameVersionsShareTheCsv() {
+        final BlackDuckFortifyMapperGroup first = createGroup(1, new HubProjectVersion("a", "1.0", URL_1), new HubProjectVersion("b", "2.0", null));
+        final BlackDuckFortifyMapperGroup second = createGroup(2, new HubProjectVersion("a", "1.0", URL_1), new HubProjectVersion("b", "2.0", null));
+        final BlackDuckFortifyMapperGroup other = createGroup(3, new HubProjectVersion("c", "1.0", null));
+
+        final Collection<List<BlackDuckFortifyMapperGroup>> sharedGroups = Initializer.getSharedGroups(Arrays.asList(first, other, second), null);
+        assertEquals(Arrays.asList(Arrays.asList(first, second), Collections.singletonList(other)), new ArrayList<>(sharedGroups));
+    }
+
+    @Test
+    public void testOrderOfTheVersionsIsIgnored() {
+        final BlackDuckFortifyMapperGroup first = createGroup(1, new HubProjectVersion("a", "1.0", URL_1), new HubProjectVersion("b", "2.0", URL_2));
+        final BlackDuckFortifyMapperGroup second = createGroup(2, new HubProjectVersion("b", "2.0", URL_2), new HubProjectVersion("a", "1.0", URL_1));
+
+        final Collection<List<BlackDuckFortifyMapperGroup>> sharedGroups = Initializer.getSharedGroups(Arrays.asList(first, second), null);
+        assertEquals(Collections.singletonList(Arrays.asList(first, second)), new ArrayList<>(sharedGroups));
+    }
+
+    @Test
+    public void testGroupsWithOtherUrlsDontShareTheCsv() {
+        final BlackDuckFortifyMapperGroup pinned = createGroup(1, new HubProjectVersion("a", "1.0", URL_1));
+        final BlackDuckFortifyMapperGroup otherUrl = createGroup(2, new HubProjectVersion("a", "1.0", URL_2));
+        final BlackDuckFortifyMapperGroup byName = createGroup(3, new HubProjectVersion("a", "1.0", null));
+
+        final Collection<List<BlackDuckFortifyMapperGroup>> sharedGroups = Initializer.getSharedGroups(Arrays.asList(pinned, otherUrl, byName), null);
+        assertEquals(3, sharedGroups.size());
+    }
+
+    @Test
+    public void testOnlyTheChangedGroupsAreGathered() {
+        final BlackDuckFortifyMapperGroup first = createGroup(1, new HubProjectVersion("a", "1.0", null));
+        final BlackDuckFortifyMapperGroup second = createGroup(2, new HubProjectVersion("a", "1.0", null));
+
+        final Collection<List<BlackDuckFortifyMapperGroup>> sharedGroups = Initializer.getSharedGroups(Arrays.asList(first, second),
+                Collections.singleton(second));
+        assertEquals(Collections.singletonList(Collections.singletonList(second)), new ArrayList<>(sharedGroups));
+    }
+
+    private static BlackDuckFortifyMapperGroup createGroup(final int fortifyApplicationId, final HubProjectVersion... hubProjectVersions) {
+        return new BlackDuckFortifyMapperGroup("application-" + fortifyApplicationId, "1.0", Arrays.asList(hubProjectVersions), fortifyApplicationId);
+    }
+}
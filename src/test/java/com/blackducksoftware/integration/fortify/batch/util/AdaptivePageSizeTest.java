@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the adaptation of the Hub page size
+ *
+ * @author smanikantan
+ *
+ */
+public class AdaptivePageSizeTest extends TestCase {
+
+    @Test
+    public void testPageSizeMovesTowardsTheTargets() {
+        final AdaptivePageSize pageSize = new AdaptivePageSize(500, 100, 2000, 2000, 1000000);
+        assertEquals(500, pageSize.get());
+
+        // 500 items in 500 ms and 100 KB, the latency target allows 2000 items
+        pageSize.record(500, 500, 100000);
+        assertEquals(1250, pageSize.get());
+
+        // 1250 items in 5 s, the latency target allows 500 items
+        pageSize.record(1250, 5000, 250000);
+        assertEquals(875, pageSize.get());
+
+        // 875 items of 2 KB, the size target allows 500 items
+        pageSize.record(875, 100, 1750000);
+        assertEquals(687, pageSize.get());
+    }
+
+    @Test
+    public void testPageSizeStaysWithinTheLimits() {
+        final AdaptivePageSize pageSize = new AdaptivePageSize(5000, 100, 2000, 2000, 1000000);
+        assertEquals(2000, pageSize.get());
+        for (int i = 0; i < 20; i++) {
+            pageSize.record(pageSize.get(), 60000, 100);
+        }
+        assertEquals(100, pageSize.get());
+        // Empty pages are ignored
+        pageSize.record(0, 60000, 100);
+        assertEquals(100, pageSize.get());
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the cache of the CSV fragments of the Hub project versions
+ *
+ * @author smanikantan
+ *
+ */
+public class CsvFragmentCacheTest extends TestCase {
+
+    private static final String VERSION_URL = "https://hub/api/projects/1/versions/";
+
+    private static final String[] PROJECTS = { "project", "project, \"quoted\"", "other" };
+
+    @Test
+    public void testAssembledCsvMatchesTheRenderedCsv() throws IOException {
+        final File directory = Files.createTempDirectory("fragment-test").toFile();
+        try {
+            // The group is assembled from the fragments of a previous run, with an older scan date
+            final CsvFragmentCache previousCache = new CsvFragmentCache(directory, 1 << 20, 0);
+            for (int version = 0; version < PROJECTS.length; version++) {
+                previousCache.put(VERSION_URL + version, new Date(1000L), PROJECTS[version], "1.0", createVulnerabilities(version, new Date(3000L)))
+                        .close();
+            }
+
+            final Date scanDate = new Date(1509000000123L);
+            final CsvFragmentCache cache = new CsvFragmentCache(directory, 1 << 20, 0);
+            final List<CsvFragmentCache.Fragment> fragments = new ArrayList<>();
+            final List<Vulnerability> merged = new ArrayList<>();
+            for (int version = 0; version < PROJECTS.length; version++) {
+                fragments.add(cache.get(VERSION_URL + version, new Date(1000L), PROJECTS[version], "1.0"));
+                merged.addAll(createVulnerabilities(version, scanDate));
+            }
+            // The project name of the rows are part of the fragment
+            assertNull(cache.get(VERSION_URL + 0, new Date(1000L), "renamed", "1.0"));
+            assertEquals(PROJECTS.length, cache.getHits());
+
+            final File assembled = new File(directory, "assembled.out");
+            final File rendered = new File(directory, "rendered.out");
+            try {
+                assertEquals(VulnerabilityUtil.removeDuplicates(merged).size(), cache.assemble(fragments, scanDate, true, assembled));
+            } finally {
+                for (CsvFragmentCache.Fragment fragment : fragments) {
+                    fragment.close();
+                }
+            }
+            CSVUtils.writeToCSV(VulnerabilityUtil.removeDuplicates(merged), rendered.getPath(), ',');
+            assertEquals(new String(Files.readAllBytes(rendered.toPath()), StandardCharsets.UTF_8),
+                    new String(Files.readAllBytes(assembled.toPath()), StandardCharsets.UTF_8));
+        } finally {
+            TestVulnerabilities.delete(directory);
+        }
+    }
+
+    @Test
+    public void testSingleVersionIsCopiedWithTheDuplicates() throws IOException {
+        final File directory = Files.createTempDirectory("fragment-test").toFile();
+        try {
+            final CsvFragmentCache cache = new CsvFragmentCache(directory, 1 << 20, 0);
+            final List<Vulnerability> vulnerabilities = createVulnerabilities(1, new Date(3000L));
+            vulnerabilities.addAll(createVulnerabilities(1, new Date(3000L)));
+            final File assembled = new File(directory, "assembled.out");
+            final File rendered = new File(directory, "rendered.out");
+            try (CsvFragmentCache.Fragment fragment = cache.put(VERSION_URL, new Date(1000L), PROJECTS[1], "1.0", vulnerabilities)) {
+                assertEquals(vulnerabilities.size(), cache.assemble(Arrays.asList(fragment), new Date(3000L), false, assembled));
+            }
+            CSVUtils.writeToCSV(vulnerabilities, rendered.getPath(), ',');
+            assertTrue(Arrays.equals(Files.readAllBytes(rendered.toPath()), Files.readAllBytes(assembled.toPath())));
+
+            // No row, no file
+            try (CsvFragmentCache.Fragment fragment = cache.put(VERSION_URL + 0, new Date(1000L), "empty", "1.0", new ArrayList<>())) {
+                assertEquals(0, cache.assemble(Arrays.asList(fragment), new Date(3000L), true, new File(directory, "empty.out")));
+            }
+            assertFalse(new File(directory, "empty.out").exists());
+        } finally {
+            TestVulnerabilities.delete(directory);
+        }
+    }
+
+    @Test
+    public void testOldFragmentIsIgnored() throws IOException, InterruptedException {
+        final File directory = Files.createTempDirectory("fragment-test").toFile();
+        try {
+            final CsvFragmentCache cache = new CsvFragmentCache(directory, 1 << 20, 1);
+            cache.put(VERSION_URL, new Date(1000L), "project", "1.0", createVulnerabilities(0, new Date(3000L))).close();
+            Thread.sleep(10);
+            assertNull(cache.get(VERSION_URL, new Date(1000L), "project", "1.0"));
+        } finally {
+            TestVulnerabilities.delete(directory);
+        }
+    }
+
+    // The versions share the components of even index
+    private List<Vulnerability> createVulnerabilities(final int version, final Date scanDate) {
+        final List<Vulnerability> vulnerabilities = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final int component = i % 2 == 0 ? i : version * 100 + i;
+            vulnerabilities.add(TestVulnerabilities.newVulnerability(PROJECTS[version], "1.0", "component-" + component, "1." + (i % 4),
+                    "origin-" + component, "CVE-" + component, i % 5 == 0 ? null : "description, " + i, scanDate));
+        }
+        return vulnerabilities;
+    }
+}
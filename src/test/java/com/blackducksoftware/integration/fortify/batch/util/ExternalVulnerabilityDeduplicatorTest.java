@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the external deduplication, the rendered rows must be the same as the in memory duplicate removal
+ *
+ * @author smanikantan
+ *
+ */
+public class ExternalVulnerabilityDeduplicatorTest extends TestCase {
+
+    private final ObjectWriter csvWriter = new CsvMapper().writer(new CsvMapper().schemaFor(Vulnerability.class).withHeader());
+
+    @Test
+    public void testCodecRoundTrip() throws IOException {
+        final Vulnerability vulnerability = new Vulnerability("p", "v", "pid", "vid", "", "component é", "1.0", "maven", "oid", "1.0", "CVE-1",
+                null, new Date(1000L), null, new BigDecimal("7.5"), null, new BigDecimal("10"), "NVD", "https://hub/api/vulnerabilities/", "NEW",
+                null, new Date(2000L), "", "HIGH", new Date(3000L));
+        assertEquals(vulnerability.toString(), VulnerabilityCodec.decode(VulnerabilityCodec.encode(vulnerability)).toString());
+    }
+
+    @Test
+    public void testSpilledRunsMatchRemoveDuplicates() throws IOException {
+        final List<Vulnerability> vulnerabilities = createVulnerabilities(20000);
+        final String expected = render(VulnerabilityUtil.removeDuplicates(vulnerabilities));
+
+        // In memory, row threshold, byte threshold and one run per row, merged in intermediate passes
+        assertEquals(expected, deduplicate(vulnerabilities, 0, 0));
+        assertEquals(expected, deduplicate(vulnerabilities, 1500, 0));
+        assertEquals(expected, deduplicate(vulnerabilities, 0, 200000L));
+        assertEquals(render(VulnerabilityUtil.removeDuplicates(vulnerabilities.subList(0, 300))), deduplicate(vulnerabilities.subList(0, 300), 1, 0));
+    }
+
+    private String deduplicate(List<Vulnerability> vulnerabilities, int rowThreshold, long byteThreshold) throws IOException {
+        final File spillDirectory = Files.createTempDirectory("dedup-test").toFile();
+        final StringWriter output = new StringWriter();
+        try (ExternalVulnerabilityDeduplicator deduplicator = new ExternalVulnerabilityDeduplicator(spillDirectory, rowThreshold, byteThreshold)) {
+            deduplicator.addAll(vulnerabilities);
+            try (SequenceWriter writer = csvWriter.writeValues(output)) {
+                deduplicator.writeTo(writer);
+            }
+        } finally {
+            final String[] remaining = spillDirectory.list();
+            assertNotNull(remaining);
+            assertEquals(0, remaining.length);
+            spillDirectory.delete();
+        }
+        return output.toString();
+    }
+
+    private String render(List<Vulnerability> vulnerabilities) throws IOException {
+        final StringWriter output = new StringWriter();
+        try (SequenceWriter writer = csvWriter.writeValues(output)) {
+            writer.writeAll(vulnerabilities);
+        }
+        return output.toString();
+    }
+
+    private static List<Vulnerability> createVulnerabilities(int count) {
+        final Random random = new Random(7);
+        final Date scanDate = new Date();
+        final List<Vulnerability> vulnerabilities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int component = random.nextInt(2000);
+            vulnerabilities.add(TestVulnerabilities.newVulnerability("project-" + random.nextInt(3), "version-" + random.nextInt(5),
+                    "component-" + component, "1." + (component % 4), "origin-" + (component % 7), "CVE-" + random.nextInt(20), "description " + i,
+                    scanDate));
+        }
+        return vulnerabilities;
+    }
+}
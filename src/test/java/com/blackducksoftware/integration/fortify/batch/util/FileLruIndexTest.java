@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the least recently used index of the disk caches
+ *
+ * @author smanikantan
+ *
+ */
+public class FileLruIndexTest extends TestCase {
+
+    private static final class TestEntry extends FileLruIndex.Entry {
+        private final List<TestEntry> deleted;
+
+        private TestEntry(String key, long length, List<TestEntry> deleted) {
+            super(key, length);
+            this.deleted = deleted;
+        }
+
+        @Override
+        void delete() {
+            deleted.add(this);
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() {
+        final List<TestEntry> deleted = new ArrayList<>();
+        final FileLruIndex<TestEntry> index = new FileLruIndex<>(10);
+        final TestEntry a = new TestEntry("a", 4, deleted);
+        final TestEntry b = new TestEntry("b", 4, deleted);
+        index.put(a);
+        index.put(b);
+        assertSame(a, index.get("a"));
+        index.put(new TestEntry("c", 4, deleted));
+        assertNull(index.get("b"));
+        assertEquals(8, index.getTotalBytes());
+        assertEquals(1, deleted.size());
+        assertSame(b, deleted.get(0));
+    }
+
+    @Test
+    public void testReplacedEntryIsNotRemoved() {
+        final List<TestEntry> deleted = new ArrayList<>();
+        final FileLruIndex<TestEntry> index = new FileLruIndex<>(10);
+        final TestEntry previous = new TestEntry("a", 4, deleted);
+        final TestEntry current = new TestEntry("a", 6, deleted);
+        index.put(previous);
+        index.put(current);
+        // The replaced entry shares the files of the current one
+        index.remove(previous);
+        assertSame(current, index.get("a"));
+        assertEquals(6, index.getTotalBytes());
+        assertTrue(deleted.isEmpty());
+
+        index.remove(current);
+        assertEquals(0, index.size());
+        assertEquals(0, index.getTotalBytes());
+        assertSame(current, deleted.get(0));
+    }
+
+    @Test
+    public void testHashIsTheHexSha1() {
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", FileLruIndex.hash("abc"));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the fingerprint index and of the duplicate removal that is built on it
+ *
+ * @author smanikantan
+ *
+ */
+public class FingerprintIndexTest extends TestCase {
+
+    @Test
+    public void testPutIfAbsent() {
+        final FingerprintIndex index = new FingerprintIndex(4);
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(-1, index.putIfAbsent(i * 31L, i, i));
+        }
+        assertEquals(10000, index.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(i, index.putIfAbsent(i * 31L, i, -5));
+            assertEquals(i, index.get(i * 31L, i));
+        }
+        // Same low bits but a different high part is a different fingerprint
+        assertEquals(-1, index.get(1L, 1L));
+        assertEquals(10000, index.size());
+    }
+
+    @Test
+    public void testRemoveDuplicatesMatchesStringKeys() {
+        final Random random = new Random(42);
+        final Date scanDate = new Date();
+        final List<Vulnerability> vulnerabilities = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            final int component = random.nextInt(800);
+            vulnerabilities.add(TestVulnerabilities.newVulnerability("project-" + random.nextInt(3), "version-" + random.nextInt(5),
+                    "component-" + component, "1." + (component % 4), "origin-" + (component % 7), "CVE-" + random.nextInt(20), "description",
+                    scanDate));
+        }
+        // Field boundaries are part of the key
+        vulnerabilities.add(TestVulnerabilities.newVulnerability("p", "v", "ab", "c", "o", "CVE-1", "description", scanDate));
+        vulnerabilities.add(TestVulnerabilities.newVulnerability("p", "v", "a", "bc", "o", "CVE-1", "description", scanDate));
+
+        final List<Vulnerability> uniqueVulnerabilities = VulnerabilityUtil.removeDuplicates(vulnerabilities);
+        final Map<String, Vulnerability> expected = removeDuplicatesWithStringKeys(vulnerabilities);
+
+        assertEquals(expected.size(), uniqueVulnerabilities.size());
+        final Set<String> keys = new HashSet<>();
+        for (Vulnerability vulnerability : uniqueVulnerabilities) {
+            final String key = key(vulnerability);
+            assertTrue("Duplicate key " + key, keys.add(key));
+            assertEquals(expected.get(key).toString(), vulnerability.toString());
+        }
+    }
+
+    private static Map<String, Vulnerability> removeDuplicatesWithStringKeys(List<Vulnerability> vulnerabilities) {
+        final Map<String, Vulnerability> uniqueKeys = new HashMap<>();
+        final Map<String, Integer> counts = new HashMap<>();
+        for (Vulnerability vulnerability : vulnerabilities) {
+            uniqueKeys.put(key(vulnerability), vulnerability);
+            counts.merge(key(vulnerability), 1, Integer::sum);
+        }
+        final Map<String, Vulnerability> expected = new HashMap<>();
+        for (Map.Entry<String, Vulnerability> entry : uniqueKeys.entrySet()) {
+            final Vulnerability vulnerability = entry.getValue();
+            expected.put(entry.getKey(), counts.get(entry.getKey()) > 1 ? TestVulnerabilities.newVulnerability("Multiple projects",
+                    "Multiple versions", vulnerability.getComponentName(), vulnerability.getVersion(), vulnerability.getChannelVersionOriginId(),
+                    vulnerability.getVulnerabilityId(), vulnerability.getDescription(), vulnerability.getScanDate()) : vulnerability);
+        }
+        return expected;
+    }
+
+    private static String key(Vulnerability vulnerability) {
+        return vulnerability.getComponentName() + "~" + vulnerability.getVersion() + "~" + vulnerability.getChannelVersionOriginId() + "~"
+                + vulnerability.getVulnerabilityId();
+    }
+}
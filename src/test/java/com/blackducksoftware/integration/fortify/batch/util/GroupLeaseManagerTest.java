@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the leases of the groups shared by the instances
+ *
+ * @author smanikantan
+ *
+ */
+public class GroupLeaseManagerTest extends TestCase {
+
+    @Test
+    public void testLeaseIsHeldByOneInstanceAtATime() throws IOException {
+        final File directory = Files.createTempDirectory("lease-test").toFile();
+        try (GroupLeaseManager first = new GroupLeaseManager(directory, 60000); GroupLeaseManager second = new GroupLeaseManager(directory, 60000)) {
+            final GroupLeaseManager.Lease lease = first.tryAcquire("a_b", "c");
+            assertNotNull(lease);
+            assertNull(first.tryAcquire("a_b", "c"));
+            assertNull(second.tryAcquire("a_b", "c"));
+            // The names are not concatenated
+            assertNotNull(second.tryAcquire("a", "b_c"));
+
+            lease.close();
+            assertNotNull(second.tryAcquire("a_b", "c"));
+        } finally {
+            TestVulnerabilities.delete(directory);
+        }
+    }
+
+    @Test
+    public void testProcessedGroupIsKeptUntilTheLeaseExpires() throws IOException, InterruptedException {
+        final File directory = Files.createTempDirectory("lease-test").toFile();
+        try (GroupLeaseManager first = new GroupLeaseManager(directory, 300); GroupLeaseManager second = new GroupLeaseManager(directory, 300)) {
+            final GroupLeaseManager.Lease lease = first.tryAcquire("a", "b");
+            lease.complete();
+            // Not released by the close that follows the processing
+            lease.close();
+            assertNull(second.tryAcquire("a", "b"));
+
+            // Not renewed anymore, the lease expires after its time to live
+            final long deadline = System.currentTimeMillis() + 5000;
+            GroupLeaseManager.Lease reclaimed = null;
+            while (reclaimed == null && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+                reclaimed = second.tryAcquire("a", "b");
+            }
+            assertNotNull(reclaimed);
+        } finally {
+            TestVulnerabilities.delete(directory);
+        }
+    }
+
+    @Test
+    public void testExpiredLeaseIsReclaimed() throws IOException, InterruptedException {
+        final File directory = Files.createTempDirectory("lease-test").toFile();
+        try (GroupLeaseManager manager = new GroupLeaseManager(directory, 300)) {
+            // Lease of an instance that stopped
+            writeLease(manager, directory, "stopped", System.currentTimeMillis() - 1);
+            final GroupLeaseManager.Lease lease = manager.tryAcquire("a", "b");
+            assertNotNull(lease);
+
+            // Taken over by another instance after it expired, the renewal finds it lost
+            writeLease(manager, directory, "other", System.currentTimeMillis() + 60000);
+            final long deadline = System.currentTimeMillis() + 5000;
+            while (!lease.isLost() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(lease.isLost());
+            // The lease of the other instance is not released
+            lease.close();
+            assertNull(manager.tryAcquire("a", "b"));
+        } finally {
+            TestVulnerabilities.delete(directory);
+        }
+    }
+
+    private static void writeLease(final GroupLeaseManager manager, final File directory, final String owner, final long expiresAt) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty("owner", owner);
+        properties.setProperty("expiresAt", String.valueOf(expiresAt));
+        // Not written while the manager renews its leases
+        synchronized (manager) {
+            try (OutputStream output = new FileOutputStream(new File(directory, FileLruIndex.hash("a\u0000b") + ".lease"))) {
+                properties.store(output, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the Hub API token authentication
+ *
+ * @author smanikantan
+ *
+ */
+public class HubApiTokenAuthenticatorTest extends TestCase {
+
+    @Test
+    public void testConcurrentThreadsShareASingleLogin() throws InterruptedException, ExecutionException, IOException {
+        final AtomicInteger requestedTokens = new AtomicInteger();
+        final HubApiTokenAuthenticator authenticator = new HubApiTokenAuthenticator(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new HubApiTokenAuthenticator.BearerToken("token-" + requestedTokens.incrementAndGet(), 0);
+        });
+
+        final int threadCount = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            final List<Future<String>> tokens = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                tokens.add(executor.submit((Callable<String>) () -> {
+                    start.await();
+                    return authenticator.getBearerToken();
+                }));
+            }
+            start.countDown();
+            for (Future<String> token : tokens) {
+                assertEquals("token-1", token.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, requestedTokens.get());
+        assertEquals(1, authenticator.getLogins());
+
+        // A token rejected by a late thread doesn't drop the renewed token
+        authenticator.invalidate("token-0");
+        assertEquals("token-1", authenticator.getBearerToken());
+        authenticator.invalidate("token-1");
+        assertEquals("token-2", authenticator.getBearerToken());
+        assertEquals(2, authenticator.getLogins());
+    }
+
+    @Test
+    public void testRejectedRequestIsRetriedWithARenewedToken() throws IOException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/projects", exchange -> {
+            exchange.getRequestBody().close();
+            // The first token is expired on the Hub side
+            if ("Bearer token-2".equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                final byte[] body = "{\"totalCount\":0}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            } else {
+                exchange.sendResponseHeaders(401, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+
+        final AtomicInteger requestedTokens = new AtomicInteger();
+        final HubApiTokenAuthenticator authenticator = new HubApiTokenAuthenticator(
+                () -> new HubApiTokenAuthenticator.BearerToken("token-" + requestedTokens.incrementAndGet(), 7200000));
+        try (CloseableHttpClient client = HttpClientBuilder.create().addInterceptorLast(authenticator).setServiceUnavailableRetryStrategy(authenticator)
+                .build()) {
+            final String url = "http://localhost:" + server.getAddress().getPort() + "/api/projects";
+            try (CloseableHttpResponse response = client.execute(new HttpGet(url))) {
+                assertEquals(200, response.getStatusLine().getStatusCode());
+                assertEquals("{\"totalCount\":0}", EntityUtils.toString(response.getEntity()));
+            }
+            try (CloseableHttpResponse response = client.execute(new HttpGet(url))) {
+                assertEquals(200, response.getStatusLine().getStatusCode());
+                EntityUtils.consume(response.getEntity());
+            }
+        } finally {
+            server.stop(0);
+        }
+        assertEquals(2, authenticator.getLogins());
+        assertEquals(1, authenticator.getUnauthorizedResponses());
+    }
+}
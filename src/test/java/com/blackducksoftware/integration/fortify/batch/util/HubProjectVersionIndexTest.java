@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.blackducksoftware.integration.exception.IntegrationException;
+import com.blackducksoftware.integration.hub.api.generated.view.ProjectVersionView;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the index of the Hub project versions
+ *
+ * @author smanikantan
+ *
+ */
+public class HubProjectVersionIndexTest extends TestCase {
+
+    @Test
+    public void testVersionsOfAProjectAreListedOnce() throws InterruptedException, ExecutionException, IntegrationException {
+        final AtomicInteger listings = new AtomicInteger();
+        final HubProjectVersionIndex index = new HubProjectVersionIndex(null);
+        final HubProjectVersionIndex.ProjectVersionsLoader loader = projectName -> {
+            listings.incrementAndGet();
+            try {
+                Thread.sleep(100);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return versions("1.0", "2.0", "3.0");
+        };
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<ProjectVersionView>> lookups = new ArrayList<>();
+            for (int i = 0; i < 24; i++) {
+                final String versionName = (i % 3 + 1) + ".0";
+                lookups.add(executor.submit((Callable<ProjectVersionView>) () -> {
+                    start.await();
+                    return index.getProjectVersion("project", versionName, loader);
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < lookups.size(); i++) {
+                assertEquals((i % 3 + 1) + ".0", lookups.get(i).get().versionName);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, listings.get());
+
+        // A version created after the listing is added to the index
+        assertNull(index.getProjectVersion("project", "4.0", loader));
+        index.addProjectVersion("project", version("4.0"));
+        assertEquals("4.0", index.getProjectVersion("project", "4.0", loader).versionName);
+        assertEquals(1, listings.get());
+
+        // The next run lists the versions again
+        index.clear();
+        index.getProjectVersion("project", "1.0", loader);
+        assertEquals(2, listings.get());
+    }
+
+    @Test
+    public void testFailedListingIsRetried() throws IntegrationException {
+        final AtomicInteger listings = new AtomicInteger();
+        final HubProjectVersionIndex index = new HubProjectVersionIndex(null);
+        final HubProjectVersionIndex.ProjectVersionsLoader loader = projectName -> {
+            if (listings.incrementAndGet() == 1) {
+                throw new IntegrationException("Hub unavailable");
+            }
+            return versions("1.0");
+        };
+        try {
+            index.getProjectVersion("project", "1.0", loader);
+            fail("The listing error is not reported");
+        } catch (final IntegrationException e) {
+            assertEquals("Hub unavailable", e.getMessage());
+        }
+        assertEquals("1.0", index.getProjectVersion("project", "1.0", loader).versionName);
+        assertEquals(2, listings.get());
+    }
+
+    @Test
+    public void testProjectUrlsAreKeptAcrossRuns() throws IOException {
+        final File directory = Files.createTempDirectory("hub-project-index").toFile();
+        final File file = new File(directory, "projects.properties");
+        try {
+            final HubProjectVersionIndex index = new HubProjectVersionIndex(file);
+            index.putProjectUrl("project: one", "https://hub.example.com/api/projects/1");
+            index.putProjectUrl("project=two", "https://hub.example.com/api/projects/2");
+            index.save();
+
+            final HubProjectVersionIndex nextRunIndex = new HubProjectVersionIndex(file);
+            assertEquals("https://hub.example.com/api/projects/1", nextRunIndex.getProjectUrl("project: one"));
+            assertEquals("https://hub.example.com/api/projects/2", nextRunIndex.getProjectUrl("project=two"));
+            nextRunIndex.removeProjectUrl("project: one");
+            nextRunIndex.save();
+
+            assertNull(new HubProjectVersionIndex(file).getProjectUrl("project: one"));
+        } finally {
+            TestVulnerabilities.delete(directory);
+        }
+    }
+
+    private static Map<String, ProjectVersionView> versions(final String... versionNames) {
+        final Map<String, ProjectVersionView> versions = new ConcurrentHashMap<>();
+        for (String versionName : versionNames) {
+            versions.put(versionName, version(versionName));
+        }
+        return versions;
+    }
+
+    private static ProjectVersionView version(final String versionName) {
+        final ProjectVersionView projectVersionView = new ProjectVersionView();
+        projectVersionView.versionName = versionName;
+        return projectVersionView;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the conditional GET revalidation with the Hub response cache
+ *
+ * @author smanikantan
+ *
+ */
+public class HubResponseCacheTest extends TestCase {
+
+    private static final String ETAG = "\"v1\"";
+
+    @Test
+    public void testNotModifiedResponseIsServedFromTheCache() throws IOException {
+        final AtomicInteger notModifiedCount = new AtomicInteger();
+        final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/projects", exchange -> {
+            exchange.getRequestBody().close();
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModifiedCount.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                final byte[] body = "{\"name\":\"project\"}".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+        final File directory = Files.createTempDirectory("hub-response-cache").toFile();
+        try {
+            final String url = "http://localhost:" + server.getAddress().getPort() + "/api/projects/1";
+            final HubResponseCache responseCache = new HubResponseCache(directory, 1024 * 1024);
+            assertEquals("{\"name\":\"project\"}", get(responseCache, url));
+            assertEquals("{\"name\":\"project\"}", get(responseCache, url));
+            assertEquals(1, responseCache.getMisses());
+            assertEquals(1, responseCache.getHits());
+            assertEquals(1, notModifiedCount.get());
+
+            // The responses are kept for the next runs
+            final HubResponseCache reloadedCache = new HubResponseCache(directory, 1024 * 1024);
+            assertEquals(1, reloadedCache.size());
+            assertEquals("{\"name\":\"project\"}", get(reloadedCache, url));
+            assertEquals(1, reloadedCache.getHits());
+            assertEquals(2, notModifiedCount.get());
+
+            // A body deleted before the request is downloaded again, without validators
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            assertEquals("{\"name\":\"project\"}", get(reloadedCache, url));
+            assertEquals(1, reloadedCache.getMisses());
+            assertEquals(2, notModifiedCount.get());
+
+            // A body larger than the maximum entry size is streamed, not cached
+            final HubResponseCache smallCache = new HubResponseCache(Files.createTempDirectory(directory.toPath(), "small").toFile(), 1024 * 1024, 8);
+            assertEquals("{\"name\":\"project\"}", get(smallCache, url));
+            assertEquals(0, smallCache.size());
+        } finally {
+            server.stop(0);
+            TestVulnerabilities.delete(directory);
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws IOException {
+        final File directory = Files.createTempDirectory("hub-response-cache").toFile();
+        try {
+            final HubResponseCache responseCache = new HubResponseCache(directory, 250);
+            responseCache.put("a", ETAG, null, "application/json", new byte[100]);
+            responseCache.put("b", ETAG, null, "application/json", new byte[100]);
+            assertNotNull(responseCache.get("a"));
+            responseCache.put("c", ETAG, null, "application/json", new byte[100]);
+            assertNotNull(responseCache.get("a"));
+            assertNull(responseCache.get("b"));
+            assertNotNull(responseCache.get("c"));
+            assertEquals(200, responseCache.getTotalBytes());
+            assertEquals(100, responseCache.read("c").getBody().length);
+            assertEquals(2, new HubResponseCache(directory, 250).size());
+        } finally {
+            TestVulnerabilities.delete(directory);
+        }
+    }
+
+    private static String get(HubResponseCache responseCache, String url) throws IOException {
+        final ConditionalGetInterceptor interceptor = new ConditionalGetInterceptor(responseCache);
+        try (CloseableHttpClient client = HttpClientBuilder.create().addInterceptorLast((HttpRequestInterceptor) interceptor)
+                .addInterceptorLast((HttpResponseInterceptor) interceptor).build();
+                CloseableHttpResponse response = client.execute(new HttpGet(url))) {
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            return EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+import com.blackducksoftware.integration.exception.IntegrationException;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the paging of the Hub lists against a stub server that caps the page size
+ *
+ * @author smanikantan
+ *
+ */
+public class HubServicesPagingTest extends TestCase {
+
+    private static final int PAGE_SIZE = 100;
+
+    private static final int MAXIMUM_PAGE_SIZE = 30;
+
+    @Test
+    public void testShortPagesAreCompleted() throws IOException, IntegrationException {
+        final HttpServer server = startServer(1000, 1000);
+        try (CloseableHttpClient client = HttpClientBuilder.create().build()) {
+            final List<Integer> items = createHubServices().getAllPages("items", createFetcher(client, server));
+            assertEquals(1000, items.size());
+            for (int i = 0; i < items.size(); i++) {
+                assertEquals(i, items.get(i).intValue());
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testMissingItemsFailTheList() throws IOException {
+        // The total count is above the number of items that the server returns
+        final HttpServer server = startServer(250, 240);
+        try (CloseableHttpClient client = HttpClientBuilder.create().build()) {
+            createHubServices().getAllPages("items", createFetcher(client, server));
+            fail("The missing items are not reported");
+        } catch (IntegrationException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Fetched 240 of 250 items"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static HubServices createHubServices() {
+        final PropertyConstants propertyConstants = new PropertyConstants();
+        propertyConstants.setHubPagingPageSize(PAGE_SIZE);
+        propertyConstants.setHubPagingMinPageSize(PAGE_SIZE);
+        propertyConstants.setHubProjectVersionIndex(false);
+        return new HubServices(null, propertyConstants);
+    }
+
+    // Lists the integers from 0 to itemCount (exclusive), at most MAXIMUM_PAGE_SIZE per page
+    private static HttpServer startServer(final int totalCount, final int itemCount) throws IOException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/items", exchange -> {
+            final Map<String, Integer> parameters = new HashMap<>();
+            for (String parameter : exchange.getRequestURI().getQuery().split("&")) {
+                final String[] nameValue = parameter.split("=");
+                parameters.put(nameValue[0], Integer.valueOf(nameValue[1]));
+            }
+            final int offset = parameters.get("offset");
+            final JsonArray items = new JsonArray();
+            for (int item = offset; item < Math.min(itemCount, offset + Math.min(parameters.get("limit"), MAXIMUM_PAGE_SIZE)); item++) {
+                items.add(item);
+            }
+            final JsonObject list = new JsonObject();
+            list.addProperty("totalCount", totalCount);
+            list.add("items", items);
+            final byte[] body = list.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static HubPageFetcher<Integer> createFetcher(final CloseableHttpClient client, final HttpServer server) {
+        final String url = "http://localhost:" + server.getAddress().getPort() + "/items";
+        return (offset, limit) -> {
+            try (CloseableHttpResponse response = client.execute(new HttpGet(url + "?offset=" + offset + "&limit=" + limit))) {
+                final JsonObject list = new JsonParser().parse(EntityUtils.toString(response.getEntity())).getAsJsonObject();
+                final List<Integer> items = new ArrayList<>();
+                for (JsonElement item : list.getAsJsonArray("items")) {
+                    items.add(item.getAsInt());
+                }
+                return new HubPage<>(list.get("totalCount").getAsInt(), items);
+            } catch (IOException e) {
+                throw new IntegrationException(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the watcher of the mapping file
+ *
+ * @author smanikantan
+ *
+ */
+public class MappingFileWatcherTest extends TestCase {
+
+    @Test
+    public void testListenerIsRunOnceTheMappingFileIsChanged() throws IOException, InterruptedException {
+        final File directory = Files.createTempDirectory("watcher-test").toFile();
+        final File mappingFile = new File(directory, "mapping.json");
+        Files.write(mappingFile.toPath(), "[]".getBytes(StandardCharsets.UTF_8));
+        final Semaphore reloads = new Semaphore(0);
+        try (MappingFileWatcher watcher = new MappingFileWatcher(mappingFile, 200, reloads::release)) {
+            watcher.start();
+            // The other files of the directory are ignored
+            Files.write(new File(directory, "other.json").toPath(), "[]".getBytes(StandardCharsets.UTF_8));
+            assertFalse(reloads.tryAcquire(1, TimeUnit.SECONDS));
+
+            // Several writes of an edit are reloaded once
+            for (int i = 0; i < 3; i++) {
+                Files.write(mappingFile.toPath(), ("[" + i + "]").getBytes(StandardCharsets.UTF_8));
+            }
+            assertTrue(reloads.tryAcquire(10, TimeUnit.SECONDS));
+            assertFalse(reloads.tryAcquire(1, TimeUnit.SECONDS));
+        } finally {
+            TestVulnerabilities.delete(directory);
+        }
+    }
+}
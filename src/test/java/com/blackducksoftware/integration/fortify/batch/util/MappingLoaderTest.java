@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.blackducksoftware.integration.fortify.batch.util.MappingLoader.Mapping;
+import com.blackducksoftware.integration.fortify.batch.util.MappingLoader.MappingGroup;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the streaming load of the mapping file and of its compiled index
+ *
+ * @author smanikantan
+ *
+ */
+public class MappingLoaderTest extends TestCase {
+
+    private static final String MAPPING = "[{\"hubProject\":\"p1\",\"hubProjectVersion\":\"1.0\",\"fortifyApplication\":\"a_b\",\"fortifyApplicationVersion\":\"c\"},"
+            + "{\"hubProject\":\"p2\",\"hubProjectVersion\":\"2.0\",\"fortifyApplication\":\"a\",\"fortifyApplicationVersion\":\"b_c\",\"comment\":[1,2]},"
+            + "{\"hubProject\":\"p3\",\"hubProjectVersion\":\"3.0\",\"fortifyApplication\":\"a_b\",\"fortifyApplicationVersion\":\"c\","
+            + "\"hubProjectId\":\"id-3\",\"hubProjectVersionId\":\"version-id-3\",\"hubProjectVersionUrl\":null},"
+            + "{\"hubProject\":\"p4\",\"hubProjectVersionPattern\":\"4\\\\..*\",\"hubProjectVersionPhase\":\"RELEASED\","
+            + "\"fortifyApplication\":\"{hubProject}\",\"fortifyApplicationVersion\":\"{hubProjectVersion}\"}]";
+
+    @Test
+    public void testMappingsAreGroupedByApplicationAndVersion() throws IOException {
+        final File directory = Files.createTempDirectory("mapping-test").toFile();
+        try {
+            final File mappingFile = new File(directory, "mapping.json");
+            Files.write(mappingFile.toPath(), MAPPING.getBytes(StandardCharsets.UTF_8));
+            assertMapping(new MappingLoader(null).load(mappingFile.getPath()));
+        } finally {
+            TestVulnerabilities.delete(directory);
+        }
+    }
+
+    @Test
+    public void testIndexIsReusedWhileTheMappingFileIsNotChanged() throws IOException {
+        final File directory = Files.createTempDirectory("mapping-test").toFile();
+        try {
+            final File mappingFile = new File(directory, "mapping.json");
+            final File indexFile = new File(directory, "mapping.index");
+            Files.write(mappingFile.toPath(), MAPPING.getBytes(StandardCharsets.UTF_8));
+            new MappingLoader(indexFile).load(mappingFile.getPath());
+            assertTrue(indexFile.isFile());
+            assertMapping(new MappingLoader(indexFile).load(mappingFile.getPath()));
+
+            // Same length, other content
+            Files.write(mappingFile.toPath(), MAPPING.replace("p1", "q1").getBytes(StandardCharsets.UTF_8));
+            final List<MappingGroup> groups = new MappingLoader(indexFile).load(mappingFile.getPath()).getGroups();
+            assertEquals("q1", groups.get(0).getBlackDuckFortifyMappers().get(0).getHubProject());
+        } finally {
+            TestVulnerabilities.delete(directory);
+        }
+    }
+
+    private void assertMapping(final Mapping mapping) {
+        final List<MappingGroup> groups = mapping.getGroups();
+        // The names are not concatenated, a_b/c and a/b_c are different groups
+        assertEquals(2, groups.size());
+        assertEquals("a_b", groups.get(0).getFortifyApplication());
+        assertEquals("c", groups.get(0).getFortifyApplicationVersion());
+        assertEquals(2, groups.get(0).getBlackDuckFortifyMappers().size());
+        assertEquals("p3", groups.get(0).getBlackDuckFortifyMappers().get(1).getHubProject());
+        assertEquals("version-id-3", groups.get(0).getBlackDuckFortifyMappers().get(1).getHubProjectVersionId());
+        assertNull(groups.get(0).getBlackDuckFortifyMappers().get(1).getHubProjectVersionUrl());
+        assertEquals("b_c", groups.get(1).getFortifyApplicationVersion());
+        assertEquals("2.0", groups.get(1).getBlackDuckFortifyMappers().get(0).getHubProjectVersion());
+        // The mapping rules are not grouped
+        assertEquals(1, mapping.getRules().size());
+        assertEquals("4\\..*", mapping.getRules().get(0).getHubProjectVersionPattern());
+        assertEquals("RELEASED", mapping.getRules().get(0).getHubProjectVersionPhase());
+        assertEquals("{hubProjectVersion}", mapping.getRules().get(0).getFortifyApplicationVersion());
+    }
+}
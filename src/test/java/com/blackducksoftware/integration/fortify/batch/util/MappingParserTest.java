@@ -77,4 +77,20 @@ public class MappingParserTest extends TestCase {
             // Logger info to be added
         }
     }
+
+    @Test
+    public void testShardsPartitionTheGroups() {
+        final int[] groupsByShard = new int[3];
+        for (int i = 0; i < 300; i++) {
+            final int shard = MappingParser.getShard("application-" + i, "1.0", 3);
+            assertEquals(shard, MappingParser.getShard("application-" + i, "1.0", 3));
+            groupsByShard[shard]++;
+        }
+        for (int groups : groupsByShard) {
+            assertTrue(groups > 50);
+        }
+        // The names are not concatenated
+        assertEquals(0, MappingParser.getShard("a_b", "c", 1));
+        assertFalse(MappingParser.getShard("a_b", "c", 1 << 20) == MappingParser.getShard("a", "b_c", 1 << 20));
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import com.blackducksoftware.integration.fortify.batch.model.BlackDuckFortifyMapper;
+import com.blackducksoftware.integration.fortify.batch.model.BlackDuckFortifyMappingRule;
+import com.blackducksoftware.integration.fortify.batch.util.MappingLoader.MappingGroup;
+import com.blackducksoftware.integration.fortify.batch.util.MappingRuleExpander.DiscoveredVersion;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the expansion of the mapping rules into mappings of the discovered Hub project versions
+ *
+ * @author smanikantan
+ *
+ */
+public class MappingRuleExpanderTest extends TestCase {
+
+    private static final BlackDuckFortifyMappingRule RULE = new BlackDuckFortifyMappingRule("p1", "1\\..*", "released", "{hubProject}-app",
+            "{hubProjectVersion} ({phase})");
+
+    @Test
+    public void testRuleMatchesTheVersionPatternAndThePhase() {
+        final Pattern pattern = Pattern.compile(RULE.getHubProjectVersionPattern());
+        assertTrue(MappingRuleExpander.matches(RULE, pattern, new DiscoveredVersion("1.2", "RELEASED", null)));
+        // The whole version name has to match
+        assertFalse(MappingRuleExpander.matches(RULE, pattern, new DiscoveredVersion("11.2", "RELEASED", null)));
+        assertFalse(MappingRuleExpander.matches(RULE, pattern, new DiscoveredVersion("1.2", "DEVELOPMENT", null)));
+
+        final BlackDuckFortifyMappingRule anyPhase = new BlackDuckFortifyMappingRule("p1", "1\\..*", null, "app", "version");
+        assertTrue(MappingRuleExpander.matches(anyPhase, pattern, new DiscoveredVersion("1.2", "DEVELOPMENT", null)));
+        final BlackDuckFortifyMappingRule anyVersion = new BlackDuckFortifyMappingRule("p1", null, "RELEASED", "app", "version");
+        assertTrue(MappingRuleExpander.matches(anyVersion, null, new DiscoveredVersion("2.0", "RELEASED", null)));
+    }
+
+    @Test
+    public void testExpandedMappingsAreAddedAfterTheMappingsOfTheFile() throws IOException {
+        final BlackDuckFortifyMapper expanded = MappingRuleExpander.expand(RULE,
+                new DiscoveredVersion("1.2", "RELEASED", "http://hub/api/projects/1/versions/2"));
+        assertEquals("p1", expanded.getHubProject());
+        assertEquals("1.2", expanded.getHubProjectVersion());
+        assertEquals("p1-app", expanded.getFortifyApplication());
+        assertEquals("1.2 (RELEASED)", expanded.getFortifyApplicationVersion());
+        assertEquals("http://hub/api/projects/1/versions/2", expanded.getHubProjectVersionUrl());
+
+        final BlackDuckFortifyMapper other = MappingRuleExpander.expand(RULE, new DiscoveredVersion("1.3", "RELEASED", null));
+        final MappingGroup fileGroup = MappingLoader.parse(new StringReader(
+                "[{\"hubProject\":\"p1\",\"hubProjectVersion\":\"1.2\",\"fortifyApplication\":\"p1-app\",\"fortifyApplicationVersion\":\"1.2 (RELEASED)\"}]"))
+                .getGroups().get(0);
+        final List<MappingGroup> groups = MappingLoader.addMappers(Arrays.asList(fileGroup), Arrays.asList(expanded, other));
+        assertEquals(2, groups.size());
+        // The Hub project version mapped by the file is not added again
+        assertEquals(1, groups.get(0).getBlackDuckFortifyMappers().size());
+        assertNull(groups.get(0).getBlackDuckFortifyMappers().get(0).getHubProjectVersionUrl());
+        assertEquals("1.3 (RELEASED)", groups.get(1).getFortifyApplicationVersion());
+        // The given groups are not changed
+        assertEquals(1, fileGroup.getBlackDuckFortifyMappers().size());
+    }
+}
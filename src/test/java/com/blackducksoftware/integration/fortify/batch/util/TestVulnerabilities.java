@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
+
+/**
+ * Fixtures shared by the tests of the vulnerability rows and of the caches on disk
+ *
+ * @author smanikantan
+ *
+ */
+final class TestVulnerabilities {
+
+    private TestVulnerabilities() {
+    }
+
+    /**
+     * Create a vulnerability row, the fields that are not given are the same for every row
+     *
+     * @param projectName
+     * @param projectVersion
+     * @param componentName
+     * @param version
+     * @param originId
+     * @param vulnerabilityId
+     * @param description
+     * @param scanDate
+     * @return
+     */
+    static Vulnerability newVulnerability(String projectName, String projectVersion, String componentName, String version, String originId,
+            String vulnerabilityId, String description, Date scanDate) {
+        return new Vulnerability(projectName, projectVersion, "project-id", "version-id", "", componentName, version, "maven", originId, version,
+                vulnerabilityId, description, new Date(1000L), null, new BigDecimal("7.5"), null, new BigDecimal("10"), "NVD",
+                "https://hub/api/vulnerabilities/", "NEW", null, new Date(2000L), "", "HIGH", scanDate);
+    }
+
+    /**
+     * Create the rows of distinct components of a project version, every fifth row has no description
+     *
+     * @param count
+     * @param scanDate
+     * @return
+     */
+    static List<Vulnerability> createVulnerabilities(int count, Date scanDate) {
+        final List<Vulnerability> vulnerabilities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            vulnerabilities.add(newVulnerability("project", "version", "component-" + i, "1." + (i % 4), "origin-" + i, "CVE-" + i,
+                    i % 5 == 0 ? null : "description " + i, scanDate));
+        }
+        return vulnerabilities;
+    }
+
+    /**
+     * Delete the file, or the directory and everything under it
+     *
+     * @param file
+     */
+    static void delete(File file) {
+        final File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the store of the vulnerability snapshots of the Hub project versions
+ *
+ * @author smanikantan
+ *
+ */
+public class VulnerabilitySnapshotStoreTest extends TestCase {
+
+    private static final String VERSION_URL = "https://hub/api/projects/1/versions/2";
+
+    @Test
+    public void testSnapshotIsReadForTheSameBomUpdatedDate() throws IOException {
+        final File directory = Files.createTempDirectory("snapshot-test").toFile();
+        try {
+            final List<Vulnerability> vulnerabilities = TestVulnerabilities.createVulnerabilities(50, new Date(3000L));
+            final Date bomLastUpdatedAt = new Date(1000L);
+            new VulnerabilitySnapshotStore(directory, 1 << 20, 0).put(VERSION_URL, bomLastUpdatedAt, vulnerabilities);
+
+            // The snapshot is kept across the runs
+            final VulnerabilitySnapshotStore store = new VulnerabilitySnapshotStore(directory, 1 << 20, 0);
+            final VulnerabilityStringPool stringPool = new VulnerabilityStringPool();
+            final List<Vulnerability> snapshot = store.get(VERSION_URL, bomLastUpdatedAt, stringPool);
+            assertEquals(vulnerabilities.toString(), snapshot.toString());
+            assertSame(snapshot.get(0).getVulnerabilitySource(), snapshot.get(1).getVulnerabilitySource());
+
+            // The BOM is updated, or the version is not stored
+            assertNull(store.get(VERSION_URL, new Date(2000L), stringPool));
+            assertNull(store.get(VERSION_URL + "0", bomLastUpdatedAt, stringPool));
+            assertEquals(1, store.getHits());
+            assertEquals(2, store.getMisses());
+        } finally {
+            TestVulnerabilities.delete(directory);
+        }
+    }
+
+    @Test
+    public void testOldSnapshotIsIgnored() throws IOException, InterruptedException {
+        final File directory = Files.createTempDirectory("snapshot-test").toFile();
+        try {
+            final VulnerabilitySnapshotStore store = new VulnerabilitySnapshotStore(directory, 1 << 20, 1);
+            store.put(VERSION_URL, new Date(1000L), TestVulnerabilities.createVulnerabilities(5, new Date(3000L)));
+            Thread.sleep(10);
+            assertNull(store.get(VERSION_URL, new Date(1000L), new VulnerabilityStringPool()));
+        } finally {
+            TestVulnerabilities.delete(directory);
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedSnapshotIsEvicted() throws IOException {
+        final File directory = Files.createTempDirectory("snapshot-test").toFile();
+        try {
+            final VulnerabilitySnapshotStore sizingStore = new VulnerabilitySnapshotStore(directory, 1 << 20, 0);
+            sizingStore.put("sizing", new Date(1000L), TestVulnerabilities.createVulnerabilities(20, new Date(3000L)));
+            final long snapshotBytes = sizingStore.getTotalBytes();
+            TestVulnerabilities.delete(directory);
+
+            final VulnerabilitySnapshotStore store = new VulnerabilitySnapshotStore(directory, snapshotBytes * 2 + snapshotBytes / 2, 0);
+            store.put(VERSION_URL + "1", new Date(1000L), TestVulnerabilities.createVulnerabilities(20, new Date(3000L)));
+            store.put(VERSION_URL + "2", new Date(1000L), TestVulnerabilities.createVulnerabilities(20, new Date(3000L)));
+            assertNotNull(store.get(VERSION_URL + "1", new Date(1000L), new VulnerabilityStringPool()));
+            store.put(VERSION_URL + "3", new Date(1000L), TestVulnerabilities.createVulnerabilities(20, new Date(3000L)));
+            assertEquals(2, store.size());
+            assertNotNull(store.get(VERSION_URL + "1", new Date(1000L), new VulnerabilityStringPool()));
+            assertNull(store.get(VERSION_URL + "2", new Date(1000L), new VulnerabilityStringPool()));
+            assertNotNull(store.get(VERSION_URL + "3", new Date(1000L), new VulnerabilityStringPool()));
+        } finally {
+            TestVulnerabilities.delete(directory);
+        }
+    }
+}
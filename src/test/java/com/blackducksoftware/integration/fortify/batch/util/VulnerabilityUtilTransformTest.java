@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
+import com.blackducksoftware.integration.hub.api.generated.component.VulnerabilityWithRemediationView;
+import com.blackducksoftware.integration.hub.api.generated.enumeration.VulnerabilityWithRemediationRemediationStatusType;
+import com.blackducksoftware.integration.hub.api.generated.enumeration.VulnerabilityWithRemediationSeverityType;
+import com.blackducksoftware.integration.hub.api.generated.enumeration.VulnerabilityWithRemediationSourceType;
+import com.blackducksoftware.integration.hub.api.generated.view.VulnerableComponentView;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the transformation of the Hub Component views that don't need the Hub server, the transformation of the
+ * views read from a Hub server is tested by VulnerabilityUtilTest
+ *
+ * @author smanikantan
+ *
+ */
+public class VulnerabilityUtilTransformTest extends TestCase {
+
+    private static final String HUB_SERVER_URL = "https://hub.example.com";
+
+    // Above the sequential threshold of the fork join tasks, so that the ranges are split several times
+    private static final int ROW_COUNT = 3 * 2048 + 17;
+
+    @Test
+    public void testParallelTransformKeepsTheOrder() {
+        final List<VulnerableComponentView> vulnerableComponentViews = new ArrayList<>(ROW_COUNT);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            vulnerableComponentViews.add(createVulnerableComponentView(i));
+        }
+        final Date scanDate = new Date();
+
+        final PropertyConstants propertyConstants = new PropertyConstants();
+        propertyConstants.setHubServerUrl(HUB_SERVER_URL);
+        propertyConstants.setTransformParallelThreshold(0);
+        final List<Vulnerability> expected = VulnerabilityUtil.transformMapping(vulnerableComponentViews, "Project", "1.0", scanDate,
+                propertyConstants);
+
+        propertyConstants.setTransformParallelThreshold(1);
+        propertyConstants.setTransformParallelism(4);
+        final List<Vulnerability> actual = VulnerabilityUtil.transformMapping(vulnerableComponentViews, "Project", "1.0", scanDate,
+                propertyConstants);
+
+        assertTrue(Thread.getAllStackTraces().keySet().stream().anyMatch(thread -> thread.getName().startsWith("vulnerability-transform-")));
+        assertEquals(ROW_COUNT, actual.size());
+        for (int i = 0; i < ROW_COUNT; i++) {
+            assertEquals(expected.get(i).toString(), actual.get(i).toString());
+        }
+        assertEquals("version-" + (ROW_COUNT - 1), actual.get(ROW_COUNT - 1).getVersionId());
+    }
+
+    @Test
+    public void testLinkSegmentMatchesSplit() {
+        final String[] links = { HUB_SERVER_URL + "/api/components/1111/versions/2222", HUB_SERVER_URL + "/api/components/1111",
+                HUB_SERVER_URL + "/api/components/1111/versions/2222/", HUB_SERVER_URL + "/api/components/1111/versions//", "a//b", "/", "" };
+        for (String link : links) {
+            for (int index = 0; index < 10; index++) {
+                assertEquals(link + " " + index, split(link, index), linkSegment(link, index));
+            }
+        }
+        assertEquals("1111", VulnerabilityUtil.linkSegment(HUB_SERVER_URL + "/api/components/1111/versions/2222", 5));
+        assertEquals("2222", VulnerabilityUtil.linkSegment(HUB_SERVER_URL + "/api/components/1111/versions/2222/", 7));
+        try {
+            VulnerabilityUtil.linkSegment(HUB_SERVER_URL + "/api/components/1111", 7);
+            fail("A link with too few segments must fail");
+        } catch (ArrayIndexOutOfBoundsException e) {
+            // Same as the array index of the split link
+        }
+    }
+
+    @Test
+    public void testRemoveLineBreaks() {
+        final String description = "Buffer overflow";
+        assertSame(description, VulnerabilityUtil.removeLineBreaks(description));
+        assertEquals("Buffer overflow in the parser", VulnerabilityUtil.removeLineBreaks("Buffer overflow\r\n in the parser"));
+        assertEquals("Buffer overflow in the parser.", VulnerabilityUtil.removeLineBreaks("\r\nBuffer overflow\r\n in the parser\r\n\r\n.\r\n"));
+        // Only the Windows line breaks are removed
+        assertEquals("a\nb\rc", VulnerabilityUtil.removeLineBreaks("a\nb\rc"));
+        for (String value : new String[] { description, "a\r\nb", "\r\n\r\na\r\n\rb\n" }) {
+            assertEquals(value.replaceAll("\r\n", ""), VulnerabilityUtil.removeLineBreaks(value));
+        }
+    }
+
+    // Segment of the link as it was split before, or the exception name
+    private static String split(String link, int index) {
+        try {
+            return link.split("/")[index];
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return e.getClass().getName();
+        }
+    }
+
+    private static String linkSegment(String link, int index) {
+        try {
+            return VulnerabilityUtil.linkSegment(link, index);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return e.getClass().getName();
+        }
+    }
+
+    private static VulnerableComponentView createVulnerableComponentView(int index) {
+        final VulnerabilityWithRemediationView vulnerability = new VulnerabilityWithRemediationView();
+        vulnerability.vulnerabilityName = "CVE-2017-" + index;
+        vulnerability.description = "Description\r\nof " + index;
+        vulnerability.vulnerabilityPublishedDate = new Date(1483228800000L + index * 60000L);
+        vulnerability.baseScore = BigDecimal.valueOf(index % 100, 1);
+        vulnerability.source = VulnerabilityWithRemediationSourceType.NVD;
+        vulnerability.remediationStatus = VulnerabilityWithRemediationRemediationStatusType.NEW;
+        vulnerability.severity = VulnerabilityWithRemediationSeverityType.HIGH;
+
+        final VulnerableComponentView view = new VulnerableComponentView();
+        view.componentName = "component-" + index;
+        view.componentVersionName = "1." + index;
+        view.componentVersion = HUB_SERVER_URL + "/api/components/component-" + index + "/versions/version-" + index;
+        view.vulnerabilityWithRemediation = vulnerability;
+        return view;
+    }
+}
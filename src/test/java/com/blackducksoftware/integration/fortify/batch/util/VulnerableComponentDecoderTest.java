@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.batch.util;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.blackducksoftware.integration.fortify.batch.model.Vulnerability;
+import com.blackducksoftware.integration.hub.api.generated.view.VulnerableComponentView;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests of the streaming decoder of the Hub vulnerable BOM components, the rows must be the same as the transformed Hub
+ * Component views
+ *
+ * @author smanikantan
+ *
+ */
+public class VulnerableComponentDecoderTest extends TestCase {
+
+    private static final String HUB_SERVER_URL = "https://hub.example.com";
+
+    private static final String PAGE = "{\"totalCount\":2,\"items\":["
+            + "{\"componentName\":\"commons-collections\",\"componentVersionName\":\"3.2.1\","
+            + "\"componentVersion\":\"https://hub.example.com/api/components/1111/versions/2222\","
+            + "\"componentVersionOriginName\":\"maven\",\"componentVersionOriginId\":\"commons-collections:commons-collections:3.2.1\","
+            + "\"license\":{\"type\":\"CONJUNCTIVE\",\"licenses\":[{\"licenseDisplay\":\"Apache License 2.0\"}]},"
+            + "\"vulnerabilityWithRemediation\":{\"vulnerabilityName\":\"CVE-2015-7501\",\"description\":\"Deserialization\\r\\nof untrusted data\","
+            + "\"vulnerabilityPublishedDate\":\"2015-11-09T14:30:00.000Z\",\"vulnerabilityUpdatedDate\":\"2017-06-01T08:00:00.123Z\","
+            + "\"baseScore\":10.0,\"exploitabilitySubscore\":10.0,\"impactSubscore\":10.0,\"source\":\"NVD\",\"severity\":\"HIGH\","
+            + "\"remediationStatus\":\"NEW\",\"remediationCreatedAt\":\"2017-06-01T08:00:00.000Z\",\"remediationTargetAt\":\"2018-01-01T00:00:00.000Z\","
+            + "\"relatedVulnerability\":{\"_meta\":{\"href\":\"https://hub.example.com/api/vulnerabilities/CVE-2015-7501\"}}},"
+            + "\"_meta\":{\"allow\":[\"GET\"],\"href\":\"https://hub.example.com/api/projects/1/versions/2/vulnerable-bom-components/1\",\"links\":[]}},"
+            + "{\"componentName\":\"jackson-databind\",\"componentVersionName\":\"2.8.10\","
+            + "\"componentVersion\":\"https://hub.example.com/api/components/3333/versions/4444\","
+            + "\"componentVersionOriginName\":null,\"componentVersionOriginId\":null,"
+            + "\"vulnerabilityWithRemediation\":{\"vulnerabilityName\":\"BDSA-2017-0001\",\"description\":\"Remote code execution\","
+            + "\"vulnerabilityPublishedDate\":\"2017-12-10T10:00:00.000Z\",\"vulnerabilityUpdatedDate\":null,"
+            + "\"baseScore\":7.5,\"exploitabilitySubscore\":8.6,\"impactSubscore\":6.4,\"source\":\"VULNDB\",\"severity\":\"MEDIUM\","
+            + "\"remediationStatus\":\"PATCHED\",\"remediationActualAt\":\"2018-02-01T00:00:00.000Z\"}}],"
+            + "\"_meta\":{\"allow\":[\"GET\"],\"href\":\"https://hub.example.com/api/projects/1/versions/2/vulnerable-bom-components\",\"links\":[]}}";
+
+    @Test
+    public void testDecodedRowsMatchTransformedViews() throws IOException {
+        final Date scanDate = new Date();
+        final VulnerableComponentDecoder decoder = new VulnerableComponentDecoder("Project", "1.0", HUB_SERVER_URL, scanDate,
+                new VulnerabilityStringPool());
+        final HubPage<Vulnerability> page = decoder.decode(new StringReader(PAGE));
+        assertEquals(2, page.getTotalCount());
+
+        final PropertyConstants propertyConstants = new PropertyConstants();
+        propertyConstants.setHubServerUrl(HUB_SERVER_URL);
+        final List<Vulnerability> expected = VulnerabilityUtil.transformMapping(getVulnerableComponentViews(), "Project", "1.0", scanDate,
+                propertyConstants);
+
+        assertEquals(expected.size(), page.getItems().size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toString(), page.getItems().get(i).toString());
+        }
+        final Vulnerability vulnerability = page.getItems().get(0);
+        assertEquals("1111", vulnerability.getProjectId());
+        assertEquals("2222", vulnerability.getVersionId());
+        assertEquals("Deserializationof untrusted data", vulnerability.getDescription());
+        assertEquals(HUB_SERVER_URL + "/api/vulnerabilities/CVE-2015-7501", vulnerability.getHubVulnerabilityUrl());
+    }
+
+    @Test
+    public void testEmptyPage() throws IOException {
+        final VulnerableComponentDecoder decoder = new VulnerableComponentDecoder("Project", "1.0", HUB_SERVER_URL, new Date(),
+                new VulnerabilityStringPool());
+        final HubPage<Vulnerability> page = decoder.decode(new StringReader("{\"totalCount\":0,\"items\":[],\"_meta\":{\"links\":[]}}"));
+        assertEquals(0, page.getTotalCount());
+        assertTrue(page.getItems().isEmpty());
+    }
+
+    private List<VulnerableComponentView> getVulnerableComponentViews() {
+        // Same date format as the Gson of the Hub services
+        final Gson gson = new GsonBuilder().setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").create();
+        final JsonArray items = new JsonParser().parse(PAGE).getAsJsonObject().getAsJsonArray("items");
+        final List<VulnerableComponentView> vulnerableComponentViews = new ArrayList<>();
+        for (JsonElement item : items) {
+            vulnerableComponentViews.add(gson.fromJson((JsonObject) item, VulnerableComponentView.class));
+        }
+        return vulnerableComponentViews;
+    }
+}
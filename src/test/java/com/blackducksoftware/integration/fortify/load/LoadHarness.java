@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.blackducksoftware.integration.fortify.batch.step.Initializer;
+import com.blackducksoftware.integration.fortify.batch.util.AttributeConstants;
+import com.blackducksoftware.integration.fortify.batch.util.HubServices;
+import com.blackducksoftware.integration.fortify.batch.util.MappingParser;
+import com.blackducksoftware.integration.fortify.batch.util.PropertyConstants;
+import com.blackducksoftware.integration.fortify.batch.util.RestConnectionHelper;
+import com.blackducksoftware.integration.fortify.service.FortifyApplicationVersionApi;
+import com.blackducksoftware.integration.fortify.service.FortifyAttributeDefinitionApi;
+import com.blackducksoftware.integration.fortify.service.FortifyFileTokenApi;
+import com.blackducksoftware.integration.fortify.service.FortifyUploadApi;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * End-to-end load harness. It starts the local Hub and SSC stand-ins, generates a mapping file with the requested
+ * number of groups and drives the {@link Initializer} over it, then reports the groups per minute and the p99 group
+ * latency.
+ *
+ * Run it with <code>./gradlew loadTest -Dload.groups=2000 -Dload.hub.latency.ms=20</code>. The settings are:
+ * <ul>
+ * <li>load.groups - number of Fortify application versions in the mapping (default 1000)</li>
+ * <li>load.versions.per.group - number of Hub project versions mapped to each group (default 3)</li>
+ * <li>load.components.per.version - number of vulnerable components of each Hub project version (default 200)</li>
+ * <li>load.hub.latency.ms, load.ssc.latency.ms - latency added to each request (default 20 and 50)</li>
+ * <li>load.latency.jitter.ms - random latency added on top (default 10)</li>
+ * <li>load.hub.error.rate, load.ssc.error.rate - fraction of the requests answered with a 500 (default 0)</li>
+ * <li>load.threads - value of maximum.thread.size (default 5)</li>
+ * </ul>
+ *
+ * @author smanikantan
+ *
+ */
+public final class LoadHarness {
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final int groups = Integer.getInteger("load.groups", 1000);
+        final int versionsPerGroup = Integer.getInteger("load.versions.per.group", 3);
+        final int componentsPerVersion = Integer.getInteger("load.components.per.version", 200);
+        final long hubLatency = Long.getLong("load.hub.latency.ms", 20);
+        final long sscLatency = Long.getLong("load.ssc.latency.ms", 50);
+        final long jitter = Long.getLong("load.latency.jitter.ms", 10);
+        final double hubErrorRate = Double.parseDouble(System.getProperty("load.hub.error.rate", "0"));
+        final double sscErrorRate = Double.parseDouble(System.getProperty("load.ssc.error.rate", "0"));
+        final int threads = Integer.getInteger("load.threads", 5);
+
+        final StubHubServer hubServer = new StubHubServer(hubLatency, jitter, hubErrorRate, componentsPerVersion);
+        final StubSscServer sscServer = new StubSscServer(sscLatency, jitter, sscErrorRate);
+        hubServer.start();
+        sscServer.start();
+        final File workDir = Files.createTempDirectory("hub-fortify-load").toFile();
+        try {
+            final PropertyConstants propertyConstants = createPropertyConstants(workDir, hubServer.getBaseUrl(), sscServer.getBaseUrl(), threads);
+            writeMapping(new File(propertyConstants.getMappingJsonPath()), groups, versionsPerGroup);
+
+            final FortifyApplicationVersionApi fortifyApplicationVersionApi = new FortifyApplicationVersionApi(propertyConstants);
+            final FortifyAttributeDefinitionApi fortifyAttributeDefinitionApi = new FortifyAttributeDefinitionApi(propertyConstants);
+            final MappingParser mappingParser = new MappingParser(fortifyApplicationVersionApi, fortifyAttributeDefinitionApi, propertyConstants,
+                    new AttributeConstants(propertyConstants));
+            final HubServices hubServices = new HubServices(RestConnectionHelper.createHubServicesFactory(propertyConstants), propertyConstants);
+            final Initializer initializer = new Initializer(mappingParser, new FortifyFileTokenApi(propertyConstants), new FortifyUploadApi(propertyConstants),
+                    hubServices, propertyConstants);
+
+            final long startTime = System.nanoTime();
+            String failure = null;
+            initializer.beforeStep(null);
+            try {
+                initializer.execute(null, null);
+            } catch (Exception e) {
+                failure = e.toString();
+            }
+            final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+
+            report(groups, versionsPerGroup, componentsPerVersion, elapsedMillis, initializer.getGroupDurations(), hubServer, sscServer, failure);
+        } finally {
+            hubServer.stop();
+            sscServer.stop();
+            deleteRecursively(workDir);
+        }
+        System.exit(0);
+    }
+
+    private static PropertyConstants createPropertyConstants(final File workDir, final String hubUrl, final String sscUrl, final int threads)
+            throws IOException {
+        final File reportDir = new File(workDir, "report");
+        reportDir.mkdirs();
+        final File batchJobStatusFile = new File(workDir, "batch_job_status.txt");
+        final File attributeFile = new File(workDir, "attributes.properties");
+        Files.write(batchJobStatusFile.toPath(), new byte[0]);
+        Files.write(attributeFile.toPath(), new byte[0]);
+
+        final PropertyConstants propertyConstants = new PropertyConstants();
+        propertyConstants.setHubServerUrl(hubUrl);
+        propertyConstants.setHubUserName("sysadmin");
+        propertyConstants.setHubPassword("blackduck");
+        propertyConstants.setHubTimeout("120");
+        propertyConstants.setHubProxyHost("");
+        propertyConstants.setHubProxyPort("");
+        propertyConstants.setHubProxyUser("");
+        propertyConstants.setHubProxyPassword("");
+        propertyConstants.setHubProxyNtlmDomain("");
+        propertyConstants.setHubProxyNtlmWorkstation("");
+        propertyConstants.setHubProxyNoHost("");
+        propertyConstants.setFortifyServerUrl(sscUrl);
+        propertyConstants.setFortifyUserName("admin");
+        propertyConstants.setFortifyPassword("admin");
+        propertyConstants.setBatchJobStatusFilePath(batchJobStatusFile.getAbsolutePath());
+        propertyConstants.setReportDir(reportDir.getAbsolutePath() + File.separator);
+        propertyConstants.setMappingJsonPath(new File(workDir, "mapping.json").getAbsolutePath());
+        propertyConstants.setAttributeFilePath(attributeFile.getAbsolutePath());
+        propertyConstants.setMaximumThreadSize(threads);
+        propertyConstants.setBatchJobStatusCheck(false);
+        propertyConstants.setPluginVersion("load-harness");
+        return propertyConstants;
+    }
+
+    private static void writeMapping(final File mappingFile, final int groups, final int versionsPerGroup) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(mappingFile.toPath(), StandardCharsets.UTF_8);
+                JsonWriter jsonWriter = new JsonWriter(writer)) {
+            jsonWriter.beginArray();
+            for (int group = 0; group < groups; group++) {
+                for (int version = 0; version < versionsPerGroup; version++) {
+                    jsonWriter.beginObject();
+                    // A few projects with many versions each, like the generated mappings of a large installation
+                    jsonWriter.name("hubProject").value("load-project-" + (group % 50));
+                    jsonWriter.name("hubProjectVersion").value("release-" + group + "." + version);
+                    jsonWriter.name("fortifyApplication").value("load-application-" + group);
+                    jsonWriter.name("fortifyApplicationVersion").value("1.0");
+                    jsonWriter.endObject();
+                }
+            }
+            jsonWriter.endArray();
+        }
+    }
+
+    private static void report(final int groups, final int versionsPerGroup, final int componentsPerVersion, final long elapsedMillis,
+            final List<Long> groupDurations, final StubHubServer hubServer, final StubSscServer sscServer, final String failure) {
+        final List<Long> durations = new ArrayList<>(groupDurations);
+        Collections.sort(durations);
+        System.out.println("========== Load harness report ==========");
+        System.out.println("Groups::" + groups + ", Hub versions per group::" + versionsPerGroup + ", components per version::" + componentsPerVersion);
+        System.out.println("Elapsed::" + elapsedMillis + " ms, processed groups::" + durations.size());
+        System.out.println("Groups per minute::" + String.format("%.1f", durations.size() * 60000d / Math.max(1, elapsedMillis)));
+        if (!durations.isEmpty()) {
+            System.out.println("Group latency p50::" + percentile(durations, 0.50) + " ms, p99::" + percentile(durations, 0.99) + " ms, max::"
+                    + durations.get(durations.size() - 1) + " ms");
+        }
+        System.out.println("Hub requests::" + hubServer.getRequestCount() + ", injected errors::" + hubServer.getErrorCount());
+        System.out.println("SSC requests::" + sscServer.getRequestCount() + ", injected errors::" + sscServer.getErrorCount() + ", uploads::"
+                + sscServer.getUploadCount() + ", uploaded bytes::" + sscServer.getUploadedBytes());
+        if (failure != null) {
+            System.out.println("Run failed::" + failure);
+        }
+    }
+
+    private static long percentile(final List<Long> sortedDurations, final double percentile) {
+        return sortedDurations.get((int) Math.ceil(sortedDurations.size() * percentile) - 1);
+    }
+
+    private static void deleteRecursively(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.load;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Local stand-in for the Hub REST API. It answers the requests that {@code HubServices} sends: the login or the API
+ * token authentication, the project search, the project version search, the risk profile and the paged vulnerable BOM
+ * components. Every project name and version name exists, the identifiers are derived from the names.
+ *
+ * @author smanikantan
+ *
+ */
+public final class StubHubServer extends StubServer {
+
+    private static final Pattern PROJECT_PATH = Pattern.compile("/api/projects/([^/]+)");
+
+    private static final Pattern VERSIONS_PATH = Pattern.compile("/api/projects/([^/]+)/versions");
+
+    private static final Pattern VERSION_PATH = Pattern.compile("/api/projects/([^/]+)/versions/([^/]+)");
+
+    private static final Pattern RISK_PROFILE_PATH = Pattern.compile("/api/projects/([^/]+)/versions/([^/]+)/risk-profile");
+
+    private static final Pattern VULNERABLE_COMPONENTS_PATH = Pattern.compile("/api/projects/([^/]+)/versions/([^/]+)/vulnerable-bom-components");
+
+    private final int componentsPerVersion;
+
+    private final String bomLastUpdatedAt;
+
+    public StubHubServer(final long latencyMillis, final long latencyJitterMillis, final double errorRate, final int componentsPerVersion) {
+        super(latencyMillis, latencyJitterMillis, errorRate);
+        this.componentsPerVersion = componentsPerVersion;
+        this.bomLastUpdatedAt = formatDate(new Date());
+    }
+
+    @Override
+    protected void handle(final HttpExchange exchange) throws IOException {
+        final String path = exchange.getRequestURI().getPath();
+        final Map<String, String> parameters = queryParameters(exchange);
+        Matcher matcher;
+        if ("/j_security_check".equals(path)) {
+            drain(exchange);
+            exchange.getResponseHeaders().add("Set-Cookie", "AUTHORIZATION_BEARER=" + UUID.randomUUID() + "; Path=/");
+            exchange.getResponseHeaders().add("X-CSRF-TOKEN", UUID.randomUUID().toString());
+            send(exchange, 204, "application/json", "");
+        } else if ("/api/tokens/authenticate".equals(path)) {
+            drain(exchange);
+            final JsonObject token = new JsonObject();
+            token.addProperty("bearerToken", UUID.randomUUID().toString());
+            token.addProperty("expiresInMilliseconds", 7200000);
+            send(exchange, 200, "application/json", token.toString());
+        } else if ("/api/current-version".equals(path)) {
+            send(exchange, 200, "application/json", "{\"version\":\"4.5.0\"}");
+        } else if ("/api/notifications".equals(path)) {
+            // Quiet Hub, the notification change detection dispatches no group
+            final JsonObject list = new JsonObject();
+            list.addProperty("totalCount", 0);
+            list.add("items", new JsonArray());
+            send(exchange, 200, "application/json", list.toString());
+        } else if ("/api/projects".equals(path)) {
+            final String projectName = stripPrefix(parameters.get("q"), "name:");
+            sendList(exchange, 1, project(projectName));
+        } else if ((matcher = VULNERABLE_COMPONENTS_PATH.matcher(path)).matches()) {
+            sendVulnerableComponents(exchange, matcher.group(1), matcher.group(2), parameters);
+        } else if ((matcher = RISK_PROFILE_PATH.matcher(path)).matches()) {
+            final JsonObject riskProfile = new JsonObject();
+            riskProfile.addProperty("bomLastUpdatedAt", bomLastUpdatedAt);
+            riskProfile.add("categories", new JsonObject());
+            riskProfile.add("_meta", meta(versionHref(matcher.group(1), matcher.group(2)) + "/risk-profile"));
+            send(exchange, 200, "application/json", riskProfile.toString());
+        } else if ((matcher = VERSION_PATH.matcher(path)).matches()) {
+            send(exchange, 200, "application/json", version(matcher.group(1), decodeName(matcher.group(2))).toString());
+        } else if ((matcher = VERSIONS_PATH.matcher(path)).matches()) {
+            final String versionName = stripPrefix(parameters.get("q"), "versionName:");
+            sendList(exchange, 1, version(matcher.group(1), versionName));
+        } else if ((matcher = PROJECT_PATH.matcher(path)).matches()) {
+            send(exchange, 200, "application/json", project(decodeName(matcher.group(1))).toString());
+        } else {
+            send(exchange, 404, "application/json", "{\"errorMessage\":\"Not found\"}");
+        }
+    }
+
+    private void sendVulnerableComponents(final HttpExchange exchange, final String projectId, final String versionId, final Map<String, String> parameters)
+            throws IOException {
+        final int offset = parameters.containsKey("offset") ? Integer.parseInt(parameters.get("offset")) : 0;
+        final int limit = parameters.containsKey("limit") ? Integer.parseInt(parameters.get("limit")) : 10;
+        final JsonArray items = new JsonArray();
+        for (int index = offset; index < Math.min(componentsPerVersion, offset + limit); index++) {
+            items.add(vulnerableComponent(projectId, versionId, index));
+        }
+        final JsonObject list = new JsonObject();
+        list.addProperty("totalCount", componentsPerVersion);
+        list.add("items", items);
+        list.add("_meta", meta(versionHref(projectId, versionId) + "/vulnerable-bom-components"));
+        send(exchange, 200, "application/json", list.toString());
+    }
+
+    private void sendList(final HttpExchange exchange, final int totalCount, final JsonObject item) throws IOException {
+        final JsonArray items = new JsonArray();
+        items.add(item);
+        final JsonObject list = new JsonObject();
+        list.addProperty("totalCount", totalCount);
+        list.add("items", items);
+        send(exchange, 200, "application/json", list.toString());
+    }
+
+    private JsonObject project(final String projectName) {
+        final String projectId = encodeName(projectName);
+        final JsonObject project = new JsonObject();
+        project.addProperty("name", projectName);
+        final JsonObject meta = meta(getBaseUrl() + "/api/projects/" + projectId);
+        meta.getAsJsonArray("links").add(link("versions", getBaseUrl() + "/api/projects/" + projectId + "/versions"));
+        meta.getAsJsonArray("links").add(link("canonicalVersion", getBaseUrl() + "/api/projects/" + projectId + "/versions"));
+        project.add("_meta", meta);
+        return project;
+    }
+
+    private JsonObject version(final String projectId, final String versionName) {
+        final String href = versionHref(projectId, encodeName(versionName));
+        final JsonObject version = new JsonObject();
+        version.addProperty("versionName", versionName);
+        version.addProperty("phase", "DEVELOPMENT");
+        version.addProperty("distribution", "INTERNAL");
+        version.addProperty("source", "CUSTOM");
+        final JsonObject meta = meta(href);
+        meta.getAsJsonArray("links").add(link("project", getBaseUrl() + "/api/projects/" + projectId));
+        meta.getAsJsonArray("links").add(link("riskProfile", href + "/risk-profile"));
+        meta.getAsJsonArray("links").add(link("vulnerable-components", href + "/vulnerable-bom-components"));
+        version.add("_meta", meta);
+        return version;
+    }
+
+    private JsonObject vulnerableComponent(final String projectId, final String versionId, final int index) {
+        final String componentId = UUID.nameUUIDFromBytes(("component-" + index).getBytes(StandardCharsets.UTF_8)).toString();
+        final String componentVersionId = UUID.nameUUIDFromBytes(("component-version-" + index).getBytes(StandardCharsets.UTF_8)).toString();
+        final JsonObject vulnerability = new JsonObject();
+        vulnerability.addProperty("vulnerabilityName", "CVE-2017-" + (1000 + index));
+        vulnerability.addProperty("description", "Synthetic vulnerability " + index + " of the load harness.\r\nIt has a two line description.");
+        vulnerability.addProperty("vulnerabilityPublishedDate", "2017-01-01T00:00:00.000Z");
+        vulnerability.addProperty("vulnerabilityUpdatedDate", "2017-06-01T00:00:00.000Z");
+        vulnerability.addProperty("baseScore", 7.5);
+        vulnerability.addProperty("exploitabilitySubscore", 10.0);
+        vulnerability.addProperty("impactSubscore", 6.4);
+        vulnerability.addProperty("source", index % 3 == 0 ? "VULNDB" : "NVD");
+        vulnerability.addProperty("severity", index % 2 == 0 ? "HIGH" : "MEDIUM");
+        vulnerability.addProperty("remediationStatus", "NEW");
+        vulnerability.addProperty("remediationCreatedAt", "2017-06-01T00:00:00.000Z");
+        vulnerability.addProperty("remediationUpdatedAt", "2017-06-01T00:00:00.000Z");
+
+        final JsonObject component = new JsonObject();
+        component.addProperty("componentName", "component-" + index);
+        component.addProperty("componentVersionName", "1." + (index % 10));
+        component.addProperty("componentVersion", getBaseUrl() + "/api/components/" + componentId + "/versions/" + componentVersionId);
+        component.addProperty("componentVersionOriginName", "maven");
+        component.addProperty("componentVersionOriginId", "org.example:component-" + index + ":1." + (index % 10));
+        component.add("vulnerabilityWithRemediation", vulnerability);
+        component.add("_meta", meta(versionHref(projectId, versionId) + "/vulnerable-bom-components/" + index));
+        return component;
+    }
+
+    private String versionHref(final String projectId, final String versionId) {
+        return getBaseUrl() + "/api/projects/" + projectId + "/versions/" + versionId;
+    }
+
+    private static JsonObject meta(final String href) {
+        final JsonObject meta = new JsonObject();
+        final JsonArray allow = new JsonArray();
+        allow.add("GET");
+        meta.add("allow", allow);
+        meta.addProperty("href", href);
+        meta.add("links", new JsonArray());
+        return meta;
+    }
+
+    private static JsonObject link(final String rel, final String href) {
+        final JsonObject link = new JsonObject();
+        link.addProperty("rel", rel);
+        link.addProperty("href", href);
+        return link;
+    }
+
+    private static String stripPrefix(final String value, final String prefix) {
+        if (value == null) {
+            return "";
+        }
+        return value.startsWith(prefix) ? value.substring(prefix.length()) : value;
+    }
+
+    // The names are hex encoded in the identifiers so that the views can be rebuilt from the URL
+    private static String encodeName(final String name) {
+        final StringBuilder builder = new StringBuilder();
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
+    private static String decodeName(final String id) {
+        final byte[] bytes = new byte[id.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(id.substring(i * 2, i * 2 + 2), 16);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String formatDate(final Date date) {
+        final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(date);
+    }
+}
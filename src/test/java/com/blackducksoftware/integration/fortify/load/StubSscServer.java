@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2017 Black Duck Software Inc.
+ * http://www.blackducksoftware.com/
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.
+ *
+ * The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.blackducksoftware.integration.fortify.load;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Local stand-in for the Fortify SSC REST API. It answers the application version search and creation, the attribute
+ * definitions, the file tokens and the result file upload.
+ *
+ * @author smanikantan
+ *
+ */
+public final class StubSscServer extends StubServer {
+
+    private static final String CONTEXT = "/ssc/";
+
+    private static final Pattern ENTITY_ID = Pattern.compile("name=\"entityId\".*?\r\n\r\n(\\d+)", Pattern.DOTALL);
+
+    private final Map<String, Integer> applicationVersionIds = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextApplicationVersionId = new AtomicInteger(1);
+
+    private final AtomicLong uploadCount = new AtomicLong();
+
+    private final AtomicLong uploadedBytes = new AtomicLong();
+
+    // Fortify application version ids of the accepted uploads
+    private final List<Integer> uploadedApplicationVersionIds = new ArrayList<>();
+
+    private final Set<Integer> rejectedApplicationVersionIds = ConcurrentHashMap.newKeySet();
+
+    public StubSscServer(final long latencyMillis, final long latencyJitterMillis, final double errorRate) {
+        super(latencyMillis, latencyJitterMillis, errorRate);
+    }
+
+    @Override
+    public String getBaseUrl() {
+        return super.getBaseUrl() + CONTEXT;
+    }
+
+    public long getUploadCount() {
+        return uploadCount.get();
+    }
+
+    public long getUploadedBytes() {
+        return uploadedBytes.get();
+    }
+
+    public List<Integer> getUploadedApplicationVersionIds() {
+        synchronized (uploadedApplicationVersionIds) {
+            return new ArrayList<>(uploadedApplicationVersionIds);
+        }
+    }
+
+    /**
+     * Reject the uploads to the Fortify application version, as SSC does for a failed job submission
+     *
+     * @param applicationVersionId
+     */
+    public void rejectUploads(final int applicationVersionId) {
+        rejectedApplicationVersionIds.add(applicationVersionId);
+    }
+
+    @Override
+    protected void handle(final HttpExchange exchange) throws IOException {
+        final String path = exchange.getRequestURI().getPath().substring(CONTEXT.length() - 1);
+        final String method = exchange.getRequestMethod();
+        if ("/api/v1/projectVersions".equals(path) && "GET".equals(method)) {
+            final String query = rawQueryParameter(exchange, "q");
+            final Integer id = applicationVersionIds.computeIfAbsent(query, key -> nextApplicationVersionId.getAndIncrement());
+            send(exchange, 200, "application/json",
+                    "{\"data\":[{\"id\":" + id + ",\"project\":{\"id\":" + id + "}}],\"count\":1,\"responseCode\":200}");
+        } else if ("/api/v1/projectVersions".equals(path) && "POST".equals(method)) {
+            drain(exchange);
+            send(exchange, 201, "application/json", "{\"data\":{\"id\":" + nextApplicationVersionId.getAndIncrement() + "},\"responseCode\":201}");
+        } else if (path.startsWith("/api/v1/projectVersions/")) {
+            drain(exchange);
+            send(exchange, 200, "application/json", "{\"responseCode\":200}");
+        } else if ("/api/v1/attributeDefinitions".equals(path)) {
+            send(exchange, 200, "application/json", "{\"data\":[],\"count\":0,\"responseCode\":200}");
+        } else if ("/api/v1/fileTokens".equals(path) && "POST".equals(method)) {
+            drain(exchange);
+            send(exchange, 201, "application/json", "{\"data\":{\"token\":\"stub-token\",\"fileTokenType\":\"UPLOAD\"},\"responseCode\":201}");
+        } else if ("/api/v1/fileTokens".equals(path)) {
+            send(exchange, 200, "application/json", "{\"responseCode\":200}");
+        } else if ("/upload/resultFileUpload.html".equals(path)) {
+            final byte[] body = read(exchange);
+            uploadedBytes.addAndGet(body.length);
+            uploadCount.incrementAndGet();
+            final Matcher matcher = ENTITY_ID.matcher(new String(body, StandardCharsets.ISO_8859_1));
+            final Integer applicationVersionId = matcher.find() ? Integer.valueOf(matcher.group(1)) : null;
+            if (rejectedApplicationVersionIds.contains(applicationVersionId)) {
+                send(exchange, 200, "application/xml", "<jobStatusResponse><code>-10002</code><msg>Background submission failed.</msg></jobStatusResponse>");
+                return;
+            }
+            synchronized (uploadedApplicationVersionIds) {
+                uploadedApplicationVersionIds.add(applicationVersionId);
+            }
+            send(exchange, 200, "application/xml",
+                    "<jobStatusResponse><code>-10001</code><msg>Background submission succeeded.</msg></jobStatusResponse>");
+        } else {
+            send(exchange, 404, "application/json", "{\"responseCode\":404}");
+        }
+    }
+
+    // The Fortify query uses '+' as a literal separator, so it must not be decoded as a space
+    private static String rawQueryParameter(final HttpExchange exchange, final String name) throws IOException {
+        final String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                if (pair.startsWith(name + "=")) {
+                    return URLDecoder.decode(pair.substring(name.length() + 1).replace("+", "%2B"), "UTF-8");
+                }
+            }
+        }
+        return "";
+    }
+
+    private static byte[] read(final HttpExchange exchange) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = exchange.getRequestBody().read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        exchange.getRequestBody().close();
+        return output.toByteArray();
+    }
+}